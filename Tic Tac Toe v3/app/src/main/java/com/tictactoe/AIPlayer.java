@@ -1,214 +1,847 @@
 package com.tictactoe;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AIPlayer {
     public enum Difficulty {
         EASY, MEDIUM, HARD
     }
-    
+
+    // Timed search: scores are from the side to move, wins decay with distance
+    private static final int WIN_SCORE = 100_000_000;
+    private static final int CHECK_INTERVAL = 64;
+    private static final long MOVE_OVERHEAD_NANOS = 10_000_000L;
+    private static final int UNSTABLE_SCORE_DROP = 64;
+    private static final int HINT_BITS = 11;
+    private static final int HINT_ENTRIES = 1 << HINT_BITS;
+
+    // Boards up to this many cells are solved exactly; on bigger ones a difficulty is a
+    // node budget, so that it plays the same on every device, cut down only where the
+    // device could not search that many nodes within MAX_RESPONSE_NANOS
+    private static final int SOLVED_CELLS = 9;
+    private static final long MEDIUM_NODES = 20_000;
+    private static final long HARD_NODES = 500_000;
+    private static final long MAX_RESPONSE_NANOS = 1_500_000_000L;
+    private static final long DEFAULT_NODES_PER_SECOND = 300_000;
+    private static volatile long nodesPerSecond = DEFAULT_NODES_PER_SECOND;
+
+    // Variants: exact search up to this many cells, shallow search beyond
+    private static final int VARIANT_EXACT_CELLS = 9;
+    private static final int VARIANT_DEPTH = 3;
+
     private Difficulty difficulty;
+    private final Rules rules;
+    // rules.isSymmetric(), read once so the variant search makes no other Rules calls
+    private final boolean symmetricRules;
     private int aiPlayer;
     private int humanPlayer;
     private Random random;
-    
+    // Minimax {score, cell} keyed by canonical position, cell in canonical orientation;
+    // shared with the ponder thread
+    private final Map<Long, int[]> searchCache = new ConcurrentHashMap<>();
+    // Exact values of variant positions for the side to move, keyed like searchCache
+    private final Map<Long, Integer> variantCache = new ConcurrentHashMap<>();
+    // Board both caches were filled on; keys hold only stones, so size and K are not in them
+    private volatile BoardGeometry cacheGeometry;
+
+    // Timed-search state, used by one search at a time
+    private long nodes;
+    private Clock searchClock;
+    private long deadline;
+    private long nodeLimit;
+    private boolean aborted;
+    private int[] searchOrder;
+    private long[] hintKeys;
+    private byte[] hintCells;
+
     public AIPlayer(Difficulty difficulty, int aiPlayer) {
+        this(difficulty, aiPlayer, Rules.STANDARD, new Random());
+    }
+
+    // Reproducible move choices, e.g. for self-play batches that may be replayed
+    public AIPlayer(Difficulty difficulty, int aiPlayer, long seed) {
+        this(difficulty, aiPlayer, Rules.STANDARD, new Random(seed));
+    }
+
+    public AIPlayer(Difficulty difficulty, int aiPlayer, Rules rules) {
+        this(difficulty, aiPlayer, rules, new Random());
+    }
+
+    private AIPlayer(Difficulty difficulty, int aiPlayer, Rules rules, Random random) {
         this.difficulty = difficulty;
+        this.rules = rules;
+        this.symmetricRules = rules.isSymmetric();
         this.aiPlayer = aiPlayer;
         this.humanPlayer = (aiPlayer == GameLogic.PLAYER_X) ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
-        this.random = new Random();
+        this.random = random;
     }
-    
+
     public int[] getMove(GameLogic gameLogic) {
-        int[][] board = gameLogic.getBoard();
-        
+        return getMove(gameLogic.snapshot());
+    }
+
+    // Works on an immutable snapshot, so it is safe to call off the UI thread. Under
+    // rules that allow either symbol the result is {row, col, symbol}.
+    public int[] getMove(Position position) {
+        if (rules != Rules.STANDARD) {
+            int move = getVariantMove(position);
+            if (move < 0) {
+                return null;
+            }
+            int cell = move & Rules.CELL_MASK;
+            int row = cell / position.getSize();
+            int col = cell % position.getSize();
+            if (!rules.allowsOtherSymbol()) {
+                return new int[]{row, col};
+            }
+            int me = position.getToMove();
+            return new int[]{row, col, (move & Rules.OTHER_SYMBOL) == 0 ? me : opponent(me)};
+        }
+        int cell;
         switch (difficulty) {
-            case EASY:
-                return getEasyMove(board);
             case MEDIUM:
-                return getMediumMove(board, gameLogic);
+                cell = getMediumMove(position);
+                break;
             case HARD:
-                return getHardMove(board, gameLogic);
+                cell = getHardMove(position);
+                break;
+            case EASY:
             default:
-                return getEasyMove(board);
+                cell = getEasyMove(position);
+                break;
+        }
+        if (cell < 0) {
+            return null;
         }
+        return new int[]{cell / position.getSize(), cell % position.getSize()};
     }
-    
-    private int[] getEasyMove(int[][] board) {
-        List<int[]> availableMoves = getAvailableMoves(board);
-        if (availableMoves.isEmpty()) {
+
+    // Timed play for the side to move: HARD shares out the remaining time across the
+    // game, other levels answer immediately. Call with that side's clock running.
+    public int[] getMove(Position position, GameClock gameClock) {
+        if (difficulty != Difficulty.HARD || rules != Rules.STANDARD) {
+            return getMove(position);
+        }
+        int cell = getTimedMove(position, gameClock);
+        if (cell < 0) {
+            return null;
+        }
+        return new int[]{cell / position.getSize(), cell % position.getSize()};
+    }
+
+    // Thinks for at most thinkNanos on the clock, for callers that budget time themselves
+    public int[] getMove(Position position, Clock clock, long thinkNanos) {
+        if (difficulty != Difficulty.HARD || rules != Rules.STANDARD) {
+            return getMove(position);
+        }
+        if (position.isTerminal()) {
             return null;
         }
-        return availableMoves.get(random.nextInt(availableMoves.size()));
+        int cell = getInstantMove(position);
+        if (cell < 0) {
+            cell = search(position, clock, thinkNanos / 3, thinkNanos, Long.MAX_VALUE);
+        }
+        return new int[]{cell / position.getSize(), cell % position.getSize()};
+    }
+
+    // Searches the opponent's turn so that the replies found are ready for the next
+    // getMove; spends at most thinkNanos
+    public void ponder(Position position, Clock clock, long thinkNanos) {
+        if (difficulty == Difficulty.HARD && rules == Rules.STANDARD && !position.isTerminal()
+                && getInstantMove(position) < 0) {
+            search(position, clock, thinkNanos / 3, thinkNanos, Long.MAX_VALUE);
+        }
+    }
+
+    // Nodes visited by timed searches so far
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    private int getTimedMove(Position position, GameClock gameClock) {
+        if (position.isTerminal()) {
+            return -1;
+        }
+        int instant = getInstantMove(position);
+        if (instant >= 0) {
+            return instant;
+        }
+
+        // Spread what is left, less a safety margin, over our remaining moves at most,
+        // plus most of the increment. An unstable search may stretch to three times
+        // that, but never beyond a third of the usable time.
+        long usable = gameClock.getRemainingNanos(position.getToMove()) - MOVE_OVERHEAD_NANOS;
+        int movesToGo = (Long.bitCount(position.getEmptyCells()) + 1) / 2;
+        long target = Math.max(0, usable) / movesToGo + gameClock.getIncrementNanos() * 3 / 4;
+        long maximum = Math.max(0, usable) / 3;
+        return search(position, gameClock.getClock(), Math.min(target, maximum), Math.min(target * 3, maximum),
+                Long.MAX_VALUE);
+    }
+
+    // Forced and trivial moves are played instantly
+    private static int getInstantMove(Position position) {
+        BoardGeometry geometry = position.getGeometry();
+        int me = position.getToMove();
+        int them = me == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        long empty = position.getEmptyCells();
+        long wins = geometry.winningCells(position.getStones(me), empty);
+        if (wins != 0) {
+            return Long.numberOfTrailingZeros(wins);
+        }
+        long threats = geometry.winningCells(position.getStones(them), empty);
+        if (threats != 0) {
+            // Blocking is forced; with two threats the game is lost anyway
+            return Long.numberOfTrailingZeros(threats);
+        }
+        if (Long.bitCount(empty) == 1) {
+            return Long.numberOfTrailingZeros(empty);
+        }
+        return -1;
+    }
+
+    // Iterative deepening until the soft budget is used up, unless the search is unstable,
+    // and never past the hard budget or maxNodes. Searches on one AIPlayer take turns.
+    private synchronized int search(Position position, Clock clock, long softBudget, long hardBudget, long maxNodes) {
+        searchClock = clock;
+        long start = clock.nanoTime();
+        long startNodes = nodes;
+        deadline = start + hardBudget;
+        nodeLimit = maxNodes == Long.MAX_VALUE ? Long.MAX_VALUE : nodes + maxNodes;
+        long softDeadline = start + softBudget;
+        int cellCount = position.getGeometry().getCellCount();
+        if (searchOrder == null || searchOrder.length != cellCount) {
+            searchOrder = centerFirst(position.getSize());
+            hintKeys = new long[HINT_ENTRIES];
+            hintCells = new byte[HINT_ENTRIES];
+        }
+        long empty = position.getEmptyCells();
+        if (hardBudget <= 0) {
+            // Inside the safety margin: don't risk even a shallow search
+            return firstEmpty(empty);
+        }
+
+        // Earlier searches, e.g. of the previous turn, may already know a good move
+        int best = getHint(position);
+        if (best >= 0 && (empty & (1L << best)) == 0) {
+            best = -1;
+        }
+        int previousScore = 0;
+        int maxDepth = Long.bitCount(empty);
+        aborted = false;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int bestThisDepth = -1;
+            int alpha = -WIN_SCORE;
+            // Search last depth's best move first
+            if (best >= 0) {
+                alpha = -alphaBeta(position.play(best), depth - 1, -WIN_SCORE, WIN_SCORE, 1);
+                bestThisDepth = best;
+            }
+            for (int cell : searchOrder) {
+                if (aborted) {
+                    break;
+                }
+                if (cell == best || (empty & (1L << cell)) == 0) {
+                    continue;
+                }
+                int score = -alphaBeta(position.play(cell), depth - 1, -WIN_SCORE, -alpha, 1);
+                if (!aborted && (score > alpha || bestThisDepth < 0)) {
+                    alpha = score;
+                    bestThisDepth = cell;
+                }
+            }
+            if (aborted) {
+                // A move that beat the previous best before the deadline is still better
+                if (best >= 0 && bestThisDepth >= 0) {
+                    best = bestThisDepth;
+                }
+                break;
+            }
+            boolean unstable = depth > 1 && (bestThisDepth != best || alpha < previousScore - UNSTABLE_SCORE_DROP);
+            best = bestThisDepth;
+            previousScore = alpha;
+            putHint(position, best);
+            // Proven win or loss, or searched to the end of the game
+            if (Math.abs(alpha) > WIN_SCORE / 2 || depth == maxDepth) {
+                break;
+            }
+            if (unstable) {
+                softDeadline = Math.min(deadline, softDeadline + softBudget);
+            }
+            // The next depth costs several times this one; don't start what cannot finish
+            long now = clock.nanoTime();
+            if (now - start > (softDeadline - start) / 2 || nodes - startNodes > maxNodes / 2) {
+                break;
+            }
+        }
+        // Out of time before depth 1 finished
+        return best >= 0 ? best : firstEmpty(empty);
+    }
+
+    private int firstEmpty(long empty) {
+        for (int cell : searchOrder) {
+            if ((empty & (1L << cell)) != 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private int alphaBeta(Position position, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0 && (nodes > nodeLimit || searchClock.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (position.getWinner() != GameLogic.EMPTY) {
+            // The previous move won
+            return -(WIN_SCORE - ply);
+        }
+        long empty = position.getEmptyCells();
+        if (empty == 0) {
+            return 0;
+        }
+        BoardGeometry geometry = position.getGeometry();
+        int me = position.getToMove();
+        int them = me == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        if (geometry.winningCells(position.getStones(me), empty) != 0) {
+            return WIN_SCORE - ply - 1;
+        }
+        if (depth <= 0) {
+            return evaluate(position);
+        }
+        long threats = geometry.winningCells(position.getStones(them), empty);
+        long moves = threats != 0 ? threats : empty;
+        int best = -WIN_SCORE;
+        int bestCell = -1;
+        int hint = depth > 1 ? getHint(position) : -1;
+        if (hint >= 0 && (moves & (1L << hint)) != 0) {
+            best = -alphaBeta(position.play(hint), depth - 1, -beta, -alpha, ply + 1);
+            bestCell = hint;
+        }
+        if (best < beta) {
+            for (int cell : searchOrder) {
+                if (cell == hint || (moves & (1L << cell)) == 0) {
+                    continue;
+                }
+                int score = -alphaBeta(position.play(cell), depth - 1, -beta, -Math.max(alpha, best), ply + 1);
+                if (score > best) {
+                    best = score;
+                    bestCell = cell;
+                    if (best >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (depth > 1 && !aborted) {
+            putHint(position, bestCell);
+        }
+        return best;
+    }
+
+    // Best-move table kept across searches: one entry per slot, newest wins
+    private int getHint(Position position) {
+        if (hintKeys == null) {
+            return -1;
+        }
+        long key = hintKey(position);
+        int slot = (int) (key >>> (64 - HINT_BITS));
+        return hintKeys[slot] == key ? hintCells[slot] : -1;
+    }
+
+    private void putHint(Position position, int cell) {
+        long key = hintKey(position);
+        int slot = (int) (key >>> (64 - HINT_BITS));
+        hintKeys[slot] = key;
+        hintCells[slot] = (byte) cell;
+    }
+
+    private static long hintKey(Position position) {
+        long key = position.getX() * 0x9E3779B97F4A7C15L + position.getO() * 0xC2B2AE3D27D4EB4FL;
+        key ^= key >>> 31;
+        // Zero marks an empty slot
+        return key == 0 ? 1 : key;
+    }
+
+    // Open K-windows weighted by how full they are, for the side to move
+    private static int evaluate(Position position) {
+        long x = position.getX();
+        long o = position.getO();
+        int score = 0;
+        for (long line : position.getGeometry().getLines()) {
+            if ((line & o) == 0) {
+                score += 1 << 2 * Long.bitCount(line & x);
+            } else if ((line & x) == 0) {
+                score -= 1 << 2 * Long.bitCount(line & o);
+            }
+        }
+        return position.getToMove() == GameLogic.PLAYER_X ? score : -score;
     }
-    
-    private int[] getMediumMove(int[][] board, GameLogic gameLogic) {
+
+    private static int[] centerFirst(int size) {
+        Integer[] cells = new Integer[size * size];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = cell;
+        }
+        final int center = size - 1;
+        Arrays.sort(cells, (a, b) -> {
+            int da = Math.abs(2 * (a / size) - center) + Math.abs(2 * (a % size) - center);
+            int db = Math.abs(2 * (b / size) - center) + Math.abs(2 * (b % size) - center);
+            return da != db ? da - db : a - b;
+        });
+        int[] order = new int[cells.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = cells[i];
+        }
+        return order;
+    }
+
+    private int getEasyMove(Position position) {
+        long availableMoves = position.getEmptyCells();
+        if (position.isTerminal() || availableMoves == 0) {
+            return -1;
+        }
+        return nthCell(availableMoves, random.nextInt(Long.bitCount(availableMoves)));
+    }
+
+    private int getMediumMove(Position position) {
         // Check for winning move
-        int[] winningMove = findWinningMove(board, aiPlayer);
-        if (winningMove != null) {
+        int winningMove = findWinningMove(position, aiPlayer);
+        if (winningMove >= 0) {
             return winningMove;
         }
-        
+
         // Check for blocking move
-        int[] blockingMove = findWinningMove(board, humanPlayer);
-        if (blockingMove != null) {
+        int blockingMove = findWinningMove(position, humanPlayer);
+        if (blockingMove >= 0) {
             return blockingMove;
         }
-        
+
+        if (position.getGeometry().getCellCount() > SOLVED_CELLS) {
+            return searchNodes(position, getNodeBudget(Difficulty.MEDIUM));
+        }
+
         // Otherwise random move
-        return getEasyMove(board);
+        return getEasyMove(position);
     }
-    
-    private int[] getHardMove(int[][] board, GameLogic gameLogic) {
+
+    private int getHardMove(Position position) {
+        if (position.getGeometry().getCellCount() > SOLVED_CELLS) {
+            return searchNodes(position, getNodeBudget(Difficulty.HARD));
+        }
         // Use minimax algorithm
-        int[] bestMove = minimax(board, aiPlayer, true);
-        return new int[]{bestMove[1], bestMove[2]};
-    }
-    
-    private int[] findWinningMove(int[][] board, int player) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] == GameLogic.EMPTY) {
-                    board[i][j] = player;
-                    if (checkWin(board, i, j, player)) {
-                        board[i][j] = GameLogic.EMPTY;
-                        return new int[]{i, j};
-                    }
-                    board[i][j] = GameLogic.EMPTY;
-                }
-            }
+        return minimax(position, true)[1];
+    }
+
+    // Time only stops the search if the device is far slower than calibrated
+    private int searchNodes(Position position, long maxNodes) {
+        if (position.isTerminal()) {
+            return -1;
+        }
+        int instant = getInstantMove(position);
+        if (instant >= 0) {
+            return instant;
+        }
+        long safetyNanos = maxNodes * 1_000_000_000L / nodesPerSecond * 3;
+        return search(position, Clock.SYSTEM, safetyNanos, safetyNanos, maxNodes);
+    }
+
+    // Search speed measured by Calibration; until then a conservative default applies
+    public static void setNodesPerSecond(long measured) {
+        if (measured > 0) {
+            nodesPerSecond = measured;
+        }
+    }
+
+    public static long getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    // Nodes a search may visit at the given level; EASY does not search
+    public static long getNodeBudget(Difficulty difficulty) {
+        long nodes;
+        switch (difficulty) {
+            case HARD:
+                nodes = HARD_NODES;
+                break;
+            case MEDIUM:
+                nodes = MEDIUM_NODES;
+                break;
+            case EASY:
+            default:
+                return 0;
         }
-        return null;
+        return Math.min(nodes, nodesPerSecond * MAX_RESPONSE_NANOS / 1_000_000_000L);
     }
-    
-    private boolean checkWin(int[][] board, int row, int col, int player) {
-        // Check row
-        if (board[row][0] == player && board[row][1] == player && board[row][2] == player) {
-            return true;
+
+    int findWinningMove(Position position, int player) {
+        if (position.isTerminal()) {
+            return -1;
         }
-        
-        // Check column
-        if (board[0][col] == player && board[1][col] == player && board[2][col] == player) {
-            return true;
+        long cells = position.getGeometry().winningCells(position.getStones(player), position.getEmptyCells());
+        return cells == 0 ? -1 : Long.numberOfTrailingZeros(cells);
+    }
+
+    private int[] minimax(Position position, boolean isMaximizing) {
+        if (position.getGeometry().getCellCount() > 32) {
+            return search(position, isMaximizing);
         }
-        
-        // Check main diagonal
-        if (row == col && board[0][0] == player && board[1][1] == player && board[2][2] == player) {
-            return true;
+        checkCacheGeometry(position);
+        BoardSymmetry symmetry = BoardSymmetry.of(position.getSize());
+        int t = symmetry.canonicalTransform(position.getX(), position.getO());
+        long key = symmetry.transform(position.getX(), t) | symmetry.transform(position.getO(), t) << 32;
+        int[] entry = searchCache.get(key);
+        if (entry == null) {
+            int[] result = search(position, isMaximizing);
+            entry = new int[]{result[0], result[1] < 0 ? -1 : symmetry.mapCell(result[1], t)};
+            searchCache.put(key, entry);
         }
-        
-        // Check anti-diagonal
-        if (row + col == 2 && board[0][2] == player && board[1][1] == player && board[2][0] == player) {
-            return true;
+        if (entry[1] < 0) {
+            return entry;
         }
-        
-        return false;
+        return new int[]{entry[0], symmetry.unmapCell(entry[1], t)};
     }
-    
-    private int[] minimax(int[][] board, int player, boolean isMaximizing) {
-        List<int[]> availableMoves = getAvailableMoves(board);
-        
+
+    private int[] search(Position position, boolean isMaximizing) {
         // Check for terminal states
-        int winner = checkWinner(board);
+        int winner = position.getWinner();
         if (winner == aiPlayer) {
-            return new int[]{10, -1, -1};
+            return new int[]{10, -1};
         } else if (winner == humanPlayer) {
-            return new int[]{-10, -1, -1};
-        } else if (availableMoves.isEmpty()) {
-            return new int[]{0, -1, -1};
-        }
-        
-        if (isMaximizing) {
-            int bestScore = Integer.MIN_VALUE;
-            int bestRow = -1;
-            int bestCol = -1;
-            
-            for (int[] move : availableMoves) {
-                board[move[0]][move[1]] = aiPlayer;
-                int[] result = minimax(board, humanPlayer, false);
-                board[move[0]][move[1]] = GameLogic.EMPTY;
-                
-                if (result[0] > bestScore) {
-                    bestScore = result[0];
-                    bestRow = move[0];
-                    bestCol = move[1];
-                }
+            return new int[]{-10, -1};
+        } else if (position.isFull()) {
+            return new int[]{0, -1};
+        }
+
+        int bestScore = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestCell = -1;
+        for (long moves = position.getEmptyCells(); moves != 0; moves &= moves - 1) {
+            int cell = Long.numberOfTrailingZeros(moves);
+            int score = minimax(position.play(cell), !isMaximizing)[0];
+            if (isMaximizing ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestCell = cell;
             }
-            
-            return new int[]{bestScore, bestRow, bestCol};
-        } else {
-            int bestScore = Integer.MAX_VALUE;
-            int bestRow = -1;
-            int bestCol = -1;
-            
-            for (int[] move : availableMoves) {
-                board[move[0]][move[1]] = humanPlayer;
-                int[] result = minimax(board, aiPlayer, true);
-                board[move[0]][move[1]] = GameLogic.EMPTY;
-                
-                if (result[0] < bestScore) {
-                    bestScore = result[0];
-                    bestRow = move[0];
-                    bestCol = move[1];
-                }
+        }
+        return new int[]{bestScore, bestCell};
+    }
+
+    // Variants: EASY plays at random, MEDIUM takes a win and otherwise avoids moves that
+    // lose at once, HARD searches the game tree. Returns a move as in Rules.
+    private int getVariantMove(Position position) {
+        long legal = rules.getLegalCells(position);
+        if (legal == 0) {
+            return -1;
+        }
+        int symbols = rules.allowsOtherSymbol() ? 2 : 1;
+        int[] moves = new int[Long.bitCount(legal) * symbols];
+        int count = 0;
+        for (long cells = legal; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            moves[count++] = cell;
+            if (symbols == 2) {
+                moves[count++] = cell | Rules.OTHER_SYMBOL;
             }
-            
-            return new int[]{bestScore, bestRow, bestCol};
-        }
-    }
-    
-    private int checkWinner(int[][] board) {
-        // Check rows
-        for (int i = 0; i < 3; i++) {
-            if (board[i][0] != GameLogic.EMPTY && 
-                board[i][0] == board[i][1] && 
-                board[i][1] == board[i][2]) {
-                return board[i][0];
-            }
-        }
-        
-        // Check columns
-        for (int j = 0; j < 3; j++) {
-            if (board[0][j] != GameLogic.EMPTY && 
-                board[0][j] == board[1][j] && 
-                board[1][j] == board[2][j]) {
-                return board[0][j];
-            }
-        }
-        
-        // Check main diagonal
-        if (board[0][0] != GameLogic.EMPTY && 
-            board[0][0] == board[1][1] && 
-            board[1][1] == board[2][2]) {
-            return board[0][0];
-        }
-        
-        // Check anti-diagonal
-        if (board[0][2] != GameLogic.EMPTY && 
-            board[0][2] == board[1][1] && 
-            board[1][1] == board[2][0]) {
-            return board[0][2];
-        }
-        
-        return GameLogic.EMPTY;
-    }
-    
-    private List<int[]> getAvailableMoves(int[][] board) {
-        List<int[]> moves = new ArrayList<>();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] == GameLogic.EMPTY) {
-                    moves.add(new int[]{i, j});
-                }
+        }
+        if (difficulty == Difficulty.EASY) {
+            return moves[random.nextInt(count)];
+        }
+        if (difficulty == Difficulty.HARD) {
+            return searchVariant(position, moves, count);
+        }
+        int me = position.getToMove();
+        int safe = 0;
+        for (int i = 0; i < count; i++) {
+            Position next = rules.play(position, moves[i]);
+            if (next.getWinner() == me) {
+                return moves[i];
+            }
+            if (next.getWinner() == GameLogic.EMPTY && !canWinNow(next)) {
+                // Keep the safe moves at the front
+                int move = moves[i];
+                moves[i] = moves[safe];
+                moves[safe++] = move;
+            }
+        }
+        return moves[random.nextInt(safe > 0 ? safe : count)];
+    }
+
+    private boolean canWinNow(Position position) {
+        int player = position.getToMove();
+        for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            if (rules.play(position, cell).getWinner() == player) {
+                return true;
+            }
+            if (rules.allowsOtherSymbol() && rules.play(position, cell | Rules.OTHER_SYMBOL).getWinner() == player) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int searchVariant(Position position, int[] moves, int count) {
+        boolean exact = position.getGeometry().getCellCount() <= VARIANT_EXACT_CELLS;
+        if (exact) {
+            checkCacheGeometry(position);
+        }
+        int best = moves[0];
+        int bestScore = -Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            Position next = rules.play(position, moves[i]);
+            int score = -rootValue(next, exact, -bestScore);
+            if (score > bestScore || i == 0) {
+                bestScore = score;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    // From the side to move: positive wins, higher for quicker ones
+    private static int variantScore(Position position) {
+        int winner = position.getWinner();
+        if (winner == GameLogic.EMPTY) {
+            return 0;
+        }
+        int score = 1 + Long.bitCount(position.getEmptyCells());
+        return winner == position.getToMove() ? score : -score;
+    }
+
+    // Picks the variant's own search routine, once per root move. Each calls only its final
+    // Rules class, so none of their call sites goes megamorphic when one process plays every
+    // variant; rules implemented elsewhere go through the interface.
+    private int rootValue(Position position, boolean exact, int beta) {
+        int depth = VARIANT_DEPTH - 1;
+        int alpha = -Integer.MAX_VALUE;
+        if (rules == Rules.MISERE) {
+            Rules.Misere misere = (Rules.Misere) rules;
+            return exact ? misereValue(misere, position) : misereValue(misere, position, depth, alpha, beta);
+        }
+        if (rules == Rules.WILD) {
+            Rules.Wild wild = (Rules.Wild) rules;
+            return exact ? wildValue(wild, position) : wildValue(wild, position, depth, alpha, beta);
+        }
+        if (rules == Rules.GRAVITY) {
+            Rules.Gravity gravity = (Rules.Gravity) rules;
+            return exact ? gravityValue(gravity, position) : gravityValue(gravity, position, depth, alpha, beta);
+        }
+        return exact ? variantValue(position) : variantValue(position, depth, alpha, beta);
+    }
+
+    private int misereValue(Rules.Misere misere, Position position) {
+        if (position.isTerminal()) {
+            return variantScore(position);
+        }
+        long key = variantKey(position);
+        Integer cached = variantCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int best = Integer.MIN_VALUE;
+        for (long cells = misere.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            best = Math.max(best, -misereValue(misere, misere.play(position, Long.numberOfTrailingZeros(cells))));
+        }
+        variantCache.put(key, best);
+        return best;
+    }
+
+    private int misereValue(Rules.Misere misere, Position position, int depth, int alpha, int beta) {
+        if (position.isTerminal() || depth == 0) {
+            return variantScore(position);
+        }
+        int best = -Integer.MAX_VALUE;
+        for (long cells = misere.getLegalCells(position); cells != 0 && best < beta; cells &= cells - 1) {
+            best = Math.max(best, -misereValue(misere, misere.play(position, Long.numberOfTrailingZeros(cells)),
+                    depth - 1, -beta, -Math.max(alpha, best)));
+        }
+        return best;
+    }
+
+    private int wildValue(Rules.Wild wild, Position position) {
+        if (position.isTerminal()) {
+            return variantScore(position);
+        }
+        long key = variantKey(position);
+        Integer cached = variantCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int best = Integer.MIN_VALUE;
+        for (long cells = wild.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            best = Math.max(best, -wildValue(wild, wild.play(position, cell)));
+            best = Math.max(best, -wildValue(wild, wild.play(position, cell | Rules.OTHER_SYMBOL)));
+        }
+        variantCache.put(key, best);
+        return best;
+    }
+
+    private int wildValue(Rules.Wild wild, Position position, int depth, int alpha, int beta) {
+        if (position.isTerminal() || depth == 0) {
+            return variantScore(position);
+        }
+        int best = -Integer.MAX_VALUE;
+        for (long cells = wild.getLegalCells(position); cells != 0 && best < beta; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            best = Math.max(best, -wildValue(wild, wild.play(position, cell), depth - 1, -beta, -Math.max(alpha, best)));
+            if (best < beta) {
+                best = Math.max(best, -wildValue(wild, wild.play(position, cell | Rules.OTHER_SYMBOL),
+                        depth - 1, -beta, -Math.max(alpha, best)));
             }
         }
-        return moves;
+        return best;
+    }
+
+    private int gravityValue(Rules.Gravity gravity, Position position) {
+        if (position.isTerminal()) {
+            return variantScore(position);
+        }
+        long key = variantKey(position);
+        Integer cached = variantCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int best = Integer.MIN_VALUE;
+        for (long cells = gravity.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            best = Math.max(best, -gravityValue(gravity, gravity.play(position, Long.numberOfTrailingZeros(cells))));
+        }
+        variantCache.put(key, best);
+        return best;
+    }
+
+    private int gravityValue(Rules.Gravity gravity, Position position, int depth, int alpha, int beta) {
+        if (position.isTerminal() || depth == 0) {
+            return variantScore(position);
+        }
+        int best = -Integer.MAX_VALUE;
+        for (long cells = gravity.getLegalCells(position); cells != 0 && best < beta; cells &= cells - 1) {
+            best = Math.max(best, -gravityValue(gravity, gravity.play(position, Long.numberOfTrailingZeros(cells)),
+                    depth - 1, -beta, -Math.max(alpha, best)));
+        }
+        return best;
+    }
+
+    private int variantValue(Position position) {
+        if (position.isTerminal()) {
+            return variantScore(position);
+        }
+        long key = variantKey(position);
+        Integer cached = variantCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int best = Integer.MIN_VALUE;
+        for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            best = Math.max(best, -variantValue(rules.play(position, cell)));
+            if (rules.allowsOtherSymbol()) {
+                best = Math.max(best, -variantValue(rules.play(position, cell | Rules.OTHER_SYMBOL)));
+            }
+        }
+        variantCache.put(key, best);
+        return best;
+    }
+
+    private int variantValue(Position position, int depth, int alpha, int beta) {
+        if (position.isTerminal() || depth == 0) {
+            return variantScore(position);
+        }
+        int best = -Integer.MAX_VALUE;
+        for (long cells = rules.getLegalCells(position); cells != 0 && best < beta; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            best = Math.max(best, -variantValue(rules.play(position, cell), depth - 1, -beta, -Math.max(alpha, best)));
+            if (rules.allowsOtherSymbol() && best < beta) {
+                best = Math.max(best, -variantValue(rules.play(position, cell | Rules.OTHER_SYMBOL),
+                        depth - 1, -beta, -Math.max(alpha, best)));
+            }
+        }
+        return best;
+    }
+
+    // Geometries are shared per size and K, so a new one means a different board
+    private void checkCacheGeometry(Position position) {
+        BoardGeometry geometry = position.getGeometry();
+        if (cacheGeometry != geometry) {
+            searchCache.clear();
+            variantCache.clear();
+            cacheGeometry = geometry;
+        }
+    }
+
+    // Stone counts give the side to move, so stones alone identify a position
+    private long variantKey(Position position) {
+        long x = position.getX();
+        long o = position.getO();
+        if (symmetricRules) {
+            BoardSymmetry symmetry = BoardSymmetry.of(position.getSize());
+            int t = symmetry.canonicalTransform(x, o);
+            x = symmetry.transform(x, t);
+            o = symmetry.transform(o, t);
+        }
+        return x | o << 32;
     }
-    
+
+    private static int opponent(int player) {
+        return player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+    }
+
+    private static int nthCell(long cells, int n) {
+        for (int i = 0; i < n; i++) {
+            cells &= cells - 1;
+        }
+        return Long.numberOfTrailingZeros(cells);
+    }
+
     public void setDifficulty(Difficulty difficulty) {
         this.difficulty = difficulty;
     }
-}
 
+    public Rules getRules() {
+        return rules;
+    }
+
+    public int getAiPlayer() {
+        return aiPlayer;
+    }
+
+    public int getHumanPlayer() {
+        return humanPlayer;
+    }
+
+    // Drops cached results for positions that can no longer arise from position
+    public void retainReachable(Position position) {
+        if (position.getGeometry().getCellCount() > 32) {
+            return;
+        }
+        BoardSymmetry symmetry = BoardSymmetry.of(position.getSize());
+        long x = position.getX();
+        long o = position.getO();
+        Iterator<Long> it = searchCache.keySet().iterator();
+        while (it.hasNext()) {
+            long key = it.next();
+            if (!isDescendant(symmetry, key & 0xFFFFFFFFL, key >>> 32, x, o)) {
+                it.remove();
+            }
+        }
+    }
+
+    // True if some orientation of the canonical position contains every stone of (x, o)
+    private static boolean isDescendant(BoardSymmetry symmetry, long canonicalX, long canonicalO, long x, long o) {
+        for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+            if ((symmetry.transform(canonicalX, t) & x) == x && (symmetry.transform(canonicalO, t) & o) == o) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getCacheSize() {
+        return searchCache.size();
+    }
+}
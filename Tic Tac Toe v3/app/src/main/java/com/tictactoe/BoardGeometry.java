@@ -0,0 +1,144 @@
+package com.tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Precomputed K-in-a-row windows for an N x N board packed into a long (cell = row * N + col)
+public final class BoardGeometry {
+    public static final int MAX_CELLS = 64;
+
+    private static final BoardGeometry[][] CACHE = new BoardGeometry[9][9];
+
+    private final int size;
+    private final int winLength;
+    private final long fullMask;
+    private final long[] lines;
+    private final long[][] linesThroughCell;
+
+    private BoardGeometry(int size, int winLength) {
+        this.size = size;
+        this.winLength = winLength;
+        int cells = size * size;
+        this.fullMask = cells == 64 ? -1L : (1L << cells) - 1;
+
+        List<Long> windows = new ArrayList<>();
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                for (int[] d : directions) {
+                    int endRow = row + d[0] * (winLength - 1);
+                    int endCol = col + d[1] * (winLength - 1);
+                    if (endRow < 0 || endRow >= size || endCol < 0 || endCol >= size) {
+                        continue;
+                    }
+                    long mask = 0;
+                    for (int i = 0; i < winLength; i++) {
+                        mask |= 1L << ((row + d[0] * i) * size + col + d[1] * i);
+                    }
+                    windows.add(mask);
+                }
+            }
+        }
+        lines = new long[windows.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = windows.get(i);
+        }
+
+        linesThroughCell = new long[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            int count = 0;
+            for (long line : lines) {
+                if ((line & (1L << cell)) != 0) {
+                    count++;
+                }
+            }
+            long[] through = new long[count];
+            int next = 0;
+            for (long line : lines) {
+                if ((line & (1L << cell)) != 0) {
+                    through[next++] = line;
+                }
+            }
+            linesThroughCell[cell] = through;
+        }
+    }
+
+    public static BoardGeometry of(int size, int winLength) {
+        if (size < 1 || size * size > MAX_CELLS || winLength < 1 || winLength > size) {
+            throw new IllegalArgumentException("Unsupported board " + size + "x" + size + " with K=" + winLength);
+        }
+        synchronized (CACHE) {
+            BoardGeometry geometry = CACHE[size][winLength];
+            if (geometry == null) {
+                geometry = new BoardGeometry(size, winLength);
+                CACHE[size][winLength] = geometry;
+            }
+            return geometry;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return size * size;
+    }
+
+    public long getFullMask() {
+        return fullMask;
+    }
+
+    public long[] getLines() {
+        return lines;
+    }
+
+    public long[] getLinesThrough(int cell) {
+        return linesThroughCell[cell];
+    }
+
+    // True if stones contain a complete line passing through cell
+    public boolean completesLine(long stones, int cell) {
+        for (long line : linesThroughCell[cell]) {
+            if ((stones & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasLine(long stones) {
+        for (long line : lines) {
+            if ((stones & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Empty cells that would complete a line for the owner of stones
+    public long winningCells(long stones, long empty) {
+        long cells = 0;
+        for (long line : lines) {
+            long missing = line & ~stones;
+            if (Long.bitCount(missing) == 1 && (missing & empty) != 0) {
+                cells |= missing;
+            }
+        }
+        return cells;
+    }
+
+    // True if some line is still free of the opponent's stones
+    public boolean hasOpenLine(long opponentStones) {
+        for (long line : lines) {
+            if ((line & opponentStones) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
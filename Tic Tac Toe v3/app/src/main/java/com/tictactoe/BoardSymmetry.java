@@ -0,0 +1,139 @@
+package com.tictactoe;
+
+// The 8 rotations and reflections (dihedral group D4) of an N x N bitboard.
+// Transforms are applied a byte at a time through precomputed permutation tables.
+public final class BoardSymmetry {
+    public static final int IDENTITY = 0;
+    public static final int COUNT = 8;
+
+    private static final BoardSymmetry[] CACHE = new BoardSymmetry[9];
+
+    private final int size;
+    private final int[][] forward;
+    private final int[][] inverse;
+    private final int chunks;
+    // byteTables[(t * chunks + chunk) * 256 + value] is the transformed mask of value at byte chunk
+    private final long[] byteTables;
+
+    private BoardSymmetry(int size) {
+        this.size = size;
+        int cells = size * size;
+        forward = new int[COUNT][cells];
+        inverse = new int[COUNT][cells];
+        for (int t = 0; t < COUNT; t++) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int target = map(t, row, col);
+                    forward[t][row * size + col] = target;
+                    inverse[t][target] = row * size + col;
+                }
+            }
+        }
+
+        chunks = (cells + 7) / 8;
+        byteTables = new long[COUNT * chunks * 256];
+        for (int t = 0; t < COUNT; t++) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                for (int value = 1; value < 256; value++) {
+                    long mask = 0;
+                    for (int bit = 0; bit < 8; bit++) {
+                        int cell = chunk * 8 + bit;
+                        if ((value & (1 << bit)) != 0 && cell < cells) {
+                            mask |= 1L << forward[t][cell];
+                        }
+                    }
+                    byteTables[(t * chunks + chunk) * 256 + value] = mask;
+                }
+            }
+        }
+    }
+
+    private int map(int t, int row, int col) {
+        int last = size - 1;
+        switch (t) {
+            case 1:
+                return col * size + (last - row);
+            case 2:
+                return (last - row) * size + (last - col);
+            case 3:
+                return (last - col) * size + row;
+            case 4:
+                return row * size + (last - col);
+            case 5:
+                return (last - row) * size + col;
+            case 6:
+                return col * size + row;
+            case 7:
+                return (last - col) * size + (last - row);
+            default:
+                return row * size + col;
+        }
+    }
+
+    public static BoardSymmetry of(int size) {
+        if (size < 1 || size * size > BoardGeometry.MAX_CELLS) {
+            throw new IllegalArgumentException("Unsupported board size " + size);
+        }
+        synchronized (CACHE) {
+            BoardSymmetry symmetry = CACHE[size];
+            if (symmetry == null) {
+                symmetry = new BoardSymmetry(size);
+                CACHE[size] = symmetry;
+            }
+            return symmetry;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long transform(long stones, int t) {
+        long result = 0;
+        for (int offset = t * chunks * 256; stones != 0; offset += 256) {
+            result |= byteTables[offset + ((int) stones & 0xFF)];
+            stones >>>= 8;
+        }
+        return result;
+    }
+
+    // Transform that maps (x, o) to its canonical orientation: the smallest (x, o) pair
+    public int canonicalTransform(long x, long o) {
+        int best = IDENTITY;
+        long bestX = x;
+        long bestO = o;
+        for (int t = 1; t < COUNT; t++) {
+            long tx = transform(x, t);
+            if (tx != bestX && less(bestX, tx)) {
+                continue;
+            }
+            long to = transform(o, t);
+            if (less(tx, bestX) || less(to, bestO)) {
+                best = t;
+                bestX = tx;
+                bestO = to;
+            }
+        }
+        return best;
+    }
+
+    // Cell of the transformed board that the original cell moves to
+    public int mapCell(int cell, int t) {
+        return forward[t][cell];
+    }
+
+    // Original cell for a cell of the transformed board, e.g. a best move found canonically
+    public int unmapCell(int cell, int t) {
+        return inverse[t][cell];
+    }
+
+    // Canonical key for boards of up to 32 cells: x in the low half, o in the high half
+    public long canonicalKey(long x, long o) {
+        int t = canonicalTransform(x, o);
+        return transform(x, t) | transform(o, t) << 32;
+    }
+
+    private static boolean less(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+    }
+}
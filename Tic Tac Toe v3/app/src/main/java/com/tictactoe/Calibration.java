@@ -0,0 +1,40 @@
+package com.tictactoe;
+
+// Measures how many nodes per second the real HARD search visits on this device, for
+// AIPlayer.setNodesPerSecond(). Takes about ROUNDS * ROUND_NANOS and must run off the
+// main thread. The best round counts, since early rounds still run interpreted or
+// compete with app startup. The app's 3x3 board is solved exactly whatever the
+// budget, so the measurement only matters on larger boards.
+public final class Calibration {
+    private static final int ROUNDS = 5;
+    private static final long ROUND_NANOS = 60_000_000L;
+    // Quiet openings on 7x7, four in a row, with no forced moves
+    private static final int[][] OPENINGS = {
+            {24, 25},
+            {24, 16, 18},
+            {17, 31, 23, 25},
+            {24, 32, 26, 30, 10},
+    };
+
+    private Calibration() {
+    }
+
+    public static long measureNodesPerSecond() {
+        AIPlayer ai = new AIPlayer(AIPlayer.Difficulty.HARD, GameLogic.PLAYER_X);
+        long best = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            Position position = Position.empty(7, 4);
+            for (int cell : OPENINGS[round % OPENINGS.length]) {
+                position = position.play(cell);
+            }
+            long nodes = ai.getNodeCount();
+            long start = Clock.SYSTEM.nanoTime();
+            ai.getMove(position, Clock.SYSTEM, ROUND_NANOS);
+            long elapsed = Clock.SYSTEM.nanoTime() - start;
+            if (elapsed > 0) {
+                best = Math.max(best, (ai.getNodeCount() - nodes) * 1_000_000_000L / elapsed);
+            }
+        }
+        return best;
+    }
+}
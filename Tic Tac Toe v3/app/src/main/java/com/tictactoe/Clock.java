@@ -0,0 +1,10 @@
+package com.tictactoe;
+
+// Monotonic nanosecond time source shared by the UI and the AI. SYSTEM is
+// System.nanoTime(), which on Android is CLOCK_MONOTONIC and keeps counting across
+// wall-clock changes; simulations substitute a virtual clock.
+public interface Clock {
+    Clock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
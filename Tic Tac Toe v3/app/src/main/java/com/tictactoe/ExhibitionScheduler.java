@@ -0,0 +1,244 @@
+package com.tictactoe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Simultaneous exhibition: one HARD AI playing many boards at once. Boards where the
+// opponent has moved are answered oldest first, each with a share of the workers' time
+// that shrinks as more boards wait, so the last in line still hears back in about the
+// target latency. Workers with nothing to answer ponder boards where it is the
+// opponent's turn. Every board keeps its own AIPlayer, so what one turn searched speeds
+// up the next. Searches run on a work-stealing pool; the order comes from a shared
+// priority queue, which each pool task polls once.
+public class ExhibitionScheduler implements AutoCloseable {
+    // Called on a worker thread
+    public interface Listener {
+        void onReply(int boardId, int cell, Position position, long latencyNanos);
+    }
+
+    private static final long MIN_THINK_NANOS = 1_000_000L;
+
+    private static final class Board {
+        final int id;
+        final int size;
+        final int winLength;
+        final int aiSide;
+        // Held for searches, so that moves arriving meanwhile only wait for the board lock
+        final Object searchLock = new Object();
+        final AIPlayer ai;
+        // Guarded by this
+        Position position;
+        int generation;
+
+        Board(int id, int size, int winLength, int aiSide) {
+            this.id = id;
+            this.size = size;
+            this.winLength = winLength;
+            this.aiSide = aiSide;
+            this.ai = new AIPlayer(AIPlayer.Difficulty.HARD, aiSide);
+            this.position = Position.empty(size, winLength);
+        }
+    }
+
+    // Replies before pondering, then oldest first
+    private static final class Job implements Comparable<Job> {
+        final Board board;
+        final boolean reply;
+        final Position position;
+        final int generation;
+        final long since;
+
+        Job(Board board, boolean reply, Position position, int generation, long since) {
+            this.board = board;
+            this.reply = reply;
+            this.position = position;
+            this.generation = generation;
+            this.since = since;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (reply != other.reply) {
+                return reply ? -1 : 1;
+            }
+            return Long.compare(since, other.since);
+        }
+    }
+
+    private final Clock clock;
+    private final int threads;
+    private final long targetLatencyNanos;
+    private final Listener listener;
+    private final ForkJoinPool pool;
+    private final PriorityBlockingQueue<Job> jobs = new PriorityBlockingQueue<>();
+    private final Map<Integer, Board> boards = new ConcurrentHashMap<>();
+    private final AtomicInteger nextBoardId = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong replyNanos = new AtomicLong();
+    private final AtomicLong ponderNanos = new AtomicLong();
+    private final AtomicLong replies = new AtomicLong();
+
+    public ExhibitionScheduler(Clock clock, int threads, long targetLatencyNanos, Listener listener) {
+        if (threads <= 0 || targetLatencyNanos <= 0) {
+            throw new IllegalArgumentException("Invalid scheduler settings " + threads + ", " + targetLatencyNanos);
+        }
+        this.clock = clock;
+        this.threads = threads;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.listener = listener;
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("exhibition-" + thread.getPoolIndex());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, true);
+    }
+
+    // Starts a game on a new board; with aiSide X the AI's first move is queued right away
+    public int addBoard(int size, int winLength, int aiSide) {
+        Board board = new Board(nextBoardId.getAndIncrement(), size, winLength, aiSide);
+        boards.put(board.id, board);
+        synchronized (board) {
+            schedule(board);
+        }
+        return board.id;
+    }
+
+    public void removeBoard(int boardId) {
+        Board board = boards.remove(boardId);
+        if (board != null) {
+            synchronized (board) {
+                discardPendingReply(board);
+                board.generation++;
+            }
+        }
+    }
+
+    public void newGame(int boardId) {
+        Board board = getBoard(boardId);
+        synchronized (board) {
+            discardPendingReply(board);
+            board.position = Position.empty(board.size, board.winLength);
+            board.generation++;
+            schedule(board);
+        }
+    }
+
+    public void onOpponentMove(int boardId, int cell) {
+        Board board = getBoard(boardId);
+        synchronized (board) {
+            Position position = board.position;
+            if (position.isTerminal() || position.getToMove() == board.aiSide
+                    || (position.getEmptyCells() & (1L << cell)) == 0) {
+                throw new IllegalStateException("Board " + boardId + " does not accept a move at " + cell);
+            }
+            board.position = position.play(cell);
+            board.generation++;
+            schedule(board);
+        }
+    }
+
+    // Boards waiting for the AI to move
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    public long getReplyCount() {
+        return replies.get();
+    }
+
+    // Worker time spent answering and pondering; a worker is busy for its whole search
+    public long getReplyNanos() {
+        return replyNanos.get();
+    }
+
+    public long getPonderNanos() {
+        return ponderNanos.get();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        jobs.clear();
+    }
+
+    private Board getBoard(int boardId) {
+        Board board = boards.get(boardId);
+        if (board == null) {
+            throw new IllegalArgumentException("No board " + boardId);
+        }
+        return board;
+    }
+
+    // Caller holds the board lock
+    private void schedule(Board board) {
+        Position position = board.position;
+        if (position.isTerminal()) {
+            return;
+        }
+        boolean reply = position.getToMove() == board.aiSide;
+        if (reply) {
+            waiting.incrementAndGet();
+        }
+        jobs.add(new Job(board, reply, position, board.generation, clock.nanoTime()));
+        pool.execute(this::runNext);
+    }
+
+    // Caller holds the board lock
+    private void discardPendingReply(Board board) {
+        if (!board.position.isTerminal() && board.position.getToMove() == board.aiSide) {
+            waiting.decrementAndGet();
+        }
+    }
+
+    // Each queued job comes with one call, which runs whatever is most urgent by then
+    private void runNext() {
+        Job job = jobs.poll();
+        if (job == null) {
+            return;
+        }
+        Board board = job.board;
+        synchronized (board.searchLock) {
+            synchronized (board) {
+                if (job.generation != board.generation) {
+                    return;
+                }
+            }
+            long start = clock.nanoTime();
+            if (!job.reply) {
+                // A short slice, so a reply that comes up meanwhile waits at most this long
+                board.ai.ponder(job.position, clock, MIN_THINK_NANOS * 2);
+                ponderNanos.addAndGet(clock.nanoTime() - start);
+                return;
+            }
+            int[] move = board.ai.getMove(job.position, clock, thinkNanos());
+            int cell = move[0] * board.size + move[1];
+            Position position = job.position.play(cell);
+            synchronized (board) {
+                if (job.generation != board.generation) {
+                    return;
+                }
+                board.position = position;
+                board.generation++;
+                waiting.decrementAndGet();
+                schedule(board);
+            }
+            long end = clock.nanoTime();
+            replyNanos.addAndGet(end - start);
+            replies.incrementAndGet();
+            listener.onReply(board.id, cell, position, end - job.since);
+        }
+    }
+
+    // The CPU budget of all workers over the target latency, shared by every board in
+    // line; a lone board still leaves time for the UI
+    private long thinkNanos() {
+        long share = threads * targetLatencyNanos / Math.max(1, waiting.get());
+        return Math.max(MIN_THINK_NANOS, Math.min(share, targetLatencyNanos / 2));
+    }
+}
@@ -0,0 +1,247 @@
+package com.tictactoe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Annotates every move of a game on a low-priority background thread, one position
+// per move while the game is still being played. Engine values are cached per
+// canonical position and shared by all games.
+public class GameAnalyzer {
+    public enum Quality {
+        BEST, INACCURACY, BLUNDER
+    }
+
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+
+    // Boards larger than this are valued with the proof-number solver instead of minimax
+    private static final int MAX_MINIMAX_CELLS = 9;
+    private static final long SOLVER_NODE_BUDGET = 1_000_000L;
+    // The cache is dropped when it grows past this, so a long session can't fill the heap
+    static final int MAX_CACHED_VALUES = 1 << 18;
+
+    public interface Listener {
+        void onGameAnalyzed(List<MoveAnnotation> annotations);
+    }
+
+    public static final class MoveAnnotation {
+        private final int moveNumber;
+        private final int player;
+        private final int row;
+        private final int col;
+        private final int valueBefore;
+        private final int valueAfter;
+        private final Quality quality;
+
+        MoveAnnotation(int moveNumber, int player, int row, int col, int valueBefore, int valueAfter) {
+            this.moveNumber = moveNumber;
+            this.player = player;
+            this.row = row;
+            this.col = col;
+            this.valueBefore = valueBefore;
+            this.valueAfter = valueAfter;
+            if (valueAfter >= valueBefore) {
+                quality = Quality.BEST;
+            } else if (valueAfter == LOSS) {
+                quality = Quality.BLUNDER;
+            } else {
+                quality = Quality.INACCURACY;
+            }
+        }
+
+        public int getMoveNumber() {
+            return moveNumber;
+        }
+
+        public int getPlayer() {
+            return player;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        // Engine values (WIN, DRAW or LOSS) for the player who moved
+        public int getValueBefore() {
+            return valueBefore;
+        }
+
+        public int getValueAfter() {
+            return valueAfter;
+        }
+
+        public Quality getQuality() {
+            return quality;
+        }
+    }
+
+    private static final Map<Long, Integer> VALUE_CACHE = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+    private final ProofNumberSolver solver = new ProofNumberSolver(16);
+    // Annotations of the game in progress; replaced, not cleared, when a new game starts
+    private List<MoveAnnotation> currentGame = newGame();
+
+    public GameAnalyzer() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-analyzer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public void startGame() {
+        currentGame = newGame();
+    }
+
+    // Queues analysis of the move just played from before; call once per accepted move
+    public void onMove(Position before, int row, int col) {
+        final List<MoveAnnotation> game = currentGame;
+        final int moveNumber = before.getMoveCount() + 1;
+        executor.execute(() -> {
+            MoveAnnotation annotation = annotate(before, row, col, moveNumber);
+            if (annotation != null) {
+                game.add(annotation);
+            }
+        });
+    }
+
+    // Drops annotations of moves taken back, leaving the first moveCount moves
+    public void undoTo(int moveCount) {
+        final List<MoveAnnotation> game = currentGame;
+        executor.execute(() -> game.removeIf(annotation -> annotation.getMoveNumber() > moveCount));
+    }
+
+    // Delivers the annotations once every queued move has been analysed. Later games
+    // do not disturb this one, so an automatic reset right after the end is safe.
+    public void finishGame(Executor callbackExecutor, Listener listener) {
+        final List<MoveAnnotation> game = currentGame;
+        executor.execute(() -> {
+            final List<MoveAnnotation> annotations = Collections.unmodifiableList(new ArrayList<>(game));
+            callbackExecutor.execute(() -> listener.onGameAnalyzed(annotations));
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private MoveAnnotation annotate(Position before, int row, int col, int moveNumber) {
+        if (before.isTerminal()) {
+            return null;
+        }
+        Position after = before.play(row, col);
+        Integer valueBefore = value(before);
+        Integer valueAfter;
+        if (after.getWinner() != GameLogic.EMPTY) {
+            valueAfter = WIN;
+        } else if (after.isFull()) {
+            valueAfter = DRAW;
+        } else {
+            Integer opponentValue = value(after);
+            valueAfter = opponentValue == null ? null : -opponentValue;
+        }
+        if (valueBefore == null || valueAfter == null) {
+            return null;
+        }
+        return new MoveAnnotation(moveNumber, before.getToMove(), row, col, valueBefore, valueAfter);
+    }
+
+    // Game-theoretic value for the side to move, or null if it could not be proven
+    private Integer value(Position position) {
+        if (position.getGeometry().getCellCount() <= MAX_MINIMAX_CELLS) {
+            return exactValue(position);
+        }
+        if (position.getWinner() != GameLogic.EMPTY) {
+            return position.getWinner() == position.getToMove() ? WIN : LOSS;
+        }
+        if (position.isFull()) {
+            return DRAW;
+        }
+        if (position.getGeometry().getCellCount() > 32) {
+            return solve(position);
+        }
+        long key = canonicalKey(position);
+        Integer cached = VALUE_CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Integer value = solve(position);
+        if (value != null) {
+            cache(key, value);
+        }
+        return value;
+    }
+
+    // Exact value for the side to move on boards of up to 9 cells, by cached minimax
+    static int exactValue(Position position) {
+        if (position.getWinner() != GameLogic.EMPTY) {
+            return position.getWinner() == position.getToMove() ? WIN : LOSS;
+        }
+        if (position.isFull()) {
+            return DRAW;
+        }
+        long key = canonicalKey(position);
+        Integer cached = VALUE_CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int best = LOSS;
+        for (long moves = position.getEmptyCells(); moves != 0 && best < WIN; moves &= moves - 1) {
+            Position next = position.play(Long.numberOfTrailingZeros(moves));
+            best = Math.max(best, next.getWinner() != GameLogic.EMPTY ? WIN : -exactValue(next));
+        }
+        cache(key, best);
+        return best;
+    }
+
+    private Integer solve(Position position) {
+        ProofNumberSolver.Result result = solver.solve(position, SOLVER_NODE_BUDGET);
+        switch (result.getOutcome()) {
+            case WIN:
+                return WIN;
+            case LOSS:
+                return LOSS;
+            case DRAW:
+                return DRAW;
+            default:
+                return null;
+        }
+    }
+
+    static void cache(long key, int value) {
+        if (VALUE_CACHE.size() >= MAX_CACHED_VALUES) {
+            VALUE_CACHE.clear();
+        }
+        VALUE_CACHE.put(key, value);
+    }
+
+    static int getCachedValueCount() {
+        return VALUE_CACHE.size();
+    }
+
+    // Canonical key for boards of up to 32 cells, so at most 5x5: o ends by bit 56, and
+    // the size and win length go in the top bits, as the same stones differ in value by K
+    private static long canonicalKey(Position position) {
+        BoardSymmetry symmetry = BoardSymmetry.of(position.getSize());
+        int t = symmetry.canonicalTransform(position.getX(), position.getO());
+        long key = symmetry.transform(position.getX(), t) | symmetry.transform(position.getO(), t) << 32;
+        return key | (long) position.getSize() << 60 | (long) position.getGeometry().getWinLength() << 57;
+    }
+
+    private static List<MoveAnnotation> newGame() {
+        return Collections.synchronizedList(new ArrayList<MoveAnnotation>());
+    }
+}
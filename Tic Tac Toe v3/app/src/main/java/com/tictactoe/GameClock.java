@@ -0,0 +1,97 @@
+package com.tictactoe;
+
+// Chess-style clock for both sides with an optional Fischer increment. Only one side's
+// clock runs at a time; press() ends that side's turn. Remaining times are computed
+// from the Clock on demand, so reading them never allocates.
+public class GameClock {
+    private final Clock clock;
+    private final long incrementNanos;
+    // Indexed by player; time left at the start of the current turn
+    private final long[] remainingNanos = new long[3];
+    private int running = GameLogic.EMPTY;
+    private long turnStart;
+
+    public GameClock(Clock clock, long initialNanos, long incrementNanos) {
+        if (initialNanos <= 0 || incrementNanos < 0) {
+            throw new IllegalArgumentException("Invalid time control " + initialNanos + " + " + incrementNanos);
+        }
+        this.clock = clock;
+        this.incrementNanos = incrementNanos;
+        remainingNanos[GameLogic.PLAYER_X] = initialNanos;
+        remainingNanos[GameLogic.PLAYER_O] = initialNanos;
+    }
+
+    public void start(int player) {
+        stop();
+        running = player;
+        turnStart = clock.nanoTime();
+    }
+
+    // Ends the running side's turn, adds its increment unless it has flagged, and
+    // starts the opponent's clock
+    public void press() {
+        int player = running;
+        if (player == GameLogic.EMPTY) {
+            return;
+        }
+        stop();
+        if (remainingNanos[player] > 0) {
+            remainingNanos[player] += incrementNanos;
+        }
+        start(player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X);
+    }
+
+    public void stop() {
+        if (running != GameLogic.EMPTY) {
+            remainingNanos[running] -= clock.nanoTime() - turnStart;
+            running = GameLogic.EMPTY;
+        }
+    }
+
+    // Negative once the side has flagged
+    public long getRemainingNanos(int player) {
+        long remaining = remainingNanos[player];
+        if (player == running) {
+            remaining -= clock.nanoTime() - turnStart;
+        }
+        return remaining;
+    }
+
+    public boolean hasFlagged(int player) {
+        return getRemainingNanos(player) <= 0;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public long getIncrementNanos() {
+        return incrementNanos;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    // Writes m:ss.t (tenths rounded down, 0:00.0 once flagged) into out at offset and
+    // returns the number of chars written; at most 8 for times under 1000 minutes
+    public static int format(long nanos, char[] out, int offset) {
+        long tenths = Math.max(0, nanos) / 100_000_000L;
+        long minutes = tenths / 600;
+        int seconds = (int) (tenths / 10 % 60);
+        int position = offset;
+        if (minutes >= 100) {
+            out[position++] = (char) ('0' + minutes / 100 % 10);
+        }
+        if (minutes >= 10) {
+            out[position++] = (char) ('0' + minutes / 10 % 10);
+        }
+        out[position++] = (char) ('0' + minutes % 10);
+        out[position++] = ':';
+        out[position++] = (char) ('0' + seconds / 10);
+        out[position++] = (char) ('0' + seconds % 10);
+        out[position++] = '.';
+        out[position++] = (char) ('0' + tenths % 10);
+        return position - offset;
+    }
+}
@@ -0,0 +1,90 @@
+package com.tictactoe;
+
+import java.util.Arrays;
+
+// How often each complete 3x3 game was played, per StatsStore bucket: one flat int[]
+// of counters indexed by bucket and GameRankCodec rank, so recording a game allocates
+// nothing and touches one counter. The most common game per bucket and outcome is kept
+// up to date as games come in, so asking for it is a lookup.
+// Not thread-safe: give each thread its own table and merge them when done.
+public class GameFrequencyTable {
+    private static final int OUTCOMES = 3;
+
+    private final int bucketCount;
+    private final int[] counts;
+    // By bucket and outcome: most played rank, or -1, and games recorded
+    private final int[] mostCommon;
+    private final long[] totals;
+
+    public GameFrequencyTable() {
+        this(StatsStore.BUCKET_COUNT);
+    }
+
+    public GameFrequencyTable(int bucketCount) {
+        this.bucketCount = bucketCount;
+        counts = new int[bucketCount * GameRankCodec.GAME_COUNT];
+        mostCommon = new int[bucketCount * OUTCOMES];
+        totals = new long[bucketCount * OUTCOMES];
+        Arrays.fill(mostCommon, -1);
+    }
+
+    public void record(int bucket, int rank) {
+        int count = ++counts[bucket * GameRankCodec.GAME_COUNT + rank];
+        int slot = bucket * OUTCOMES + GameRankCodec.getOutcome(rank);
+        totals[slot]++;
+        int best = mostCommon[slot];
+        if (best < 0 || count > counts[bucket * GameRankCodec.GAME_COUNT + best]) {
+            mostCommon[slot] = rank;
+        }
+    }
+
+    // The moves of a complete game; see GameRankCodec.rank()
+    public void record(int bucket, int[] cells, int length) {
+        record(bucket, GameRankCodec.rank(cells, length));
+    }
+
+    // Adds other's counts to these, e.g. from another thread once it is done
+    public void mergeFrom(GameFrequencyTable other) {
+        if (other.bucketCount != bucketCount) {
+            throw new IllegalArgumentException("Tables with " + other.bucketCount + " and " + bucketCount
+                    + " buckets");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += other.totals[i];
+        }
+        Arrays.fill(mostCommon, -1);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            int base = bucket * GameRankCodec.GAME_COUNT;
+            for (int rank = 0; rank < GameRankCodec.GAME_COUNT; rank++) {
+                int count = counts[base + rank];
+                if (count == 0) {
+                    continue;
+                }
+                int slot = bucket * OUTCOMES + GameRankCodec.getOutcome(rank);
+                int best = mostCommon[slot];
+                if (best < 0 || count > counts[base + best]) {
+                    mostCommon[slot] = rank;
+                }
+            }
+        }
+    }
+
+    public int getCount(int bucket, int rank) {
+        return counts[bucket * GameRankCodec.GAME_COUNT + rank];
+    }
+
+    // Games in the bucket won by winner, or drawn for EMPTY
+    public long getTotal(int bucket, int winner) {
+        return totals[bucket * OUTCOMES + winner];
+    }
+
+    // Rank of the most played game in the bucket won by winner, or drawn for EMPTY; -1
+    // if there is none. Against the AI the human plays X, so the most common loss
+    // against HARD is getMostCommon(StatsStore.bucketFor(false, HARD), PLAYER_O).
+    public int getMostCommon(int bucket, int winner) {
+        return mostCommon[bucket * OUTCOMES + winner];
+    }
+}
@@ -5,13 +5,62 @@ public class GameLogic {
     public static final int PLAYER_X = 1;
     public static final int PLAYER_O = 2;
     
+    private static final int CHECKPOINT_INTERVAL = 8;
+    
+    // Called on the thread that changes the game; implementations must not block
+    public interface MoveListener {
+        void onMoveMade(int row, int col, int player);
+        
+        // player made the removed move and is to move again; under wild rules the
+        // stone may have been the other symbol
+        void onMoveUndone(int row, int col, int player);
+        
+        void onBoardReset();
+    }
+    
+    private final int size;
+    private final int winLength;
+    private final Rules rules;
     private int[][] board;
     private int currentPlayer;
     private boolean gameOver;
     private int winner;
+    // Snapshot of the current turn, rebuilt lazily after direct board edits
+    private Position snapshot;
+    private MoveListener moveListener;
+    // Moves played so far (see Rules), followed by undone moves that redo() can replay
+    private final int[] moves;
+    private int moveCount;
+    private int historyLength;
+    // Position after every CHECKPOINT_INTERVAL plies of the history; null above 64 cells
+    private final Position[] checkpoints;
+    // Start of every game, so a reset neither allocates nor looks up the geometry; null
+    // above 64 cells
+    private final Position empty;
     
     public GameLogic() {
-        board = new int[3][3];
+        this(3, 3);
+    }
+    
+    public GameLogic(int size, int winLength) {
+        this(size, winLength, Rules.STANDARD);
+    }
+    
+    // Variants other than STANDARD play through Position, so they need at most 64 cells
+    public GameLogic(int size, int winLength, Rules rules) {
+        if (size < 1 || winLength < 1 || winLength > size
+                || (rules != Rules.STANDARD && size * size > BoardGeometry.MAX_CELLS)) {
+            throw new IllegalArgumentException("Invalid board " + size + "x" + size + " with K=" + winLength
+                    + " for " + rules.getName() + " rules");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.rules = rules;
+        board = new int[size][size];
+        moves = new int[size * size];
+        checkpoints = size * size <= BoardGeometry.MAX_CELLS
+                ? new Position[size * size / CHECKPOINT_INTERVAL + 1] : null;
+        empty = checkpoints != null ? Position.empty(size, winLength) : null;
         currentPlayer = PLAYER_X;
         gameOver = false;
         winner = EMPTY;
@@ -19,68 +68,239 @@ public class GameLogic {
     }
     
     public void resetBoard() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 board[i][j] = EMPTY;
             }
         }
         currentPlayer = PLAYER_X;
         gameOver = false;
         winner = EMPTY;
+        snapshot = null;
+        clearHistory();
+        if (checkpoints != null) {
+            checkpoints[0] = empty;
+        }
+        if (moveListener != null) {
+            moveListener.onBoardReset();
+        }
     }
     
+    // Places the current player's symbol; under gravity it drops within col
     public boolean makeMove(int row, int col) {
+        if (rules != Rules.STANDARD) {
+            return makeMove(row, col, currentPlayer);
+        }
         if (gameOver || board[row][col] != EMPTY) {
             return false;
         }
         
+        int cell = row * size + col;
+        if (moveCount == historyLength || moves[moveCount] != cell) {
+            // A new move discards the redo history
+            historyLength = moveCount + 1;
+        }
+        moves[moveCount++] = cell;
         board[row][col] = currentPlayer;
+        if (snapshot != null) {
+            snapshot = snapshot.play(cell);
+        }
+        if (moveListener != null) {
+            moveListener.onMoveMade(row, col, currentPlayer);
+        }
         
         if (checkWin(row, col)) {
             gameOver = true;
             winner = currentPlayer;
-            return true;
-        }
-        
-        if (checkDraw()) {
+        } else if (checkDraw()) {
             gameOver = true;
             winner = EMPTY;
-            return true;
+        } else {
+            switchPlayer();
+        }
+        if (checkpoints != null && moveCount % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[moveCount / CHECKPOINT_INTERVAL] = snapshot();
         }
-        
-        switchPlayer();
         return true;
     }
     
-    private boolean checkWin(int row, int col) {
-        int player = board[row][col];
-        
-        // Check row
-        if (board[row][0] == player && board[row][1] == player && board[row][2] == player) {
-            return true;
+    // Places symbol, which must be the current player's unless the rules allow either
+    public boolean makeMove(int row, int col, int symbol) {
+        if (gameOver || !inBounds(row, col) || (symbol != PLAYER_X && symbol != PLAYER_O)
+                || (symbol != currentPlayer && !rules.allowsOtherSymbol())) {
+            return false;
         }
-        
-        // Check column
-        if (board[0][col] == player && board[1][col] == player && board[2][col] == player) {
-            return true;
+        if (rules == Rules.STANDARD) {
+            return makeMove(row, col);
         }
-        
-        // Check main diagonal
-        if (row == col && board[0][0] == player && board[1][1] == player && board[2][2] == player) {
-            return true;
+        int cell = rules.resolveCell(snapshot(), row * size + col);
+        if (cell < 0) {
+            return false;
         }
-        
-        // Check anti-diagonal
-        if (row + col == 2 && board[0][2] == player && board[1][1] == player && board[2][0] == player) {
+        playVariant(symbol == currentPlayer ? cell : cell | Rules.OTHER_SYMBOL);
+        return true;
+    }
+    
+    // Variant rules decide the winner, so their snapshot is kept up to date
+    private void playVariant(int move) {
+        int cell = move & Rules.CELL_MASK;
+        if (moveCount == historyLength || moves[moveCount] != move) {
+            historyLength = moveCount + 1;
+        }
+        moves[moveCount++] = move;
+        int symbol = (move & Rules.OTHER_SYMBOL) == 0 ? currentPlayer : opponent(currentPlayer);
+        board[cell / size][cell % size] = symbol;
+        snapshot = rules.play(snapshot(), move);
+        if (moveListener != null) {
+            moveListener.onMoveMade(cell / size, cell % size, symbol);
+        }
+        gameOver = snapshot.isTerminal();
+        winner = snapshot.getWinner();
+        if (!gameOver) {
+            switchPlayer();
+        }
+        if (checkpoints != null && moveCount % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[moveCount / CHECKPOINT_INTERVAL] = snapshot;
+        }
+    }
+    
+    // Cell filled by the last move, or -1 at the start of the history
+    public int getLastCell() {
+        if (moveCount == 0) {
+            return -1;
+        }
+        // Standard boards may have more cells than CELL_MASK covers and never set OTHER_SYMBOL
+        return rules == Rules.STANDARD ? moves[moveCount - 1] : moves[moveCount - 1] & Rules.CELL_MASK;
+    }
+    
+    // Takes back the last move in O(1); false at the start of the history
+    public boolean undo() {
+        if (moveCount == 0) {
+            return false;
+        }
+        int move = moves[--moveCount];
+        // Standard moves are raw cells, which can pass CELL_MASK on large boards
+        int cell = rules == Rules.STANDARD ? move : move & Rules.CELL_MASK;
+        int row = cell / size;
+        int col = cell % size;
+        int player = rules == Rules.STANDARD || (move & Rules.OTHER_SYMBOL) == 0
+                ? board[row][col] : opponent(board[row][col]);
+        board[row][col] = EMPTY;
+        // The game cannot have been over before its last move
+        currentPlayer = player;
+        gameOver = false;
+        winner = EMPTY;
+        if (snapshot != null) {
+            snapshot = snapshot.unplay(cell, player);
+        }
+        if (moveListener != null) {
+            moveListener.onMoveUndone(row, col, player);
+        }
+        return true;
+    }
+    
+    // Replays the next undone move in O(1); false if there is none
+    public boolean redo() {
+        if (moveCount == historyLength) {
+            return false;
+        }
+        int move = moves[moveCount];
+        if (rules != Rules.STANDARD) {
+            playVariant(move);
             return true;
         }
-        
-        return false;
+        return makeMove(move / size, move % size);
+    }
+    
+    // Moves to any ply between 0 and getHistoryLength(). Long jumps restore the nearest
+    // checkpoint, rewriting only the cells that differ, then step the remaining plies.
+    public void jumpTo(int ply) {
+        if (ply < 0 || ply > historyLength) {
+            throw new IllegalArgumentException("Ply " + ply + " outside 0.." + historyLength);
+        }
+        int index = ply / CHECKPOINT_INTERVAL;
+        // Listeners expect one event per step, so they only ever see undo and redo
+        if (moveListener == null && checkpoints != null && checkpoints[index] != null
+                && Math.abs(ply - moveCount) > ply - index * CHECKPOINT_INTERVAL) {
+            restore(checkpoints[index], index * CHECKPOINT_INTERVAL);
+        }
+        while (moveCount > ply) {
+            undo();
+        }
+        while (moveCount < ply) {
+            redo();
+        }
+    }
+    
+    private void restore(Position checkpoint, int ply) {
+        Position current = snapshot();
+        long changed = (current.getX() ^ checkpoint.getX()) | (current.getO() ^ checkpoint.getO());
+        for (; changed != 0; changed &= changed - 1) {
+            int cell = Long.numberOfTrailingZeros(changed);
+            board[cell / size][cell % size] = checkpoint.getCell(cell);
+        }
+        moveCount = ply;
+        gameOver = checkpoint.isTerminal();
+        winner = checkpoint.getWinner();
+        // A finished game keeps the last mover as current player
+        int toMove = checkpoint.getToMove();
+        currentPlayer = gameOver ? (toMove == PLAYER_X ? PLAYER_O : PLAYER_X) : toMove;
+        snapshot = checkpoint;
+    }
+    
+    private void clearHistory() {
+        moveCount = 0;
+        historyLength = 0;
+        if (checkpoints != null) {
+            java.util.Arrays.fill(checkpoints, null);
+        }
+    }
+    
+    // Moves on the board, i.e. the current ply
+    public int getMoveCount() {
+        return moveCount;
+    }
+    
+    // Plies reachable with redo() or jumpTo()
+    public int getHistoryLength() {
+        return historyLength;
+    }
+    
+    public boolean canUndo() {
+        return moveCount > 0;
+    }
+    
+    public boolean canRedo() {
+        return moveCount < historyLength;
+    }
+    
+    private boolean checkWin(int row, int col) {
+        // Row, column, main diagonal and anti-diagonal through the last move
+        return countLine(row, col, 0, 1) >= winLength
+                || countLine(row, col, 1, 0) >= winLength
+                || countLine(row, col, 1, 1) >= winLength
+                || countLine(row, col, 1, -1) >= winLength;
+    }
+    
+    private int countLine(int row, int col, int dRow, int dCol) {
+        int player = board[row][col];
+        int count = 1;
+        for (int r = row + dRow, c = col + dCol; inBounds(r, c) && board[r][c] == player; r += dRow, c += dCol) {
+            count++;
+        }
+        for (int r = row - dRow, c = col - dCol; inBounds(r, c) && board[r][c] == player; r -= dRow, c -= dCol) {
+            count++;
+        }
+        return count;
+    }
+    
+    private boolean inBounds(int row, int col) {
+        return row >= 0 && row < size && col >= 0 && col < size;
     }
     
     private boolean checkDraw() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 if (board[i][j] == EMPTY) {
                     return false;
                 }
@@ -90,7 +310,11 @@ public class GameLogic {
     }
     
     private void switchPlayer() {
-        currentPlayer = (currentPlayer == PLAYER_X) ? PLAYER_O : PLAYER_X;
+        currentPlayer = opponent(currentPlayer);
+    }
+    
+    private static int opponent(int player) {
+        return player == PLAYER_X ? PLAYER_O : PLAYER_X;
     }
     
     public int getCurrentPlayer() {
@@ -105,24 +329,79 @@ public class GameLogic {
         return winner;
     }
     
+    // Copy of the board; use snapshot() to analyse the position off the UI thread
     public int[][] getBoard() {
-        return board;
+        int[][] copy = new int[size][];
+        for (int i = 0; i < size; i++) {
+            copy[i] = board[i].clone();
+        }
+        return copy;
+    }
+    
+    // Immutable snapshot of the current position, shared until the next move
+    public Position snapshot() {
+        if (snapshot == null) {
+            long x = 0;
+            long o = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (board[i][j] == PLAYER_X) {
+                        x |= 1L << (i * size + j);
+                    } else if (board[i][j] == PLAYER_O) {
+                        o |= 1L << (i * size + j);
+                    }
+                }
+            }
+            // A finished game keeps the last mover as current player
+            int toMove = gameOver ? (currentPlayer == PLAYER_X ? PLAYER_O : PLAYER_X) : currentPlayer;
+            snapshot = rules.arrange(getGeometry(), x, o, toMove);
+        }
+        return snapshot;
     }
     
     public int getCell(int row, int col) {
         return board[row][col];
     }
     
+    // Direct edits are not moves: they start a new, empty history
     public void setCell(int row, int col, int player) {
         board[row][col] = player;
+        snapshot = null;
+        clearHistory();
     }
     
     public boolean isValidMove(int row, int col) {
-        return !gameOver && row >= 0 && row < 3 && col >= 0 && col < 3 && board[row][col] == EMPTY;
+        if (rules != Rules.STANDARD) {
+            return !gameOver && inBounds(row, col) && rules.resolveCell(snapshot(), row * size + col) >= 0;
+        }
+        return !gameOver && inBounds(row, col) && board[row][col] == EMPTY;
+    }
+    
+    public void setMoveListener(MoveListener moveListener) {
+        this.moveListener = moveListener;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getWinLength() {
+        return winLength;
+    }
+    
+    public Rules getRules() {
+        return rules;
+    }
+    
+    // Throws IllegalArgumentException above 64 cells, which Position cannot hold
+    public BoardGeometry getGeometry() {
+        return empty != null ? empty.getGeometry() : BoardGeometry.of(size, winLength);
     }
     
     public void setCurrentPlayer(int player) {
         currentPlayer = player;
+        snapshot = null;
+        clearHistory();
     }
 }
 
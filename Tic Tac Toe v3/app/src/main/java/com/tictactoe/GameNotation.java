@@ -0,0 +1,472 @@
+package com.tictactoe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Plain-text notation for game collections, one game per line after a header:
+//
+//   #tictactoe size 3 win 3 rules standard
+//   4 0 8 2 6 ; X
+//   4 ~0 1 ; *
+//
+// Moves are cells (row * size + col), filled in order starting with X; under gravity
+// the cell the stone landed in. "~" marks the other symbol under wild rules. The result
+// is X, O, D for a draw or * for an unfinished game. Other lines starting with # are
+// comments. Both directions stream through a fixed buffer, so file size doesn't matter,
+// and every game is replayed, which must agree with the result: standard games on raw
+// bitboards without allocating, other rules through GameLogic.
+public final class GameNotation {
+    public static final int UNFINISHED = 3;
+
+    private static final String MAGIC = "#tictactoe";
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final byte[] RESULT_CHARS = {'D', 'X', 'O', '*'};
+    private static final Rules[] RULES = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+
+    // Supplies games to export by index; returns the number of moves written to moves
+    public interface GameSource {
+        int getGame(long index, int[] moves);
+    }
+
+    private GameNotation() {
+    }
+
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final GameLogic gameLogic;
+        private final boolean wild;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int count;
+        private long games;
+
+        public Writer(OutputStream out, int size, int winLength, Rules rules) throws IOException {
+            this.out = out;
+            gameLogic = new GameLogic(size, winLength, rules);
+            wild = rules.allowsOtherSymbol();
+            out.write(header(size, winLength, rules));
+        }
+
+        // Moves as GameLogic records them (see Rules); IllegalArgumentException if one is illegal
+        public void write(int[] moves, int length) throws IOException {
+            int result = replay(gameLogic, moves, length);
+            if (count + lineBytes(moves, length, wild) > buffer.length) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+            count = formatLine(buffer, count, moves, length, result, wild);
+            games++;
+        }
+
+        public long getGameCount() {
+            return games;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.write(buffer, 0, count);
+                count = 0;
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    // Parses in place in a byte buffer refilled from the stream; lines are never turned
+    // into Strings or split, and moves go into the caller's array. Errors name the line.
+    public static final class Reader implements Closeable {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int position;
+        private int limit;
+        private boolean endOfStream;
+        private long line;
+        private final int size;
+        private final int winLength;
+        private final Rules rules;
+        private final GameLogic gameLogic;
+        private int result;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = in;
+            int end = nextLine();
+            if (end < 0) {
+                throw new IOException("Empty game file");
+            }
+            String[] fields = new String(buffer, position, end - position, "US-ASCII").trim().split("\\s+");
+            skipLine(end);
+            if (fields.length != 7 || !fields[0].equals(MAGIC) || !fields[1].equals("size")
+                    || !fields[3].equals("win") || !fields[5].equals("rules")) {
+                throw new IOException("Not a game file: bad header");
+            }
+            Rules found = null;
+            for (Rules candidate : RULES) {
+                if (candidate.getName().equals(fields[6])) {
+                    found = candidate;
+                }
+            }
+            if (found == null) {
+                throw new IOException("Unknown rules " + fields[6]);
+            }
+            try {
+                size = Integer.parseInt(fields[2]);
+                winLength = Integer.parseInt(fields[4]);
+                gameLogic = new GameLogic(size, winLength, found);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad header: " + e.getMessage(), e);
+            }
+            rules = found;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getWinLength() {
+            return winLength;
+        }
+
+        public Rules getRules() {
+            return rules;
+        }
+
+        // Reads the next game into moves, which needs room for size * size, and returns
+        // its length, or -1 at the end of the stream
+        public int next(int[] moves) throws IOException {
+            while (true) {
+                int end = nextLine();
+                if (end < 0) {
+                    return -1;
+                }
+                int length = parseLine(end, moves);
+                skipLine(end);
+                if (length >= 0) {
+                    return length;
+                }
+            }
+        }
+
+        // Result of the game last read: winner, EMPTY for a draw, or UNFINISHED
+        public int getResult() {
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        // Index of the end of the line at position, refilling as needed; limit if the
+        // stream ends without a newline, -1 once there is nothing left
+        private int nextLine() throws IOException {
+            int scanned = position;
+            while (true) {
+                for (int i = scanned; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        line++;
+                        return i;
+                    }
+                }
+                if (endOfStream) {
+                    if (position == limit) {
+                        return -1;
+                    }
+                    line++;
+                    return limit;
+                }
+                scanned = limit - position;
+                if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0, limit - position);
+                    limit -= position;
+                    position = 0;
+                } else if (limit == buffer.length) {
+                    throw new IOException("Line " + (line + 1) + " is too long");
+                }
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    endOfStream = true;
+                } else {
+                    limit += read;
+                }
+            }
+        }
+
+        private void skipLine(int end) {
+            position = end < limit ? end + 1 : limit;
+        }
+
+        // Moves of the game on the line ending at end, or -1 for a blank or comment line
+        private int parseLine(int end, int[] moves) throws IOException {
+            int i = skipSpace(position, end);
+            if (i == end || buffer[i] == '#') {
+                return -1;
+            }
+            int length = 0;
+            while (buffer[i] != ';') {
+                boolean other = buffer[i] == '~';
+                if (other) {
+                    if (!rules.allowsOtherSymbol()) {
+                        throw error("~ needs rules that allow either symbol");
+                    }
+                    i++;
+                }
+                int cell = 0;
+                int digits = 0;
+                for (; i < end && buffer[i] >= '0' && buffer[i] <= '9' && digits < 9; i++, digits++) {
+                    cell = cell * 10 + buffer[i] - '0';
+                }
+                if (digits == 0 || (i < end && buffer[i] != ' ' && buffer[i] != '\t' && buffer[i] != ';')) {
+                    throw error("bad move");
+                }
+                if (length == moves.length || cell >= size * size) {
+                    throw error("move " + cell + " off the board");
+                }
+                moves[length++] = other ? cell | Rules.OTHER_SYMBOL : cell;
+                i = skipSpace(i, end);
+                if (i == end) {
+                    throw error("missing result");
+                }
+            }
+            i = skipSpace(i + 1, end);
+            int expected = -1;
+            for (int r = 0; r < RESULT_CHARS.length && i < end; r++) {
+                if (buffer[i] == RESULT_CHARS[r]) {
+                    expected = r;
+                }
+            }
+            if (expected < 0 || skipSpace(i + 1, end) != end) {
+                throw error("bad result");
+            }
+            try {
+                result = replay(gameLogic, moves, length);
+            } catch (IllegalArgumentException e) {
+                throw error(e.getMessage());
+            }
+            if (result != expected) {
+                throw error("result " + (char) RESULT_CHARS[expected] + " but the moves give "
+                        + (char) RESULT_CHARS[result]);
+            }
+            return length;
+        }
+
+        private int skipSpace(int i, int end) {
+            while (i < end && (buffer[i] == ' ' || buffer[i] == '\t' || buffer[i] == '\r')) {
+                i++;
+            }
+            return i;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Line " + line + ": " + message);
+        }
+    }
+
+    // Writes games 0 until count from source with one thread per partition of the
+    // games. A first pass adds up each partition's bytes, which fixes where it starts
+    // in the file; then every thread writes its lines there through the shared channel.
+    // Returns the file size.
+    public static long exportParallel(File file, int size, int winLength, Rules rules, long count,
+                                      GameSource source, int threads) throws IOException {
+        byte[] header = header(size, winLength, rules);
+        boolean wild = rules.allowsOtherSymbol();
+        long[] starts = new long[threads + 1];
+        starts[0] = header.length;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            List<Future<Long>> sizes = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final long from = count * t / threads;
+                final long to = count * (t + 1) / threads;
+                sizes.add(executor.submit(() -> {
+                    int[] moves = new int[size * size];
+                    long bytes = 0;
+                    for (long index = from; index < to; index++) {
+                        bytes += lineBytes(moves, source.getGame(index, moves), wild);
+                    }
+                    return bytes;
+                }));
+            }
+            for (int t = 0; t < threads; t++) {
+                starts[t + 1] = starts[t] + await(sizes.get(t));
+            }
+            raf.setLength(starts[threads]);
+            channel.write(ByteBuffer.wrap(header), 0);
+
+            List<Future<Long>> writes = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final long from = count * t / threads;
+                final long to = count * (t + 1) / threads;
+                final long start = starts[t];
+                writes.add(executor.submit(() -> {
+                    GameLogic gameLogic = new GameLogic(size, winLength, rules);
+                    int[] moves = new int[size * size];
+                    byte[] buffer = new byte[BUFFER_BYTES];
+                    ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+                    long offset = start;
+                    int used = 0;
+                    for (long index = from; index < to; index++) {
+                        int length = source.getGame(index, moves);
+                        int result = replay(gameLogic, moves, length);
+                        if (used + lineBytes(moves, length, wild) > buffer.length) {
+                            offset += writeFully(channel, wrapped, used, offset);
+                            used = 0;
+                        }
+                        used = formatLine(buffer, used, moves, length, result, wild);
+                    }
+                    return offset + writeFully(channel, wrapped, used, offset);
+                }));
+            }
+            for (int t = 0; t < threads; t++) {
+                if (await(writes.get(t)) != starts[t + 1]) {
+                    throw new IOException("Partition " + t + " changed size between passes");
+                }
+            }
+            return starts[threads];
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, int length, long offset)
+            throws IOException {
+        buffer.clear().limit(length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return length;
+    }
+
+    private static long await(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static byte[] header(int size, int winLength, Rules rules) throws IOException {
+        return (MAGIC + " size " + size + " win " + winLength + " rules " + rules.getName() + "\n")
+                .getBytes("US-ASCII");
+    }
+
+    // Plays moves from the start and returns the result; IllegalArgumentException for an
+    // illegal move
+    private static int replay(GameLogic gameLogic, int[] moves, int length) {
+        int size = gameLogic.getSize();
+        if (gameLogic.getRules() == Rules.STANDARD && size * size <= BoardGeometry.MAX_CELLS) {
+            return replayStandard(gameLogic.getGeometry(), moves, length);
+        }
+        gameLogic.resetBoard();
+        boolean wild = gameLogic.getRules().allowsOtherSymbol();
+        for (int i = 0; i < length; i++) {
+            int move = moves[i];
+            int cell = wild ? move & ~Rules.OTHER_SYMBOL : move;
+            int player = gameLogic.getCurrentPlayer();
+            int symbol = !wild || (move & Rules.OTHER_SYMBOL) == 0 ? player
+                    : player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+            if (cell < 0 || cell >= size * size || !gameLogic.makeMove(cell / size, cell % size, symbol)
+                    || gameLogic.getLastCell() != cell) {
+                throw new IllegalArgumentException("illegal move " + (symbol != player ? "~" : "") + cell
+                        + " at ply " + (i + 1));
+            }
+        }
+        return gameLogic.isGameOver() ? gameLogic.getWinner() : UNFINISHED;
+    }
+
+    // The same checks as GameLogic, on the mover's and the other side's stones
+    private static int replayStandard(BoardGeometry geometry, int[] moves, int length) {
+        long full = geometry.getFullMask();
+        long mover = 0;
+        long other = 0;
+        int player = GameLogic.PLAYER_X;
+        int result = UNFINISHED;
+        for (int i = 0; i < length; i++) {
+            int cell = moves[i];
+            if (result != UNFINISHED || cell < 0 || cell >= geometry.getCellCount()
+                    || ((mover | other) & 1L << cell) != 0) {
+                throw new IllegalArgumentException("illegal move " + cell + " at ply " + (i + 1));
+            }
+            mover |= 1L << cell;
+            if (geometry.completesLine(mover, cell)) {
+                result = player;
+            } else if ((mover | other) == full) {
+                result = GameLogic.EMPTY;
+            }
+            long stones = mover;
+            mover = other;
+            other = stones;
+            player = player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        }
+        return result;
+    }
+
+    // Bytes of a line: each move and a space, then "; R\n"
+    private static int lineBytes(int[] moves, int length, boolean wild) {
+        int bytes = 4;
+        for (int i = 0; i < length; i++) {
+            int move = moves[i];
+            if (wild && (move & Rules.OTHER_SYMBOL) != 0) {
+                move &= ~Rules.OTHER_SYMBOL;
+                bytes++;
+            }
+            bytes += digits(move) + 1;
+        }
+        return bytes;
+    }
+
+    private static int formatLine(byte[] buffer, int at, int[] moves, int length, int result, boolean wild) {
+        for (int i = 0; i < length; i++) {
+            int move = moves[i];
+            if (wild && (move & Rules.OTHER_SYMBOL) != 0) {
+                move &= ~Rules.OTHER_SYMBOL;
+                buffer[at++] = '~';
+            }
+            at += digits(move);
+            for (int j = at - 1; ; j--) {
+                buffer[j] = (byte) ('0' + move % 10);
+                move /= 10;
+                if (move == 0) {
+                    break;
+                }
+            }
+            buffer[at++] = ' ';
+        }
+        buffer[at++] = ';';
+        buffer[at++] = ' ';
+        buffer[at++] = RESULT_CHARS[result];
+        buffer[at++] = '\n';
+        return at;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,155 @@
+package com.tictactoe;
+
+import java.util.Arrays;
+
+// Dense numbering of the 255,168 complete 3x3 games: a game's rank is its index among
+// all of them in move-by-move cell order, so ranks fill 0 until GAME_COUNT with no
+// gaps. Encoding adds one table entry per move; decoding picks each move from at most
+// nine. The tables are built once by a walk over every game: for each reachable
+// position and cell, how many games from there start with a smaller cell. Positions
+// are keyed by their base-3 code.
+public final class GameRankCodec {
+    public static final int GAME_COUNT = 255_168;
+    public static final int CELLS = 9;
+
+    private static final int CODES = 19_683;
+    private static final int[] POW3 = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+    private static final int[] LINES = {0x007, 0x038, 0x1C0, 0x049, 0x092, 0x124, 0x111, 0x054};
+
+    // By position code: -1 unless in play, else an index into offsets
+    private static final int[] INDEX = new int[CODES];
+    // By position code: winner, or EMPTY for a draw, once the game is over
+    private static final byte[] RESULT = new byte[CODES];
+    private static final byte IN_PLAY = -1;
+    private static final byte UNVISITED = -2;
+    // By position index and cell: games from that position starting with a smaller cell
+    private static final int[] OFFSETS;
+    // By rank
+    private static final byte[] OUTCOMES = new byte[GAME_COUNT];
+
+    static {
+        Arrays.fill(INDEX, -1);
+        Arrays.fill(RESULT, UNVISITED);
+        int[] offsets = new int[CODES * CELLS];
+        int[] totals = new int[CODES];
+        int[] positionCount = new int[1];
+        count(0, 0, 0, offsets, totals, positionCount);
+        OFFSETS = Arrays.copyOf(offsets, positionCount[0] * CELLS);
+        int games = outcomes(0, 0, 0, 0);
+        if (games != GAME_COUNT) {
+            throw new IllegalStateException("Counted " + games + " games");
+        }
+    }
+
+    private GameRankCodec() {
+    }
+
+    // Rank of the complete game in cells[0] until length; IllegalArgumentException if
+    // the moves are illegal or the game is not over
+    public static int rank(int[] cells, int length) {
+        int code = 0;
+        int occupied = 0;
+        int rank = 0;
+        for (int i = 0; i < length; i++) {
+            int cell = cells[i];
+            if (RESULT[code] != IN_PLAY || cell < 0 || cell >= CELLS || (occupied & (1 << cell)) != 0) {
+                throw new IllegalArgumentException("Illegal move " + cell + " at ply " + i);
+            }
+            rank += OFFSETS[INDEX[code] * CELLS + cell];
+            code += ((i & 1) == 0 ? GameLogic.PLAYER_X : GameLogic.PLAYER_O) * POW3[cell];
+            occupied |= 1 << cell;
+        }
+        if (RESULT[code] == IN_PLAY) {
+            throw new IllegalArgumentException("Game not over after " + length + " moves");
+        }
+        return rank;
+    }
+
+    // Writes the moves of the game with this rank into cells, which needs room for
+    // CELLS, and returns how many there are
+    public static int unrank(int rank, int[] cells) {
+        if (rank < 0 || rank >= GAME_COUNT) {
+            throw new IllegalArgumentException("No game " + rank);
+        }
+        int code = 0;
+        int occupied = 0;
+        int length = 0;
+        while (RESULT[code] == IN_PLAY) {
+            int base = INDEX[code] * CELLS;
+            // The last empty cell whose games start at or before rank
+            int chosen = -1;
+            for (int cell = 0; cell < CELLS; cell++) {
+                if ((occupied & (1 << cell)) == 0 && OFFSETS[base + cell] <= rank) {
+                    chosen = cell;
+                }
+            }
+            rank -= OFFSETS[base + chosen];
+            cells[length] = chosen;
+            code += ((length & 1) == 0 ? GameLogic.PLAYER_X : GameLogic.PLAYER_O) * POW3[chosen];
+            occupied |= 1 << chosen;
+            length++;
+        }
+        return length;
+    }
+
+    // Winner of the game with this rank, or EMPTY for a draw
+    public static int getOutcome(int rank) {
+        return OUTCOMES[rank];
+    }
+
+    // Games from this position, filling in its row of offsets on the first visit; the
+    // ply follows from the stones on the board
+    private static int count(int code, int x, int o, int[] offsets, int[] totals, int[] positionCount) {
+        if (RESULT[code] == UNVISITED) {
+            RESULT[code] = (byte) result(x, o);
+            if (RESULT[code] == IN_PLAY) {
+                int index = positionCount[0]++;
+                INDEX[code] = index;
+                boolean xToMove = Integer.bitCount(x) == Integer.bitCount(o);
+                int games = 0;
+                for (int cell = 0; cell < CELLS; cell++) {
+                    offsets[index * CELLS + cell] = games;
+                    if (((x | o) & (1 << cell)) == 0) {
+                        games += xToMove
+                                ? count(code + GameLogic.PLAYER_X * POW3[cell], x | 1 << cell, o,
+                                        offsets, totals, positionCount)
+                                : count(code + GameLogic.PLAYER_O * POW3[cell], x, o | 1 << cell,
+                                        offsets, totals, positionCount);
+                    }
+                }
+                totals[index] = games;
+            }
+        }
+        return RESULT[code] == IN_PLAY ? totals[INDEX[code]] : 1;
+    }
+
+    // Records the outcome of every game from this position in rank order, starting at
+    // rank; returns the rank after the last one
+    private static int outcomes(int code, int x, int o, int rank) {
+        if (RESULT[code] != IN_PLAY) {
+            OUTCOMES[rank] = RESULT[code];
+            return rank + 1;
+        }
+        boolean xToMove = Integer.bitCount(x) == Integer.bitCount(o);
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (((x | o) & (1 << cell)) == 0) {
+                rank = xToMove
+                        ? outcomes(code + GameLogic.PLAYER_X * POW3[cell], x | 1 << cell, o, rank)
+                        : outcomes(code + GameLogic.PLAYER_O * POW3[cell], x, o | 1 << cell, rank);
+            }
+        }
+        return rank;
+    }
+
+    private static int result(int x, int o) {
+        for (int line : LINES) {
+            if ((x & line) == line) {
+                return GameLogic.PLAYER_X;
+            }
+            if ((o & line) == line) {
+                return GameLogic.PLAYER_O;
+            }
+        }
+        return Integer.bitCount(x | o) == CELLS ? GameLogic.EMPTY : IN_PLAY;
+    }
+}
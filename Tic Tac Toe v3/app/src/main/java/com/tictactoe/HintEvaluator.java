@@ -0,0 +1,275 @@
+package com.tictactoe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-cell hint values for the player to move, computed on a background thread.
+// The worker keeps its own copy of the board and, after each move, re-scores only the
+// cells that share a K-in-a-row window with it. 3x3 boards use exact engine values.
+public class HintEvaluator {
+    public interface Listener {
+        // heat[row * size + col] in [0, 1] for empty cells, -1 for occupied cells
+        void onHintsUpdated(float[] heat);
+    }
+
+    private static final int EXACT_MAX_CELLS = 9;
+    private static final int CACHE_CAPACITY = 512;
+    private static final float DEFENCE_WEIGHT = 0.8f;
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private final Listener listener;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Worker-thread state
+    private int size;
+    private int winLength;
+    private int[] cells;
+    private int toMove;
+    private int[][] windows;
+    private int[][] windowsThroughCell;
+    private int[] windowCountX;
+    private int[] windowCountO;
+    private float[] attackX;
+    private float[] attackO;
+    private float[] windowWeights;
+    private long[][] zobrist;
+    private long hash;
+    private final Map<Long, float[]> cache = new LinkedHashMap<Long, float[]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, float[]> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    public HintEvaluator(Executor callbackExecutor, Listener listener) {
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hint-evaluator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts from an arbitrary board; the only call that copies the whole board
+    public void setBoard(int[][] board, int winLength, int toMove) {
+        final int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++) {
+            copy[i] = board[i].clone();
+        }
+        final int stamp = generation.incrementAndGet();
+        executor.execute(() -> {
+            load(copy, winLength, toMove);
+            publish(stamp);
+        });
+    }
+
+    // O(1) on the calling thread; the worker skips the work if a newer move arrives first
+    public void onMove(int row, int col, int player) {
+        final int stamp = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (cells == null) {
+                return;
+            }
+            place(row * size + col, player);
+            publish(stamp);
+        });
+    }
+
+    // Drops any pending result without changing the worker's board
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void load(int[][] board, int winLength, int toMove) {
+        int newSize = board.length;
+        if (cells == null || newSize != size || winLength != this.winLength) {
+            prepareGeometry(newSize, winLength);
+        }
+        java.util.Arrays.fill(cells, GameLogic.EMPTY);
+        java.util.Arrays.fill(windowCountX, 0);
+        java.util.Arrays.fill(windowCountO, 0);
+        hash = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            rescore(cell);
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (board[row][col] != GameLogic.EMPTY) {
+                    place(row * size + col, board[row][col]);
+                }
+            }
+        }
+        this.toMove = toMove;
+    }
+
+    private void prepareGeometry(int size, int winLength) {
+        this.size = size;
+        this.winLength = winLength;
+        int count = size * size;
+        cells = new int[count];
+        attackX = new float[count];
+        attackO = new float[count];
+
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int[][] found = new int[4 * count][];
+        int windowCount = 0;
+        int[] perCell = new int[count];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                for (int[] d : directions) {
+                    int endRow = row + d[0] * (winLength - 1);
+                    int endCol = col + d[1] * (winLength - 1);
+                    if (endRow < 0 || endRow >= size || endCol < 0 || endCol >= size) {
+                        continue;
+                    }
+                    int[] window = new int[winLength];
+                    for (int i = 0; i < winLength; i++) {
+                        window[i] = (row + d[0] * i) * size + col + d[1] * i;
+                        perCell[window[i]]++;
+                    }
+                    found[windowCount++] = window;
+                }
+            }
+        }
+        windows = java.util.Arrays.copyOf(found, windowCount);
+        windowsThroughCell = new int[count][];
+        for (int cell = 0; cell < count; cell++) {
+            windowsThroughCell[cell] = new int[perCell[cell]];
+            perCell[cell] = 0;
+        }
+        for (int w = 0; w < windowCount; w++) {
+            for (int cell : windows[w]) {
+                windowsThroughCell[cell][perCell[cell]++] = w;
+            }
+        }
+        windowCountX = new int[windowCount];
+        windowCountO = new int[windowCount];
+
+        // A window one stone short of K dwarfs everything else
+        windowWeights = new float[winLength + 1];
+        for (int i = 0; i <= winLength; i++) {
+            windowWeights[i] = (float) Math.pow(4, i);
+        }
+        windowWeights[winLength - 1] *= 64;
+
+        Random random = new Random(size * 31L + winLength);
+        zobrist = new long[3][count];
+        for (int player = 1; player <= 2; player++) {
+            for (int cell = 0; cell < count; cell++) {
+                zobrist[player][cell] = random.nextLong();
+            }
+        }
+        cache.clear();
+    }
+
+    private void place(int cell, int player) {
+        cells[cell] = player;
+        hash ^= zobrist[player][cell];
+        toMove = player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        int[] counts = player == GameLogic.PLAYER_X ? windowCountX : windowCountO;
+        for (int w : windowsThroughCell[cell]) {
+            counts[w]++;
+        }
+        // Only cells sharing a window with the move can change score
+        for (int w : windowsThroughCell[cell]) {
+            for (int affected : windows[w]) {
+                rescore(affected);
+            }
+        }
+    }
+
+    private void rescore(int cell) {
+        float x = 0;
+        float o = 0;
+        if (cells[cell] == GameLogic.EMPTY) {
+            for (int w : windowsThroughCell[cell]) {
+                if (windowCountO[w] == 0) {
+                    x += windowWeights[windowCountX[w]];
+                }
+                if (windowCountX[w] == 0) {
+                    o += windowWeights[windowCountO[w]];
+                }
+            }
+        }
+        attackX[cell] = x;
+        attackO[cell] = o;
+    }
+
+    private void publish(int stamp) {
+        if (stamp != generation.get()) {
+            return;
+        }
+        long key = hash ^ toMove;
+        float[] heat = cache.get(key);
+        if (heat == null) {
+            heat = cells.length <= EXACT_MAX_CELLS && winLength == size ? exactHeat() : heuristicHeat();
+            cache.put(key, heat);
+        }
+        if (stamp != generation.get()) {
+            return;
+        }
+        final float[] result = heat;
+        callbackExecutor.execute(() -> {
+            if (stamp == generation.get()) {
+                listener.onHintsUpdated(result);
+            }
+        });
+    }
+
+    private float[] heuristicHeat() {
+        float[] mine = toMove == GameLogic.PLAYER_X ? attackX : attackO;
+        float[] theirs = toMove == GameLogic.PLAYER_X ? attackO : attackX;
+        float[] heat = new float[cells.length];
+        float max = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != GameLogic.EMPTY) {
+                heat[cell] = -1;
+                continue;
+            }
+            heat[cell] = mine[cell] + DEFENCE_WEIGHT * theirs[cell];
+            max = Math.max(max, heat[cell]);
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (heat[cell] > 0) {
+                heat[cell] /= max;
+            }
+        }
+        return heat;
+    }
+
+    // 1 for a winning move, 0.5 for a drawing move, 0 for a losing move
+    private float[] exactHeat() {
+        long x = 0;
+        long o = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == GameLogic.PLAYER_X) {
+                x |= 1L << cell;
+            } else if (cells[cell] == GameLogic.PLAYER_O) {
+                o |= 1L << cell;
+            }
+        }
+        Position position = Position.of(BoardGeometry.of(size, winLength), x, o, toMove);
+        float[] heat = new float[cells.length];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != GameLogic.EMPTY || position.isTerminal()) {
+                heat[cell] = -1;
+                continue;
+            }
+            Position next = position.play(cell);
+            int value = next.getWinner() != GameLogic.EMPTY ? GameAnalyzer.WIN : -GameAnalyzer.exactValue(next);
+            heat[cell] = (value + 1) / 2f;
+        }
+        return heat;
+    }
+}
@@ -0,0 +1,182 @@
+package com.tictactoe;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+// Pannable view of a SparseBoard: drag to move around, tap to play. Each frame only
+// looks up the cells on screen, so drawing costs the same however many stones the
+// board holds. Screen y grows downwards, as board y does.
+public class InfiniteBoardView extends View {
+    public interface OnCellTapListener {
+        void onCellTap(int x, int y);
+    }
+
+    private static final float CELL_DP = 40;
+    private static final float LINE_DP = 1;
+    private static final float STONE_DP = 3;
+
+    private final float cellSize;
+    private final Paint gridPaint = new Paint();
+    private final Paint xPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint oPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint lastMovePaint = new Paint();
+    private final GestureDetector gestures;
+    private SparseBoard board;
+    private OnCellTapListener listener;
+    // Screen position of the top-left corner of cell (0, 0)
+    private float originX;
+    private float originY;
+    private boolean centered;
+
+    public InfiniteBoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        cellSize = CELL_DP * density;
+        gridPaint.setColor(ContextCompat.getColor(context, R.color.grid_line));
+        gridPaint.setStrokeWidth(LINE_DP * density);
+        xPaint.setColor(ContextCompat.getColor(context, R.color.x_color));
+        xPaint.setStrokeWidth(STONE_DP * density);
+        xPaint.setStrokeCap(Paint.Cap.ROUND);
+        oPaint.setColor(ContextCompat.getColor(context, R.color.o_color));
+        oPaint.setStrokeWidth(STONE_DP * density);
+        oPaint.setStyle(Paint.Style.STROKE);
+        lastMovePaint.setColor(ContextCompat.getColor(context, R.color.cell_pressed));
+        gestures = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                originX -= distanceX;
+                originY -= distanceY;
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                if (listener != null && isEnabled()) {
+                    listener.onCellTap((int) Math.floor((e.getX() - originX) / cellSize),
+                            (int) Math.floor((e.getY() - originY) / cellSize));
+                }
+                return true;
+            }
+        });
+    }
+
+    public void setBoard(SparseBoard board) {
+        this.board = board;
+        invalidate();
+    }
+
+    public void setOnCellTapListener(OnCellTapListener listener) {
+        this.listener = listener;
+    }
+
+    // Puts cell (x, y) in the middle of the view
+    public void centerOn(int x, int y) {
+        if (getWidth() == 0) {
+            centered = false;
+            return;
+        }
+        originX = getWidth() / 2f - (x + 0.5f) * cellSize;
+        originY = getHeight() / 2f - (y + 0.5f) * cellSize;
+        centered = true;
+        invalidate();
+    }
+
+    // Pans just enough to bring cell (x, y) on screen, e.g. after the AI played off it
+    public void showCell(int x, int y) {
+        float left = originX + x * cellSize;
+        float top = originY + y * cellSize;
+        if (left < 0) {
+            originX -= left;
+        } else if (left + cellSize > getWidth()) {
+            originX -= left + cellSize - getWidth();
+        }
+        if (top < 0) {
+            originY -= top;
+        } else if (top + cellSize > getHeight()) {
+            originY -= top + cellSize - getHeight();
+        }
+        invalidate();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestures.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        if (!centered) {
+            centerOn(0, 0);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        int firstX = (int) Math.floor(-originX / cellSize);
+        int firstY = (int) Math.floor(-originY / cellSize);
+        int lastX = (int) Math.floor((width - originX) / cellSize);
+        int lastY = (int) Math.floor((height - originY) / cellSize);
+
+        if (board != null && board.getMoveCount() > 0) {
+            long last = board.getMove(board.getMoveCount() - 1);
+            float left = originX + SparseBoard.keyX(last) * cellSize;
+            float top = originY + SparseBoard.keyY(last) * cellSize;
+            canvas.drawRect(left, top, left + cellSize, top + cellSize, lastMovePaint);
+        }
+        for (int x = firstX; x <= lastX + 1; x++) {
+            float lineX = originX + x * cellSize;
+            canvas.drawLine(lineX, 0, lineX, height, gridPaint);
+        }
+        for (int y = firstY; y <= lastY + 1; y++) {
+            float lineY = originY + y * cellSize;
+            canvas.drawLine(0, lineY, width, lineY, gridPaint);
+        }
+        if (board == null) {
+            return;
+        }
+
+        float inset = cellSize * 0.25f;
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                int stone = board.getStone(x, y);
+                if (stone == GameLogic.EMPTY) {
+                    continue;
+                }
+                float left = originX + x * cellSize;
+                float top = originY + y * cellSize;
+                if (stone == GameLogic.PLAYER_X) {
+                    canvas.drawLine(left + inset, top + inset, left + cellSize - inset, top + cellSize - inset, xPaint);
+                    canvas.drawLine(left + cellSize - inset, top + inset, left + inset, top + cellSize - inset, xPaint);
+                } else {
+                    canvas.drawCircle(left + cellSize / 2, top + cellSize / 2, cellSize / 2 - inset, oPaint);
+                }
+            }
+        }
+        if (board.isGameOver()) {
+            Paint winPaint = board.getWinner() == GameLogic.PLAYER_X ? xPaint : oPaint;
+            long from = board.getWinFrom();
+            long to = board.getWinTo();
+            canvas.drawLine(originX + (SparseBoard.keyX(from) + 0.5f) * cellSize,
+                    originY + (SparseBoard.keyY(from) + 0.5f) * cellSize,
+                    originX + (SparseBoard.keyX(to) + 0.5f) * cellSize,
+                    originY + (SparseBoard.keyY(to) + 0.5f) * cellSize, winPaint);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.tictactoe;
+
+import java.util.Arrays;
+
+// Hash map from long keys to int values without boxing: open addressing with linear
+// probing over power-of-two arrays, at most half full. Removal shifts the following
+// entries back instead of leaving tombstones, so probes stay short however many keys
+// come and go. A value of 0 means absent, and storing 0 removes the key.
+// Entries can be walked by slot: 0 until getCapacity(), skipping slots whose value is 0.
+public class LongIntMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int get(long key) {
+        for (int slot = slotFor(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == 0 || keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    public void put(long key, int value) {
+        int slot = slotFor(key);
+        while (values[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] != 0) {
+            if (value == 0) {
+                removeAt(slot);
+            } else {
+                values[slot] = value;
+            }
+        } else if (value != 0) {
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+    }
+
+    // Adds delta to the value for key and returns the new value
+    public int add(long key, int delta) {
+        int value = get(key) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public void remove(long key) {
+        put(key, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Keeps the arrays, so a map that is cleared and refilled doesn't allocate again
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int slotFor(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Backward-shift deletion: moves up every later entry in the run that may sit in the hole
+    private void removeAt(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+            int home = slotFor(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = 0;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slotFor(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
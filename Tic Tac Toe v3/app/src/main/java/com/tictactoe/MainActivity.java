@@ -1,8 +1,14 @@
 package com.tictactoe;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.res.ColorStateList;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -10,11 +16,25 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.pm.PackageInfoCompat;
+import androidx.core.graphics.ColorUtils;
 
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.materialswitch.MaterialSwitch;
+
+import java.io.File;
+import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+    private static final long CLOCK_INITIAL_NANOS = 180_000_000_000L;
+    private static final long CLOCK_INCREMENT_NANOS = 2_000_000_000L;
+    private static final String CALIBRATION_PREFS = "calibration";
+    private static final String KEY_NODES_PER_SECOND = "nodes_per_second";
+    private static final String KEY_VERSION_CODE = "version_code";
+    private static final int INFINITE_WIN_LENGTH = 5;
+
     private final int[] cellIds = {
             R.id.cell00, R.id.cell01, R.id.cell02,
             R.id.cell10, R.id.cell11, R.id.cell12,
@@ -26,14 +46,48 @@ public class MainActivity extends AppCompatActivity {
     private MaterialButton[][] cells;
     private View welcomeContainer;
     private View boardCard;
+    private View gameBoard;
+    private InfiniteBoardView infiniteBoardView;
     private TextView turnIndicator;
     private MaterialButton selectModeButton;
     private MaterialButton resetButton;
+    private MaterialButton undoButton;
     private MaterialButton changeModeButton;
+    private MaterialButton rulesButton;
+    private MaterialSwitch ponderSwitch;
+    private MaterialSwitch hintSwitch;
+    private MaterialSwitch clockSwitch;
+    private TextView clockText;
+    private TextView statsText;
+    private TextView analysisText;
 
     private boolean isTwoPlayerMode = true;
     private AIPlayer.Difficulty currentDifficulty = AIPlayer.Difficulty.MEDIUM;
+    private Rules currentRules = Rules.STANDARD;
+    // The unbounded board replaces the 3x3 one, with its own board and AI
+    private boolean isInfiniteBoard = false;
+    private final SparseBoard sparseBoard = new SparseBoard(INFINITE_WIN_LENGTH);
+    private SparseAIPlayer sparseAI;
+    private boolean isPonderingEnabled = false;
+    private boolean isHintsEnabled = false;
+    private final Ponderer ponderer = new Ponderer();
+    private final GameAnalyzer gameAnalyzer = new GameAnalyzer();
+    private HintEvaluator hintEvaluator;
+    private final StatsStore statsStore = new StatsStore(() -> new File(getFilesDir(), "stats.bin"));
+    private long aiThinkNanos;
+    private int aiMoves;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable aiMoveTask = this::makeAIMove;
+    private final Runnable resetTask = this::resetBoardState;
+
+    // Timed games; the clock text is redrawn in place only when a shown tenth changes
+    private boolean isClockEnabled = false;
+    private GameClock gameClock;
+    private int clockPausedFor = GameLogic.EMPTY;
+    private final char[] clockChars = new char[32];
+    private long shownTenthsX = -1;
+    private long shownTenthsO = -1;
+    private final Choreographer.FrameCallback clockTick = frameTimeNanos -> tickClock();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -41,9 +95,85 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         initializeViews();
+        hintEvaluator = new HintEvaluator(mainHandler::post, this::showHints);
+        statsStore.load(mainHandler::post, this::updateStatsText);
         initializeGame();
         setupClickListeners();
         showWelcomeState();
+        // Once the first frame is up and the main thread is idle
+        Looper.myQueue().addIdleHandler(() -> {
+            startCalibration(getApplicationContext());
+            return false;
+        });
+    }
+
+    // Reuses the stored search speed, measuring it again on first launch and after
+    // updates. Preferences are read and written on the background thread too.
+    private static void startCalibration(Context context) {
+        Thread thread = new Thread(() -> {
+            SharedPreferences prefs = context.getSharedPreferences(CALIBRATION_PREFS, Context.MODE_PRIVATE);
+            long versionCode;
+            try {
+                versionCode = PackageInfoCompat.getLongVersionCode(
+                        context.getPackageManager().getPackageInfo(context.getPackageName(), 0));
+            } catch (PackageManager.NameNotFoundException e) {
+                versionCode = -1;
+            }
+            long stored = prefs.getLong(KEY_NODES_PER_SECOND, 0);
+            if (stored > 0 && prefs.getLong(KEY_VERSION_CODE, -1) == versionCode) {
+                AIPlayer.setNodesPerSecond(stored);
+                return;
+            }
+            long measured = Calibration.measureNodesPerSecond();
+            AIPlayer.setNodesPerSecond(measured);
+            prefs.edit()
+                    .putLong(KEY_NODES_PER_SECOND, measured)
+                    .putLong(KEY_VERSION_CODE, versionCode)
+                    .apply();
+            Log.i(TAG, "Calibrated search speed: " + measured + " nodes/s");
+        }, "calibration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (gameClock != null && clockPausedFor != GameLogic.EMPTY) {
+            gameClock.start(clockPausedFor);
+            clockPausedFor = GameLogic.EMPTY;
+            Choreographer.getInstance().removeFrameCallback(clockTick);
+            Choreographer.getInstance().postFrameCallback(clockTick);
+        }
+        startPondering();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        ponderer.stop();
+        // Time away from the app doesn't count
+        if (gameClock != null && gameClock.getRunning() != GameLogic.EMPTY) {
+            clockPausedFor = gameClock.getRunning();
+            gameClock.stop();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        statsStore.flush();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Choreographer.getInstance().removeFrameCallback(clockTick);
+        ponderer.shutdown();
+        gameAnalyzer.shutdown();
+        hintEvaluator.shutdown();
+        statsStore.shutdown();
     }
 
     private void initializeViews() {
@@ -56,15 +186,27 @@ public class MainActivity extends AppCompatActivity {
 
         welcomeContainer = findViewById(R.id.welcomeContainer);
         boardCard = findViewById(R.id.boardCard);
+        gameBoard = findViewById(R.id.gameBoard);
+        infiniteBoardView = findViewById(R.id.infiniteBoard);
+        infiniteBoardView.setBoard(sparseBoard);
         turnIndicator = findViewById(R.id.turnIndicator);
         selectModeButton = findViewById(R.id.selectModeButton);
         resetButton = findViewById(R.id.resetButton);
+        undoButton = findViewById(R.id.undoButton);
         changeModeButton = findViewById(R.id.changeModeButton);
+        rulesButton = findViewById(R.id.rulesButton);
+        ponderSwitch = findViewById(R.id.ponderSwitch);
+        hintSwitch = findViewById(R.id.hintSwitch);
+        clockSwitch = findViewById(R.id.clockSwitch);
+        clockText = findViewById(R.id.clockText);
+        statsText = findViewById(R.id.statsText);
+        analysisText = findViewById(R.id.analysisText);
     }
 
     private void initializeGame() {
-        gameLogic = new GameLogic();
+        gameLogic = new GameLogic(3, 3, currentRules);
         updateTurnIndicator();
+        updateRulesButton();
     }
 
     private void setupClickListeners() {
@@ -72,16 +214,49 @@ public class MainActivity extends AppCompatActivity {
             for (int j = 0; j < 3; j++) {
                 final int row = i;
                 final int col = j;
-                cells[i][j].setOnClickListener(v -> handleCellClick(row, col));
+                cells[i][j].setOnClickListener(v -> handleCellClick(row, col, gameLogic.getCurrentPlayer()));
+                // Wild rules: a long press places the opponent's symbol
+                cells[i][j].setOnLongClickListener(v -> {
+                    if (!currentRules.allowsOtherSymbol()) {
+                        return false;
+                    }
+                    int current = gameLogic.getCurrentPlayer();
+                    handleCellClick(row, col, current == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X);
+                    return true;
+                });
             }
         }
 
+        infiniteBoardView.setOnCellTapListener(this::handleInfiniteTap);
         selectModeButton.setOnClickListener(v -> showGameModeDialog());
         changeModeButton.setOnClickListener(v -> showGameModeDialog());
+        rulesButton.setOnClickListener(v -> showRulesDialog());
         resetButton.setOnClickListener(v -> resetBoardState());
+        undoButton.setOnClickListener(v -> undoMove());
+        ponderSwitch.setOnCheckedChangeListener((button, isChecked) -> {
+            isPonderingEnabled = isChecked;
+            if (isChecked) {
+                startPondering();
+            } else {
+                ponderer.stop();
+            }
+        });
+        hintSwitch.setOnCheckedChangeListener((button, isChecked) -> {
+            isHintsEnabled = isChecked;
+            if (isChecked) {
+                refreshHints();
+            } else {
+                hintEvaluator.cancel();
+                clearHints();
+            }
+        });
+        clockSwitch.setOnCheckedChangeListener((button, isChecked) -> {
+            isClockEnabled = isChecked;
+            resetBoardState();
+        });
     }
 
-    private void handleCellClick(int row, int col) {
+    private void handleCellClick(int row, int col, int symbol) {
         if (gameLogic.isGameOver()) {
             return;
         }
@@ -90,27 +265,210 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        if (gameLogic.makeMove(row, col)) {
+        Position before = gameLogic.snapshot();
+        if (gameLogic.makeMove(row, col, symbol)) {
+            // Under gravity the stone lands elsewhere in the column
+            int cell = gameLogic.getLastCell();
+            row = cell / 3;
+            col = cell % 3;
+            if (currentRules == Rules.STANDARD) {
+                gameAnalyzer.onMove(before, row, col);
+            }
+            onBoardChanged(row, col, before.getToMove());
             updateCell(row, col);
             checkGameState();
 
             if (!isTwoPlayerMode && !gameLogic.isGameOver() &&
                     gameLogic.getCurrentPlayer() == GameLogic.PLAYER_O) {
-                mainHandler.postDelayed(this::makeAIMove, 500);
+                int[] ponderedMove = isPonderingEnabled ?
+                        ponderer.takeReply(aiPlayer, gameLogic.snapshot()) : null;
+                if (ponderedMove != null) {
+                    playAIMove(ponderedMove);
+                } else {
+                    scheduleAIMove();
+                }
             }
         }
     }
 
+    private void handleInfiniteTap(int x, int y) {
+        if (sparseBoard.isGameOver()) {
+            return;
+        }
+
+        if (!isTwoPlayerMode && sparseBoard.getCurrentPlayer() != GameLogic.PLAYER_X) {
+            return;
+        }
+
+        if (sparseBoard.makeMove(x, y)) {
+            infiniteBoardView.invalidate();
+            checkGameState();
+            if (!isTwoPlayerMode && !sparseBoard.isGameOver()) {
+                scheduleAIMove();
+            }
+        }
+    }
+
+    // The pause only makes the reply look considered; in a timed game O's clock is already
+    // running, so it would be charged to the AI
+    private void scheduleAIMove() {
+        mainHandler.postDelayed(aiMoveTask, gameClock != null ? 0 : 500);
+    }
+
     private void makeAIMove() {
+        if (isInfiniteBoard) {
+            makeInfiniteAIMove();
+            return;
+        }
         if (gameLogic.isGameOver() || aiPlayer == null) {
             return;
         }
 
-        int[] move = aiPlayer.getMove(gameLogic);
+        long start = System.nanoTime();
+        int[] move = gameClock != null ? aiPlayer.getMove(gameLogic.snapshot(), gameClock) :
+                aiPlayer.getMove(gameLogic);
+        aiThinkNanos += System.nanoTime() - start;
+        playAIMove(move);
+    }
+
+    private void makeInfiniteAIMove() {
+        if (sparseBoard.isGameOver() || sparseAI == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int[] move = sparseAI.getMove(sparseBoard);
+        aiThinkNanos += System.nanoTime() - start;
+        if (move != null && sparseBoard.makeMove(move[0], move[1])) {
+            aiMoves++;
+            infiniteBoardView.showCell(move[0], move[1]);
+            checkGameState();
+        }
+    }
+
+    private void playAIMove(int[] move) {
         if (move != null && gameLogic.isValidMove(move[0], move[1])) {
-            gameLogic.makeMove(move[0], move[1]);
+            Position before = gameLogic.snapshot();
+            int symbol = move.length > 2 ? move[2] : gameLogic.getCurrentPlayer();
+            gameLogic.makeMove(move[0], move[1], symbol);
+            aiMoves++;
+            if (currentRules == Rules.STANDARD) {
+                gameAnalyzer.onMove(before, move[0], move[1]);
+            }
+            onBoardChanged(move[0], move[1], before.getToMove());
             updateCell(move[0], move[1]);
             checkGameState();
+            startPondering();
+        }
+    }
+
+    private void undoMove() {
+        if (isInfiniteBoard) {
+            undoInfiniteMove();
+            return;
+        }
+        if (gameLogic.isGameOver() || !gameLogic.canUndo()) {
+            return;
+        }
+        mainHandler.removeCallbacks(aiMoveTask);
+        ponderer.stop();
+        gameLogic.undo();
+        // Against the AI, also take back its reply so it is the human's turn again
+        if (!isTwoPlayerMode && gameLogic.getCurrentPlayer() != GameLogic.PLAYER_X) {
+            gameLogic.undo();
+        }
+        gameAnalyzer.undoTo(gameLogic.getMoveCount());
+        if (gameClock != null) {
+            // Times are kept; the clock just follows the side to move
+            gameClock.start(gameLogic.getCurrentPlayer());
+        }
+        clearBoard();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                updateCell(i, j);
+            }
+        }
+        updateTurnIndicator();
+        updateUndoButton();
+        clearHints();
+        refreshHints();
+        startPondering();
+    }
+
+    private void undoInfiniteMove() {
+        if (sparseBoard.isGameOver() || !sparseBoard.canUndo()) {
+            return;
+        }
+        mainHandler.removeCallbacks(aiMoveTask);
+        sparseBoard.undo();
+        if (!isTwoPlayerMode && sparseBoard.getCurrentPlayer() != GameLogic.PLAYER_X) {
+            sparseBoard.undo();
+        }
+        if (gameClock != null) {
+            gameClock.start(sparseBoard.getCurrentPlayer());
+        }
+        infiniteBoardView.invalidate();
+        updateTurnIndicator();
+        updateUndoButton();
+    }
+
+    private void updateUndoButton() {
+        if (isInfiniteBoard) {
+            undoButton.setEnabled(sparseBoard.canUndo() && !sparseBoard.isGameOver());
+        } else {
+            undoButton.setEnabled(gameLogic.canUndo() && !gameLogic.isGameOver());
+        }
+    }
+
+    private void onBoardChanged(int row, int col, int player) {
+        if (!isHintsEnabled) {
+            return;
+        }
+        if (gameLogic.isGameOver()) {
+            hintEvaluator.cancel();
+            clearHints();
+        } else {
+            hintEvaluator.onMove(row, col, player);
+        }
+    }
+
+    private void refreshHints() {
+        if (isHintsEnabled && !gameLogic.isGameOver()) {
+            hintEvaluator.setBoard(gameLogic.getBoard(), gameLogic.getWinLength(), gameLogic.getCurrentPlayer());
+        }
+    }
+
+    private void showHints(float[] heat) {
+        // Hints are only shown to a human player
+        if (!isHintsEnabled || gameLogic.isGameOver() ||
+                (!isTwoPlayerMode && gameLogic.getCurrentPlayer() != GameLogic.PLAYER_X)) {
+            clearHints();
+            return;
+        }
+        int base = ContextCompat.getColor(this, R.color.cell_background);
+        int hint = ContextCompat.getColor(this, R.color.hint_color);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                float value = heat[i * 3 + j];
+                int color = value < 0 ? base : ColorUtils.blendARGB(base, hint, value);
+                cells[i][j].setBackgroundTintList(ColorStateList.valueOf(color));
+            }
+        }
+    }
+
+    private void clearHints() {
+        ColorStateList base = ColorStateList.valueOf(ContextCompat.getColor(this, R.color.cell_background));
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                cells[i][j].setBackgroundTintList(base);
+            }
+        }
+    }
+
+    private void startPondering() {
+        if (isPonderingEnabled && !isTwoPlayerMode && !isInfiniteBoard && aiPlayer != null && isGameActive() &&
+                !gameLogic.isGameOver() && gameLogic.getCurrentPlayer() == GameLogic.PLAYER_X) {
+            ponderer.start(aiPlayer, gameLogic.snapshot());
         }
     }
 
@@ -130,9 +488,22 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void checkGameState() {
-        if (gameLogic.isGameOver()) {
+        boolean gameOver = isInfiniteBoard ? sparseBoard.isGameOver() : gameLogic.isGameOver();
+        if (gameClock != null) {
+            if (gameOver) {
+                gameClock.stop();
+            } else {
+                gameClock.press();
+            }
+        }
+        if (gameOver) {
+            ponderer.stop();
             disableAllCells();
-            int winner = gameLogic.getWinner();
+            if (isPonderingEnabled) {
+                Log.i(TAG, "Ponder hits " + ponderer.getHits() + ", misses " + ponderer.getMisses() +
+                        ", hit rate " + Math.round(ponderer.getHitRate() * 100) + "%");
+            }
+            int winner = isInfiniteBoard ? sparseBoard.getWinner() : gameLogic.getWinner();
 
             String message;
             if (winner == GameLogic.PLAYER_X) {
@@ -144,10 +515,140 @@ public class MainActivity extends AppCompatActivity {
             }
 
             Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
-            mainHandler.postDelayed(this::resetBoardState, 800);
+            recordGame(winner);
+            if (hasStandardAnalysis()) {
+                gameAnalyzer.finishGame(mainHandler::post, this::showAnalysis);
+            }
+            mainHandler.postDelayed(resetTask, 800);
         } else {
             updateTurnIndicator();
         }
+        updateUndoButton();
+    }
+
+    private void startClock() {
+        Choreographer.getInstance().removeFrameCallback(clockTick);
+        clockPausedFor = GameLogic.EMPTY;
+        if (!isClockEnabled) {
+            gameClock = null;
+            clockText.setVisibility(View.GONE);
+            return;
+        }
+        gameClock = new GameClock(Clock.SYSTEM, CLOCK_INITIAL_NANOS, CLOCK_INCREMENT_NANOS);
+        gameClock.start(GameLogic.PLAYER_X);
+        shownTenthsX = -1;
+        shownTenthsO = -1;
+        clockText.setVisibility(View.VISIBLE);
+        tickClock();
+    }
+
+    // Runs once per frame while a clock is running
+    private void tickClock() {
+        if (gameClock == null) {
+            return;
+        }
+        long remainingX = gameClock.getRemainingNanos(GameLogic.PLAYER_X);
+        long remainingO = gameClock.getRemainingNanos(GameLogic.PLAYER_O);
+        long tenthsX = Math.max(0, remainingX) / 100_000_000L;
+        long tenthsO = Math.max(0, remainingO) / 100_000_000L;
+        if (tenthsX != shownTenthsX || tenthsO != shownTenthsO) {
+            shownTenthsX = tenthsX;
+            shownTenthsO = tenthsO;
+            int length = 0;
+            clockChars[length++] = 'X';
+            clockChars[length++] = ' ';
+            length += GameClock.format(remainingX, clockChars, length);
+            clockChars[length++] = ' ';
+            clockChars[length++] = '\u00b7';
+            clockChars[length++] = ' ';
+            clockChars[length++] = 'O';
+            clockChars[length++] = ' ';
+            length += GameClock.format(remainingO, clockChars, length);
+            clockText.setText(clockChars, 0, length);
+        }
+        int running = gameClock.getRunning();
+        if (running == GameLogic.EMPTY) {
+            return;
+        }
+        if (gameClock.hasFlagged(running)) {
+            onFlag(running);
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(clockTick);
+    }
+
+    private void onFlag(int player) {
+        gameClock.stop();
+        mainHandler.removeCallbacks(aiMoveTask);
+        ponderer.stop();
+        hintEvaluator.cancel();
+        clearHints();
+        disableAllCells();
+        undoButton.setEnabled(false);
+        String playerName = player == GameLogic.PLAYER_X ?
+                getString(R.string.player_x) : getString(R.string.player_o);
+        Toast.makeText(this, getString(R.string.lost_on_time, playerName), Toast.LENGTH_SHORT).show();
+        int winner = player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        recordGame(winner);
+        mainHandler.postDelayed(resetTask, 800);
+    }
+
+    // The stats buckets are for standard 3x3 games; the infinite board can't draw and the
+    // variants score differently, so their results would skew them
+    private void recordGame(int winner) {
+        if (!hasStandardAnalysis()) {
+            return;
+        }
+        statsStore.recordGame(StatsStore.bucketFor(isTwoPlayerMode, currentDifficulty), winner,
+                gameLogic.getMoveCount(), aiThinkNanos, aiMoves);
+        updateStatsText();
+    }
+
+    private void updateStatsText() {
+        StatsStore.Stats stats = statsStore.getStats(StatsStore.bucketFor(isTwoPlayerMode, currentDifficulty));
+        String text = getString(R.string.stats_summary, stats.getWins(), stats.getLosses(), stats.getDraws(),
+                stats.getStreak(), stats.getBestStreak(), stats.getAverageMoves());
+        if (!isTwoPlayerMode) {
+            text = getString(R.string.stats_think_time, text, stats.getAverageThinkMillis());
+        }
+        statsText.setText(text);
+    }
+
+    private void showAnalysis(List<GameAnalyzer.MoveAnnotation> annotations) {
+        if (isFinishing() || annotations.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder(getString(R.string.analysis_title));
+        for (GameAnalyzer.MoveAnnotation annotation : annotations) {
+            String player = annotation.getPlayer() == GameLogic.PLAYER_X ? "X" : "O";
+            text.append('\n').append(getString(R.string.analysis_move,
+                    annotation.getMoveNumber(), player, annotation.getRow() + 1, annotation.getCol() + 1,
+                    getQualityLabel(annotation.getQuality()),
+                    getValueLabel(annotation.getValueBefore()), getValueLabel(annotation.getValueAfter())));
+        }
+        analysisText.setText(text);
+        analysisText.setVisibility(isGameActive() ? View.VISIBLE : View.GONE);
+    }
+
+    private String getQualityLabel(GameAnalyzer.Quality quality) {
+        switch (quality) {
+            case BLUNDER:
+                return getString(R.string.quality_blunder);
+            case INACCURACY:
+                return getString(R.string.quality_inaccuracy);
+            case BEST:
+            default:
+                return getString(R.string.quality_best);
+        }
+    }
+
+    private String getValueLabel(int value) {
+        if (value == GameAnalyzer.WIN) {
+            return getString(R.string.value_win);
+        } else if (value == GameAnalyzer.LOSS) {
+            return getString(R.string.value_loss);
+        }
+        return getString(R.string.value_draw);
     }
 
     private void showGameModeDialog() {
@@ -210,7 +711,8 @@ public class MainActivity extends AppCompatActivity {
                             break;
                     }
                     isTwoPlayerMode = false;
-                    aiPlayer = new AIPlayer(currentDifficulty, GameLogic.PLAYER_O);
+                    ponderer.stop();
+                    aiPlayer = new AIPlayer(currentDifficulty, GameLogic.PLAYER_O, currentRules);
                     dialog.dismiss();
                     startGame();
                 })
@@ -222,8 +724,76 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
+    // Hints and the post-game analysis assume standard rules
+    private void showRulesDialog() {
+        final Rules[] variants = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+        // The last entry is the infinite board
+        String[] names = {
+                getString(R.string.rules_standard),
+                getString(R.string.rules_misere_description),
+                getString(R.string.rules_wild_description),
+                getString(R.string.rules_gravity_description),
+                getString(R.string.rules_infinite_description)
+        };
+        int selectedIndex = isInfiniteBoard ? variants.length : 0;
+        for (int i = 0; i < variants.length && !isInfiniteBoard; i++) {
+            if (variants[i] == currentRules) {
+                selectedIndex = i;
+            }
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.select_rules))
+                .setSingleChoiceItems(names, selectedIndex, (dialog, which) -> {
+                    dialog.dismiss();
+                    boolean infinite = which == variants.length;
+                    Rules rules = infinite ? Rules.STANDARD : variants[which];
+                    if (infinite == isInfiniteBoard && rules == currentRules) {
+                        return;
+                    }
+                    isInfiniteBoard = infinite;
+                    currentRules = rules;
+                    ponderer.stop();
+                    if (!hasStandardAnalysis()) {
+                        hintSwitch.setChecked(false);
+                        analysisText.setVisibility(View.GONE);
+                    }
+                    showBoardViews();
+                    gameLogic = new GameLogic(3, 3, currentRules);
+                    if (!isTwoPlayerMode) {
+                        aiPlayer = new AIPlayer(currentDifficulty, GameLogic.PLAYER_O, currentRules);
+                    }
+                    updateRulesButton();
+                    resetBoardState();
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    // Hints and the post-game analysis need standard rules on the 3x3 board
+    private boolean hasStandardAnalysis() {
+        return currentRules == Rules.STANDARD && !isInfiniteBoard;
+    }
+
+    private void updateRulesButton() {
+        int name;
+        if (isInfiniteBoard) {
+            name = R.string.rules_infinite;
+        } else if (currentRules == Rules.MISERE) {
+            name = R.string.rules_misere;
+        } else if (currentRules == Rules.WILD) {
+            name = R.string.rules_wild;
+        } else if (currentRules == Rules.GRAVITY) {
+            name = R.string.rules_gravity;
+        } else {
+            name = R.string.rules_standard;
+        }
+        rulesButton.setText(getString(R.string.rules_button, getString(name)));
+    }
+
     private void startTwoPlayerGame() {
         isTwoPlayerMode = true;
+        ponderer.stop();
         aiPlayer = null;
         startGame();
     }
@@ -234,15 +804,29 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void resetBoardState() {
+        mainHandler.removeCallbacks(aiMoveTask);
+        mainHandler.removeCallbacks(resetTask);
+        ponderer.stop();
         gameLogic.resetBoard();
+        sparseBoard.resetBoard();
+        infiniteBoardView.centerOn(0, 0);
+        sparseAI = isTwoPlayerMode ? null : new SparseAIPlayer(currentDifficulty);
+        gameAnalyzer.startGame();
+        aiThinkNanos = 0;
+        aiMoves = 0;
         clearBoard();
+        clearHints();
+        refreshHints();
         enableAllCells();
         updateTurnIndicator();
+        updateUndoButton();
+        startClock();
 
         if (!isTwoPlayerMode) {
             if (aiPlayer == null) {
-                aiPlayer = new AIPlayer(currentDifficulty, GameLogic.PLAYER_O);
+                aiPlayer = new AIPlayer(currentDifficulty, GameLogic.PLAYER_O, currentRules);
             }
+            startPondering();
         }
     }
 
@@ -251,7 +835,15 @@ public class MainActivity extends AppCompatActivity {
         turnIndicator.setVisibility(View.GONE);
         boardCard.setVisibility(View.GONE);
         resetButton.setVisibility(View.GONE);
+        undoButton.setVisibility(View.GONE);
         changeModeButton.setVisibility(View.GONE);
+        rulesButton.setVisibility(View.GONE);
+        ponderSwitch.setVisibility(View.GONE);
+        hintSwitch.setVisibility(View.GONE);
+        clockSwitch.setVisibility(View.GONE);
+        clockText.setVisibility(View.GONE);
+        statsText.setVisibility(View.GONE);
+        analysisText.setVisibility(View.GONE);
         clearBoard();
     }
 
@@ -260,7 +852,21 @@ public class MainActivity extends AppCompatActivity {
         turnIndicator.setVisibility(View.VISIBLE);
         boardCard.setVisibility(View.VISIBLE);
         resetButton.setVisibility(View.VISIBLE);
+        undoButton.setVisibility(View.VISIBLE);
         changeModeButton.setVisibility(View.VISIBLE);
+        rulesButton.setVisibility(View.VISIBLE);
+        clockSwitch.setVisibility(View.VISIBLE);
+        statsText.setVisibility(View.VISIBLE);
+        showBoardViews();
+        updateStatsText();
+    }
+
+    // The 3x3 grid or the infinite board, with the options that apply to it
+    private void showBoardViews() {
+        gameBoard.setVisibility(isInfiniteBoard ? View.GONE : View.VISIBLE);
+        infiniteBoardView.setVisibility(isInfiniteBoard ? View.VISIBLE : View.GONE);
+        ponderSwitch.setVisibility(isTwoPlayerMode || isInfiniteBoard ? View.GONE : View.VISIBLE);
+        hintSwitch.setVisibility(hasStandardAnalysis() ? View.VISIBLE : View.GONE);
     }
 
     private boolean isGameActive() {
@@ -282,6 +888,7 @@ public class MainActivity extends AppCompatActivity {
                 cells[i][j].setEnabled(true);
             }
         }
+        infiniteBoardView.setEnabled(true);
     }
 
     private void disableAllCells() {
@@ -290,10 +897,11 @@ public class MainActivity extends AppCompatActivity {
                 cells[i][j].setEnabled(false);
             }
         }
+        infiniteBoardView.setEnabled(false);
     }
 
     private void updateTurnIndicator() {
-        int currentPlayer = gameLogic.getCurrentPlayer();
+        int currentPlayer = isInfiniteBoard ? sparseBoard.getCurrentPlayer() : gameLogic.getCurrentPlayer();
         String playerName = (currentPlayer == GameLogic.PLAYER_X) ?
                 getString(R.string.player_x) : getString(R.string.player_o);
         turnIndicator.setText(getString(R.string.turn, playerName));
@@ -0,0 +1,84 @@
+package com.tictactoe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Preallocated single-producer ring of move events packed into longs. Consumers keep
+// their own cursors and never block the producer; a consumer that falls more than a
+// ring's length behind must resynchronise from a snapshot.
+public final class MoveEventRing {
+    public static final int TYPE_MOVE = 1;
+    public static final int TYPE_RESET = 2;
+    public static final int TYPE_UNDO = 4;
+
+    public static final long OVERWRITTEN = -1L;
+
+    private final AtomicLongArray events;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong published = new AtomicLong();
+
+    public MoveEventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        events = new AtomicLongArray(capacity);
+        this.capacity = capacity;
+        mask = capacity - 1;
+    }
+
+    // Producer only
+    public long publish(int type, int player, int data) {
+        long sequence = published.get();
+        events.lazySet((int) sequence & mask, encode(type, player, data, sequence));
+        // A full volatile store, not lazySet: a producer that next checks whether a
+        // consumer is parked must not have that load pass this store, or both miss
+        published.set(sequence + 1);
+        return sequence;
+    }
+
+    // Number of events published so far; the next event gets this sequence
+    public long getPublished() {
+        return published.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Event at sequence, or OVERWRITTEN if the producer has already reused its slot
+    public long get(long sequence) {
+        // Volatile reads keep the slot read ordered before the overwrite check. One slot of
+        // margin covers the producer having written a slot without advancing published yet.
+        long event = events.get((int) sequence & mask);
+        if (sequence <= published.get() - capacity) {
+            return OVERWRITTEN;
+        }
+        return event;
+    }
+
+    public boolean isAvailable(long sequence) {
+        return sequence > published.get() - capacity;
+    }
+
+    // type (8 bits) | player (8 bits) | data (16 bits) | low 32 bits of the sequence
+    public static long encode(int type, int player, int data, long sequence) {
+        return (long) type << 56 | (long) player << 48 | (long) (data & 0xFFFF) << 32 | (sequence & 0xFFFFFFFFL);
+    }
+
+    public static int type(long event) {
+        return (int) (event >>> 56);
+    }
+
+    public static int player(long event) {
+        return (int) (event >>> 48) & 0xFF;
+    }
+
+    public static int data(long event) {
+        return (int) (event >>> 32) & 0xFFFF;
+    }
+
+    public static int sequence(long event) {
+        return (int) event;
+    }
+}
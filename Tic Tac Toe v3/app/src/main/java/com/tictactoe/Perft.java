@@ -0,0 +1,314 @@
+package com.tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Exhaustive move-generation counts, for checking the engine against known numbers and
+// timing it. perft() walks the game tree to a depth, one task per root move, and counts
+// the nodes at every ply; a finished game ends its branch. Standard rules run on raw
+// bitboards without allocating, other rules through a routine typed with their final
+// class, so none of its Rules calls is megamorphic. enumerate() visits each distinct
+// position instead, ply by ply, with the number of move orders reaching it. From the
+// empty 3x3 board: 549,946 nodes, 255,168 finished games and 5,478 positions. Boards
+// are limited to what Position holds; a GameLogic on a larger standard board is
+// rejected rather than snapshotted.
+public final class Perft {
+    public static final class Counts {
+        private final long[] nodes;
+        private final long[] ended;
+
+        Counts(int depth) {
+            nodes = new long[depth + 1];
+            ended = new long[depth + 1];
+        }
+
+        // Positions reached after ply moves, 0 being the start
+        public long getNodes(int ply) {
+            return nodes[ply];
+        }
+
+        // Of those, finished games
+        public long getEnded(int ply) {
+            return ended[ply];
+        }
+
+        public int getDepth() {
+            return nodes.length - 1;
+        }
+
+        public long getTotalNodes() {
+            long total = 0;
+            for (long count : nodes) {
+                total += count;
+            }
+            return total;
+        }
+
+        // Classic perft: nodes at the full depth plus games that ended before it
+        public long getLeaves() {
+            long leaves = nodes[nodes.length - 1];
+            for (int ply = 0; ply < nodes.length - 1; ply++) {
+                leaves += ended[ply];
+            }
+            return leaves;
+        }
+
+        private void add(Counts other) {
+            for (int ply = 0; ply < nodes.length; ply++) {
+                nodes[ply] += other.nodes[ply];
+                ended[ply] += other.ended[ply];
+            }
+        }
+    }
+
+    public interface PositionVisitor {
+        // paths: how many move orders from the start reach position
+        void visit(Position position, int ply, long paths);
+    }
+
+    private Perft() {
+    }
+
+    public static Counts perft(GameLogic game, int depth, int threads) {
+        if (game.getSize() * game.getSize() > BoardGeometry.MAX_CELLS) {
+            throw new IllegalArgumentException("Perft holds at most " + BoardGeometry.MAX_CELLS + " cells, not "
+                    + game.getSize() + "x" + game.getSize());
+        }
+        return perft(game.snapshot(), game.getRules(), depth, threads);
+    }
+
+    public static Counts perft(Position start, Rules rules, int depth, int threads) {
+        if (depth < 0 || threads < 1) {
+            throw new IllegalArgumentException("Depth " + depth + " on " + threads + " threads");
+        }
+        Counts counts = new Counts(depth);
+        counts.nodes[0] = 1;
+        if (start.isTerminal()) {
+            counts.ended[0] = 1;
+            return counts;
+        }
+        if (depth == 0) {
+            return counts;
+        }
+        List<Position> children = new ArrayList<>();
+        int[] moves = moves(rules);
+        for (long cells = rules.getLegalCells(start); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            for (int move : moves) {
+                children.add(rules.play(start, cell | move));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Counts>> results = new ArrayList<>();
+            for (Position child : children) {
+                results.add(executor.submit(() -> {
+                    Counts subtree = new Counts(depth);
+                    subtree.nodes[1] = 1;
+                    if (child.isTerminal()) {
+                        subtree.ended[1] = 1;
+                    } else if (depth > 1 && rules == Rules.STANDARD) {
+                        int toMove = child.getToMove();
+                        countStandard(child.getGeometry(), child.getStones(toMove),
+                                child.getStones(toMove == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X),
+                                1, subtree);
+                    } else if (depth > 1) {
+                        countRules(rules, moves, child, 1, subtree);
+                    }
+                    return subtree;
+                }));
+            }
+            for (Future<Counts> result : results) {
+                counts.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return counts;
+    }
+
+    // Visits every distinct position within depth plies of start, one ply at a time, so
+    // only two plies are held at once. Returns the number of positions at each ply.
+    public static long[] enumerate(Position start, Rules rules, int depth, PositionVisitor visitor) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth " + depth);
+        }
+        BoardGeometry geometry = start.getGeometry();
+        int[] moves = moves(rules);
+        long[] unique = new long[depth + 1];
+        Layer layer = new Layer();
+        layer.add(start.getX(), start.getO(), 1);
+        int toMove = start.getToMove();
+        for (int ply = 0; ply <= depth && layer.size > 0; ply++) {
+            unique[ply] = layer.size;
+            Layer next = new Layer();
+            for (int slot = 0; slot < layer.counts.length; slot++) {
+                long paths = layer.counts[slot];
+                if (paths == 0) {
+                    continue;
+                }
+                Position position = ply == 0 ? start
+                        : rules.arrange(geometry, layer.xs[slot], layer.os[slot], toMove);
+                visitor.visit(position, ply, paths);
+                if (ply == depth) {
+                    continue;
+                }
+                for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+                    int cell = Long.numberOfTrailingZeros(cells);
+                    for (int move : moves) {
+                        Position child = rules.play(position, cell | move);
+                        next.add(child.getX(), child.getO(), paths);
+                    }
+                }
+            }
+            layer = next;
+            toMove = toMove == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        }
+        return unique;
+    }
+
+    // Symbol flags to try with each legal cell
+    private static int[] moves(Rules rules) {
+        return rules.allowsOtherSymbol() ? new int[]{0, Rules.OTHER_SYMBOL} : new int[]{0};
+    }
+
+    // Below a game in play after ply moves, with mover's stones to move
+    private static void countStandard(BoardGeometry geometry, long mover, long other, int ply, Counts counts) {
+        long empty = geometry.getFullMask() & ~(mover | other);
+        int child = ply + 1;
+        for (long cells = empty; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            long next = mover | 1L << cell;
+            counts.nodes[child]++;
+            if (geometry.completesLine(next, cell) || empty == 1L << cell) {
+                counts.ended[child]++;
+            } else if (child < counts.nodes.length - 1) {
+                countStandard(geometry, other, next, child, counts);
+            }
+        }
+    }
+
+    // Picks a routine per variant here, once per root move: each of them calls only its own
+    // final class, so their call sites stay monomorphic when one process runs every variant
+    private static void countRules(Rules rules, int[] moves, Position position, int ply, Counts counts) {
+        if (rules == Rules.MISERE) {
+            countMisere((Rules.Misere) rules, position, ply, counts);
+        } else if (rules == Rules.WILD) {
+            countWild((Rules.Wild) rules, position, ply, counts);
+        } else if (rules == Rules.GRAVITY) {
+            countGravity((Rules.Gravity) rules, position, ply, counts);
+        } else {
+            countAny(rules, moves, position, ply, counts);
+        }
+    }
+
+    private static void countMisere(Rules.Misere rules, Position position, int ply, Counts counts) {
+        for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            Position next = rules.play(position, Long.numberOfTrailingZeros(cells));
+            if (tally(next, ply + 1, counts)) {
+                countMisere(rules, next, ply + 1, counts);
+            }
+        }
+    }
+
+    private static void countWild(Rules.Wild rules, Position position, int ply, Counts counts) {
+        for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            Position next = rules.play(position, cell);
+            if (tally(next, ply + 1, counts)) {
+                countWild(rules, next, ply + 1, counts);
+            }
+            next = rules.play(position, cell | Rules.OTHER_SYMBOL);
+            if (tally(next, ply + 1, counts)) {
+                countWild(rules, next, ply + 1, counts);
+            }
+        }
+    }
+
+    private static void countGravity(Rules.Gravity rules, Position position, int ply, Counts counts) {
+        for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            Position next = rules.play(position, Long.numberOfTrailingZeros(cells));
+            if (tally(next, ply + 1, counts)) {
+                countGravity(rules, next, ply + 1, counts);
+            }
+        }
+    }
+
+    // Rules implemented elsewhere, through the interface
+    private static void countAny(Rules rules, int[] moves, Position position, int ply, Counts counts) {
+        for (long cells = rules.getLegalCells(position); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            for (int move : moves) {
+                Position next = rules.play(position, cell | move);
+                if (tally(next, ply + 1, counts)) {
+                    countAny(rules, moves, next, ply + 1, counts);
+                }
+            }
+        }
+    }
+
+    // Counts a child at ply and says whether to go on below it
+    private static boolean tally(Position child, int ply, Counts counts) {
+        counts.nodes[ply]++;
+        if (child.isTerminal()) {
+            counts.ended[ply]++;
+            return false;
+        }
+        return ply < counts.nodes.length - 1;
+    }
+
+    // Positions of one ply keyed by their stones, which fix the side to move within a
+    // ply, with path counts: open addressing at most half full, like LongIntMap
+    private static final class Layer {
+        long[] xs = new long[16];
+        long[] os = new long[16];
+        long[] counts = new long[16];
+        int size;
+
+        void add(long x, long o, long paths) {
+            int mask = counts.length - 1;
+            long h = x * 0x9E3779B97F4A7C15L ^ o * 0xC2B2AE3D27D4EB4FL;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (counts[slot] != 0 && (xs[slot] != x || os[slot] != o)) {
+                slot = (slot + 1) & mask;
+            }
+            if (counts[slot] == 0) {
+                xs[slot] = x;
+                os[slot] = o;
+                if (++size * 2 > counts.length) {
+                    counts[slot] = paths;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot] += paths;
+        }
+
+        private void grow() {
+            long[] oldXs = xs;
+            long[] oldOs = os;
+            long[] oldCounts = counts;
+            xs = new long[oldCounts.length * 2];
+            os = new long[oldCounts.length * 2];
+            counts = new long[oldCounts.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldCounts.length; slot++) {
+                if (oldCounts[slot] != 0) {
+                    add(oldXs[slot], oldOs[slot], oldCounts[slot]);
+                }
+            }
+        }
+    }
+}
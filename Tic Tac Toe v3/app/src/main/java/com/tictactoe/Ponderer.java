@@ -0,0 +1,138 @@
+package com.tictactoe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Ponderer {
+    // A reply with the generation it was pondered in; a task can still be inside
+    // getMove() when stop() clears the map, so its late put must not count
+    private static final class Reply {
+        final int generation;
+        final int[] move;
+
+        Reply(int generation, int[] move) {
+            this.generation = generation;
+            this.move = move;
+        }
+    }
+
+    private final ExecutorService executor;
+    // AI replies keyed by the position after the predicted human move
+    private final Map<Position, Reply> replies = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private Future<?> task;
+    private int hits;
+    private int misses;
+
+    public Ponderer() {
+        this(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ponder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }));
+    }
+
+    // Tests pass their own executor to wait for a ponder task to finish
+    Ponderer(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public void start(AIPlayer aiPlayer, Position position) {
+        stop();
+        final int startGeneration = generation.get();
+        task = executor.submit(() -> ponder(aiPlayer, position, startGeneration));
+    }
+
+    // Under wild rules only replies with the human's own symbol are pondered
+    private void ponder(AIPlayer aiPlayer, Position position, int startGeneration) {
+        Rules rules = aiPlayer.getRules();
+        long remaining = rules.getLegalCells(position);
+        while (remaining != 0) {
+            if (generation.get() != startGeneration || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            int cell = likelyReply(aiPlayer, position, remaining);
+            remaining &= ~(1L << cell);
+            Position next = rules.play(position, cell);
+            if (!next.isTerminal()) {
+                int[] reply = aiPlayer.getMove(next);
+                if (reply != null && generation.get() == startGeneration) {
+                    replies.put(next, new Reply(startGeneration, reply));
+                }
+            }
+        }
+    }
+
+    // Human wins first, then blocks, then the cell closest to the center
+    private int likelyReply(AIPlayer aiPlayer, Position position, long candidates) {
+        BoardGeometry geometry = position.getGeometry();
+        long wins = geometry.winningCells(position.getStones(aiPlayer.getHumanPlayer()), candidates);
+        if (wins != 0) {
+            return Long.numberOfTrailingZeros(wins);
+        }
+        long blocks = geometry.winningCells(position.getStones(aiPlayer.getAiPlayer()), candidates);
+        if (blocks != 0) {
+            return Long.numberOfTrailingZeros(blocks);
+        }
+        int size = position.getSize();
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (long cells = candidates; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            int dRow = 2 * (cell / size) - (size - 1);
+            int dCol = 2 * (cell % size) - (size - 1);
+            int distance = dRow * dRow + dCol * dCol;
+            if (distance < bestDistance) {
+                best = cell;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // Returns the pondered reply for the current position, or null on a ponder miss
+    public int[] takeReply(AIPlayer aiPlayer, Position position) {
+        Reply reply = replies.get(position);
+        int current = generation.get();
+        stop();
+        aiPlayer.retainReachable(position);
+        if (reply != null && reply.generation == current) {
+            hits++;
+            return reply.move;
+        }
+        misses++;
+        return null;
+    }
+
+    public void stop() {
+        generation.incrementAndGet();
+        if (task != null) {
+            task.cancel(true);
+            task = null;
+        }
+        replies.clear();
+    }
+
+    public void shutdown() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public float getHitRate() {
+        int total = hits + misses;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+}
@@ -0,0 +1,165 @@
+package com.tictactoe;
+
+// Immutable board snapshot packed into two bitboards (cell = row * size + col).
+// play() returns a new Position without copying arrays, so snapshots can be shared
+// freely between the UI thread and background analysis.
+public final class Position {
+    private final BoardGeometry geometry;
+    private final long x;
+    private final long o;
+    private final int toMove;
+    private final int winner;
+
+    private Position(BoardGeometry geometry, long x, long o, int toMove, int winner) {
+        this.geometry = geometry;
+        this.x = x;
+        this.o = o;
+        this.toMove = toMove;
+        this.winner = winner;
+    }
+
+    public static Position empty(int size, int winLength) {
+        return new Position(BoardGeometry.of(size, winLength), 0L, 0L, GameLogic.PLAYER_X, GameLogic.EMPTY);
+    }
+
+    public static Position of(BoardGeometry geometry, long x, long o, int toMove) {
+        if ((x & o) != 0 || ((x | o) & ~geometry.getFullMask()) != 0) {
+            throw new IllegalArgumentException("Overlapping or out-of-range stones");
+        }
+        int winner = geometry.hasLine(x) ? GameLogic.PLAYER_X
+                : geometry.hasLine(o) ? GameLogic.PLAYER_O : GameLogic.EMPTY;
+        return new Position(geometry, x, o, toMove, winner);
+    }
+
+    public Position play(int cell) {
+        long bit = 1L << cell;
+        if (isTerminal() || ((x | o) & bit) != 0) {
+            throw new IllegalArgumentException("Illegal move " + cell);
+        }
+        int next = toMove == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        if (toMove == GameLogic.PLAYER_X) {
+            long nextX = x | bit;
+            return new Position(geometry, nextX, o, next,
+                    geometry.completesLine(nextX, cell) ? GameLogic.PLAYER_X : GameLogic.EMPTY);
+        }
+        long nextO = o | bit;
+        return new Position(geometry, x, nextO, next,
+                geometry.completesLine(nextO, cell) ? GameLogic.PLAYER_O : GameLogic.EMPTY);
+    }
+
+    public Position play(int row, int col) {
+        return play(row * geometry.getSize() + col);
+    }
+
+    // Successor with the given stones and the other side to move, for Rules variants
+    // that decide legality and the winner themselves
+    Position next(long nextX, long nextO, int nextWinner) {
+        int next = toMove == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        return new Position(geometry, nextX, nextO, next, nextWinner);
+    }
+
+    static Position of(BoardGeometry geometry, long x, long o, int toMove, int winner) {
+        if ((x & o) != 0 || ((x | o) & ~geometry.getFullMask()) != 0) {
+            throw new IllegalArgumentException("Overlapping or out-of-range stones");
+        }
+        return new Position(geometry, x, o, toMove, winner);
+    }
+
+    // Inverse of play(cell) for the last move made: the stone at cell goes back to its owner
+    // as the side to move. O(1), since the game cannot have been over before that move.
+    public Position unplay(int cell) {
+        long bit = 1L << cell;
+        if ((x & bit) != 0) {
+            return new Position(geometry, x & ~bit, o, GameLogic.PLAYER_X, GameLogic.EMPTY);
+        }
+        if ((o & bit) != 0) {
+            return new Position(geometry, x, o & ~bit, GameLogic.PLAYER_O, GameLogic.EMPTY);
+        }
+        throw new IllegalArgumentException("No stone at " + cell);
+    }
+
+    // As unplay(cell), for rules where the stone need not be the mover's own symbol
+    public Position unplay(int cell, int player) {
+        long bit = 1L << cell;
+        if (((x | o) & bit) == 0) {
+            throw new IllegalArgumentException("No stone at " + cell);
+        }
+        return new Position(geometry, x & ~bit, o & ~bit, player, GameLogic.EMPTY);
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getSize() {
+        return geometry.getSize();
+    }
+
+    public long getX() {
+        return x;
+    }
+
+    public long getO() {
+        return o;
+    }
+
+    public long getStones(int player) {
+        return player == GameLogic.PLAYER_X ? x : o;
+    }
+
+    public long getEmptyCells() {
+        return geometry.getFullMask() & ~(x | o);
+    }
+
+    public int getCell(int cell) {
+        long bit = 1L << cell;
+        return (x & bit) != 0 ? GameLogic.PLAYER_X : (o & bit) != 0 ? GameLogic.PLAYER_O : GameLogic.EMPTY;
+    }
+
+    public int getCell(int row, int col) {
+        return getCell(row * geometry.getSize() + col);
+    }
+
+    public int getToMove() {
+        return toMove;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public int getMoveCount() {
+        return Long.bitCount(x | o);
+    }
+
+    public boolean isFull() {
+        return getEmptyCells() == 0;
+    }
+
+    public boolean isTerminal() {
+        return winner != GameLogic.EMPTY || isFull();
+    }
+
+    // Exact key for boards of up to 32 cells: x in the low half, o in the high half
+    public long getKey() {
+        return x | o << 32;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Position)) {
+            return false;
+        }
+        Position that = (Position) other;
+        return x == that.x && o == that.o && toMove == that.toMove && geometry == that.geometry;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = x * 0x9E3779B97F4A7C15L ^ o * 0xC2B2AE3D27D4EB4FL ^ toMove;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,556 @@
+package com.tictactoe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// On-disk inverted index from position hash to the ids of the stored games that passed
+// through it. Games are replayed through GameLogic and buffered in memory; flush()
+// writes them as a new immutable segment, so appending never rewrites old data.
+// Segments of equal game count are merged pairwise, which keeps O(log n) segments.
+//
+// A segment holds, per hash, varint game and outcome counts followed by delta-encoded
+// game ids, then a directory
+// of (hash, offset) entries sorted by signed hash and a fixed footer. Queries memory-map
+// each segment and binary-search its directory. Outcomes are kept one byte per game id,
+// and index.meta names the live segments. Not thread-safe.
+public class PositionIndex implements Closeable {
+    public static final int OUTCOME_DRAW = 0;
+    public static final int OUTCOME_X = GameLogic.PLAYER_X;
+    public static final int OUTCOME_O = GameLogic.PLAYER_O;
+    public static final int OUTCOME_UNFINISHED = 3;
+
+    private static final int MAGIC = 0x50494458;
+    private static final int DIRECTORY_ENTRY_BYTES = 12;
+    private static final int FOOTER_BYTES = 20;
+    private static final int BUFFER_POSTINGS = 1 << 21;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final String META = "index.meta";
+    private static final String OUTCOMES = "outcomes.bin";
+
+    private static final class Segment {
+        final int id;
+        final File file;
+        final MappedByteBuffer buffer;
+        final int entryCount;
+        final int firstGameId;
+        final int gameCount;
+        final int directoryOffset;
+
+        Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            }
+            int footer = buffer.capacity() - FOOTER_BYTES;
+            if (buffer.getInt(footer + 16) != MAGIC) {
+                throw new IOException("Not an index segment: " + file);
+            }
+            directoryOffset = buffer.getInt(footer);
+            entryCount = buffer.getInt(footer + 4);
+            firstGameId = buffer.getInt(footer + 8);
+            gameCount = buffer.getInt(footer + 12);
+        }
+
+        long hashAt(int entry) {
+            return buffer.getLong(directoryOffset + entry * DIRECTORY_ENTRY_BYTES);
+        }
+
+        int offsetAt(int entry) {
+            return buffer.getInt(directoryOffset + entry * DIRECTORY_ENTRY_BYTES + 8);
+        }
+
+        int find(long hash) {
+            int low = 0;
+            int high = entryCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midHash = hashAt(mid);
+                if (midHash < hash) {
+                    low = mid + 1;
+                } else if (midHash > hash) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        // Positions a cursor at entry's game ids and adds its outcome counts to tallies
+        Cursor open(int entry, int[] tallies) {
+            Cursor cursor = new Cursor(buffer, offsetAt(entry));
+            cursor.count = cursor.readVarint();
+            int xWins = cursor.readVarint();
+            int oWins = cursor.readVarint();
+            int draws = cursor.readVarint();
+            tallies[OUTCOME_X] += xWins;
+            tallies[OUTCOME_O] += oWins;
+            tallies[OUTCOME_DRAW] += draws;
+            tallies[OUTCOME_UNFINISHED] += cursor.count - xWins - oWins - draws;
+            return cursor;
+        }
+
+        long bytes() {
+            return buffer.capacity();
+        }
+    }
+
+    // Sequential varint reader over a mapped segment
+    private static final class Cursor {
+        final MappedByteBuffer buffer;
+        int position;
+        int count;
+
+        Cursor(MappedByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    // Streams postings to the segment file and the directory to a side file, then
+    // appends the directory and footer, so neither has to fit in memory
+    private static final class SegmentWriter {
+        final File file;
+        final File directoryFile;
+        final FileOutputStream postings;
+        final FileOutputStream directory;
+        final byte[] postingBytes = new byte[1 << 16];
+        final byte[] directoryBytes = new byte[DIRECTORY_ENTRY_BYTES * 4096];
+        final int firstGameId;
+        int postingLength;
+        int directoryLength;
+        int offset;
+        int entries;
+        int previousId;
+
+        SegmentWriter(File file, int firstGameId) throws IOException {
+            this.file = file;
+            this.firstGameId = firstGameId;
+            directoryFile = new File(file.getPath() + ".dir");
+            postings = new FileOutputStream(file);
+            directory = new FileOutputStream(directoryFile);
+        }
+
+        void beginEntry(long hash, int count, int[] tallies) throws IOException {
+            if (directoryLength == directoryBytes.length) {
+                directory.write(directoryBytes, 0, directoryLength);
+                directoryLength = 0;
+            }
+            putLong(directoryBytes, directoryLength, hash);
+            putInt(directoryBytes, directoryLength + 8, offset);
+            directoryLength += DIRECTORY_ENTRY_BYTES;
+            entries++;
+            writeVarint(count);
+            writeVarint(tallies[OUTCOME_X]);
+            writeVarint(tallies[OUTCOME_O]);
+            writeVarint(tallies[OUTCOME_DRAW]);
+            previousId = firstGameId;
+        }
+
+        void addGame(int gameId) throws IOException {
+            writeVarint(gameId - previousId);
+            previousId = gameId;
+        }
+
+        void finish(int gameCount) throws IOException {
+            directory.write(directoryBytes, 0, directoryLength);
+            directory.close();
+            postings.write(postingBytes, 0, postingLength);
+            try (InputStream in = new FileInputStream(directoryFile)) {
+                int read;
+                while ((read = in.read(postingBytes)) > 0) {
+                    postings.write(postingBytes, 0, read);
+                }
+            }
+            byte[] footer = new byte[FOOTER_BYTES];
+            putInt(footer, 0, offset);
+            putInt(footer, 4, entries);
+            putInt(footer, 8, firstGameId);
+            putInt(footer, 12, gameCount);
+            putInt(footer, 16, MAGIC);
+            postings.write(footer);
+            postings.getFD().sync();
+            postings.close();
+            directoryFile.delete();
+        }
+
+        private void writeVarint(int value) throws IOException {
+            if (postingLength > postingBytes.length - 5) {
+                postings.write(postingBytes, 0, postingLength);
+                postingLength = 0;
+            }
+            int start = postingLength;
+            while ((value & ~0x7F) != 0) {
+                postingBytes[postingLength++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            postingBytes[postingLength++] = (byte) value;
+            offset += postingLength - start;
+        }
+
+        private static void putLong(byte[] bytes, int at, long value) {
+            putInt(bytes, at, (int) (value >>> 32));
+            putInt(bytes, at + 4, (int) value);
+        }
+
+        private static void putInt(byte[] bytes, int at, int value) {
+            bytes[at] = (byte) (value >>> 24);
+            bytes[at + 1] = (byte) (value >>> 16);
+            bytes[at + 2] = (byte) (value >>> 8);
+            bytes[at + 3] = (byte) value;
+        }
+    }
+
+    private final File directory;
+    private final int size;
+    private final int winLength;
+    private final GameLogic replay;
+    private final List<Segment> segments = new ArrayList<>();
+    private final RandomAccessFile outcomes;
+    private MappedByteBuffer outcomeView;
+    private int gameCount;
+    private int nextSegmentId;
+
+    // Games appended since the last flush
+    private long[] bufferHashes = new long[1024];
+    private int[] bufferIds = new int[1024];
+    private int buffered;
+    private byte[] bufferOutcomes = new byte[256];
+    private int bufferedGames;
+    private long[] gameHashes;
+    private int[] scratchIds = new int[256];
+    private final int[] tallies = new int[4];
+
+    // Opens the index in directory, creating it if needed
+    public PositionIndex(File directory, int size, int winLength) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.size = size;
+        this.winLength = winLength;
+        replay = new GameLogic(size, winLength);
+        gameHashes = new long[size * size + 1];
+
+        File meta = new File(directory, META);
+        if (meta.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(meta)))) {
+                if (in.readInt() != MAGIC || in.readInt() != size || in.readInt() != winLength) {
+                    throw new IOException("Index in " + directory + " is for a different board");
+                }
+                gameCount = in.readInt();
+                nextSegmentId = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int id = in.readInt();
+                    segments.add(new Segment(id, segmentFile(id)));
+                }
+            }
+        }
+        outcomes = new RandomAccessFile(new File(directory, OUTCOMES), "rw");
+        // Drops outcomes of games whose segment never made it into index.meta
+        outcomes.setLength(gameCount);
+        mapOutcomes();
+    }
+
+    // Replays moves (cells, row * size + col) and returns the new game's id. The game is
+    // searchable after the next flush. Throws IllegalArgumentException on an illegal move.
+    public int append(int[] moves) throws IOException {
+        replay.resetBoard();
+        gameHashes[0] = hash(replay.snapshot());
+        for (int i = 0; i < moves.length; i++) {
+            int cell = moves[i];
+            if (cell < 0 || cell >= size * size || !replay.makeMove(cell / size, cell % size)) {
+                throw new IllegalArgumentException("Illegal move " + cell + " at ply " + i);
+            }
+            gameHashes[i + 1] = hash(replay.snapshot());
+        }
+
+        int gameId = gameCount + bufferedGames;
+        int positions = moves.length + 1;
+        if (buffered + positions > bufferHashes.length) {
+            int capacity = Math.max(bufferHashes.length * 2, buffered + positions);
+            bufferHashes = Arrays.copyOf(bufferHashes, capacity);
+            bufferIds = Arrays.copyOf(bufferIds, capacity);
+        }
+        for (int i = 0; i < positions; i++) {
+            bufferHashes[buffered] = gameHashes[i];
+            bufferIds[buffered++] = gameId;
+        }
+        if (bufferedGames == bufferOutcomes.length) {
+            bufferOutcomes = Arrays.copyOf(bufferOutcomes, bufferOutcomes.length * 2);
+        }
+        bufferOutcomes[bufferedGames++] = (byte) (replay.isGameOver() ? replay.getWinner() : OUTCOME_UNFINISHED);
+
+        if (buffered >= BUFFER_POSTINGS) {
+            flush();
+        }
+        return gameId;
+    }
+
+    // Writes buffered games as a new segment and merges segments of equal size
+    public void flush() throws IOException {
+        if (bufferedGames == 0) {
+            return;
+        }
+        sortPostings(bufferHashes, bufferIds, buffered);
+        int id = nextSegmentId++;
+        SegmentWriter writer = new SegmentWriter(segmentFile(id), gameCount);
+        for (int start = 0; start < buffered; ) {
+            int end = start + 1;
+            while (end < buffered && bufferHashes[end] == bufferHashes[start]) {
+                end++;
+            }
+            Arrays.fill(tallies, 0);
+            for (int i = start; i < end; i++) {
+                tallies[bufferOutcomes[bufferIds[i] - gameCount]]++;
+            }
+            writer.beginEntry(bufferHashes[start], end - start, tallies);
+            for (int i = start; i < end; i++) {
+                writer.addGame(bufferIds[i]);
+            }
+            start = end;
+        }
+        writer.finish(bufferedGames);
+
+        outcomes.seek(gameCount);
+        outcomes.write(bufferOutcomes, 0, bufferedGames);
+        segments.add(new Segment(id, writer.file));
+        gameCount += bufferedGames;
+        buffered = 0;
+        bufferedGames = 0;
+        commit();
+        mapOutcomes();
+
+        while (segments.size() >= 2) {
+            Segment newer = segments.get(segments.size() - 1);
+            Segment older = segments.get(segments.size() - 2);
+            if (older.gameCount > newer.gameCount || older.bytes() + newer.bytes() > MAX_SEGMENT_BYTES) {
+                break;
+            }
+            merge(older, newer);
+        }
+    }
+
+    // Ids of flushed games that reached position, in increasing order
+    public int[] findGames(Position position) {
+        long hash = hash(position);
+        int total = 0;
+        int[] result = new int[16];
+        int[] counts = new int[4];
+        for (Segment segment : segments) {
+            int entry = segment.find(hash);
+            if (entry < 0) {
+                continue;
+            }
+            Cursor cursor = segment.open(entry, counts);
+            int count = cursor.count;
+            if (total + count > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, total + count));
+            }
+            int gameId = segment.firstGameId;
+            for (int i = 0; i < count; i++) {
+                gameId += cursor.readVarint();
+                result[total++] = gameId;
+            }
+        }
+        return Arrays.copyOf(result, total);
+    }
+
+    // Games through position by outcome, indexed by the OUTCOME_ constants
+    public int[] countOutcomes(Position position) {
+        long hash = hash(position);
+        int[] counts = new int[4];
+        for (Segment segment : segments) {
+            int entry = segment.find(hash);
+            if (entry >= 0) {
+                segment.open(entry, counts);
+            }
+        }
+        return counts;
+    }
+
+    public int getOutcome(int gameId) {
+        return outcomeView.get(gameId);
+    }
+
+    // Flushed games only
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getSizeBytes() {
+        long bytes = gameCount;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        outcomes.close();
+    }
+
+    // 64-bit fingerprint of the stones; the side to move follows from them
+    public static long hash(Position position) {
+        return mix(mix(position.getX()) + position.getO() * 0x9E3779B97F4A7C15L);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Two adjacent segments into one; older holds the lower game ids
+    private void merge(Segment older, Segment newer) throws IOException {
+        int id = nextSegmentId++;
+        SegmentWriter writer = new SegmentWriter(segmentFile(id), older.firstGameId);
+        int a = 0;
+        int b = 0;
+        while (a < older.entryCount || b < newer.entryCount) {
+            long hashA = a < older.entryCount ? older.hashAt(a) : Long.MAX_VALUE;
+            long hashB = b < newer.entryCount ? newer.hashAt(b) : Long.MAX_VALUE;
+            boolean takeA = a < older.entryCount && (b >= newer.entryCount || hashA <= hashB);
+            boolean takeB = b < newer.entryCount && (a >= older.entryCount || hashB <= hashA);
+            Arrays.fill(tallies, 0);
+            int count = 0;
+            if (takeA) {
+                count = readPostings(older, a++, 0);
+            }
+            if (takeB) {
+                count = readPostings(newer, b++, count);
+            }
+            writer.beginEntry(takeA ? hashA : hashB, count, tallies);
+            for (int i = 0; i < count; i++) {
+                writer.addGame(scratchIds[i]);
+            }
+        }
+        writer.finish(older.gameCount + newer.gameCount);
+
+        int index = segments.indexOf(older);
+        segments.set(index, new Segment(id, writer.file));
+        segments.remove(index + 1);
+        commit();
+        older.file.delete();
+        newer.file.delete();
+    }
+
+    // Decodes an entry's game ids into scratchIds from offset and adds its outcome counts
+    // to tallies; returns the new length
+    private int readPostings(Segment segment, int entry, int offset) {
+        Cursor cursor = segment.open(entry, tallies);
+        int count = cursor.count;
+        if (offset + count > scratchIds.length) {
+            scratchIds = Arrays.copyOf(scratchIds, Math.max(scratchIds.length * 2, offset + count));
+        }
+        int gameId = segment.firstGameId;
+        for (int i = 0; i < count; i++) {
+            gameId += cursor.readVarint();
+            scratchIds[offset + i] = gameId;
+        }
+        return offset + count;
+    }
+
+    // Atomically replaces index.meta so a crash leaves either the old or the new set of segments
+    private void commit() throws IOException {
+        outcomes.getFD().sync();
+        File temp = new File(directory, META + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(MAGIC);
+            out.writeInt(size);
+            out.writeInt(winLength);
+            out.writeInt(gameCount);
+            out.writeInt(nextSegmentId);
+            out.writeInt(segments.size());
+            for (Segment segment : segments) {
+                out.writeInt(segment.id);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, META))) {
+            throw new IOException("Cannot update " + META + " in " + directory);
+        }
+    }
+
+    private void mapOutcomes() throws IOException {
+        outcomeView = outcomes.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, gameCount);
+    }
+
+    private File segmentFile(int id) {
+        return new File(directory, "segment-" + id + ".idx");
+    }
+
+    // Stable LSD radix sort by signed hash, so ids stay in increasing order within a hash
+    private static void sortPostings(long[] hashes, int[] ids, int n) {
+        long[] hashSource = hashes;
+        int[] idSource = ids;
+        long[] hashTarget = new long[n];
+        int[] idTarget = new int[n];
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 64; shift += 8) {
+            int flip = shift == 56 ? 0x80 : 0;
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[((int) (hashSource[i] >>> shift) & 0xFF ^ flip) + 1]++;
+            }
+            if (counts[((int) (hashSource[0] >>> shift) & 0xFF ^ flip) + 1] == n) {
+                continue;
+            }
+            for (int i = 0; i < 256; i++) {
+                counts[i + 1] += counts[i];
+            }
+            for (int i = 0; i < n; i++) {
+                int digit = (int) (hashSource[i] >>> shift) & 0xFF ^ flip;
+                int target = counts[digit]++;
+                hashTarget[target] = hashSource[i];
+                idTarget[target] = idSource[i];
+            }
+            long[] hashSwap = hashSource;
+            hashSource = hashTarget;
+            hashTarget = hashSwap;
+            int[] idSwap = idSource;
+            idSource = idTarget;
+            idTarget = idSwap;
+        }
+        if (hashSource != hashes) {
+            System.arraycopy(hashSource, 0, hashes, 0, n);
+            System.arraycopy(idSource, 0, ids, 0, n);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.tictactoe;
+
+// Depth-first proof-number search (df-pn) for K-in-a-row positions of up to 8x8 cells.
+// Draws are resolved with two passes: "can the side to move win?" and then
+// "can the opponent win?". Search state lives in a fixed-size transposition table,
+// so an interrupted or evicted search simply resumes from whatever is still cached.
+public class ProofNumberSolver {
+    public enum Outcome {
+        WIN, LOSS, DRAW, UNKNOWN
+    }
+
+    public interface ProgressListener {
+        void onProgress(int proofNumber, int disproofNumber, long nodes, long nodesPerSecond);
+    }
+
+    public static final class Result {
+        private final Outcome outcome;
+        private final int move;
+        private final int size;
+        private final long nodes;
+        private final long elapsedNanos;
+
+        Result(Outcome outcome, int move, int size, long nodes, long elapsedNanos) {
+            this.outcome = outcome;
+            this.move = move;
+            this.size = size;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // Outcome for the side to move at the root
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        // Proof move as {row, col}, or null if the root is terminal or unsolved
+        public int[] getMove() {
+            return move < 0 ? null : new int[]{move / size, move % size};
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        public long getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    static final int INF = 100_000_000;
+    private static final int PROGRESS_INTERVAL = 1 << 16;
+    // Symmetric transpositions are common only near the root, where canonical keys pay for themselves
+    private static final int CANONICAL_STONES = 6;
+    private static final int MAX_PLY = BoardGeometry.MAX_CELLS + 1;
+
+    private final int tableMask;
+    private final long[] tableX;
+    private final long[] tableO;
+    private final int[] tablePhi;
+    private final int[] tableDelta;
+    private final int[] tableWork;
+    private final byte[] tableTag;
+
+    private final int[][] childCells = new int[MAX_PLY][BoardGeometry.MAX_CELLS];
+    private final int[][] childPhi = new int[MAX_PLY][BoardGeometry.MAX_CELLS];
+    private final int[][] childDelta = new int[MAX_PLY][BoardGeometry.MAX_CELLS];
+
+    private BoardGeometry geometry;
+    private BoardSymmetry symmetry;
+    private int attacker;
+    private int rootToMove;
+    private long nodes;
+    private long nodeLimit;
+    private boolean aborted;
+    private volatile boolean cancelled;
+    private long startNanos;
+    private int rootPhi;
+    private int rootDelta;
+    private int lastPhi;
+    private int lastDelta;
+    private ProgressListener progressListener;
+
+    public ProofNumberSolver() {
+        this(18);
+    }
+
+    // The transposition table holds 2^tableBits entries (about 30 bytes each)
+    public ProofNumberSolver(int tableBits) {
+        int capacity = 1 << tableBits;
+        tableMask = capacity - 1;
+        tableX = new long[capacity];
+        tableO = new long[capacity];
+        tablePhi = new int[capacity];
+        tableDelta = new int[capacity];
+        tableWork = new int[capacity];
+        tableTag = new byte[capacity];
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(tableTag, (byte) 0);
+    }
+
+    public Result solve(GameLogic gameLogic) {
+        return solve(gameLogic, Long.MAX_VALUE);
+    }
+
+    public Result solve(GameLogic gameLogic, long maxNodes) {
+        return solve(gameLogic.snapshot(), maxNodes);
+    }
+
+    public Result solve(Position position, long maxNodes) {
+        return solve(position.getGeometry(), position.getX(), position.getO(), position.getToMove(), maxNodes);
+    }
+
+    // Runs until the root is solved or maxNodes more nodes have been searched.
+    // Calling again on the same position continues from the cached proof numbers.
+    public Result solve(BoardGeometry geometry, long x, long o, int toMove, long maxNodes) {
+        if (this.geometry != geometry) {
+            clear();
+            this.geometry = geometry;
+            this.symmetry = BoardSymmetry.of(geometry.getSize());
+        }
+        nodes = 0;
+        nodeLimit = maxNodes;
+        aborted = false;
+        cancelled = false;
+        startNanos = System.nanoTime();
+
+        int opponent = other(toMove);
+        long me = stones(x, o, toMove);
+        long them = stones(x, o, opponent);
+        if (geometry.hasLine(me) || geometry.hasLine(them)) {
+            return result(geometry.hasLine(me) ? Outcome.WIN : Outcome.LOSS, -1);
+        }
+        if ((geometry.getFullMask() & ~(x | o)) == 0) {
+            return result(Outcome.DRAW, -1);
+        }
+
+        // Can the side to move force a win?
+        runPass(x, o, toMove, toMove);
+        if (aborted) {
+            return result(Outcome.UNKNOWN, -1);
+        }
+        if (rootPhi == 0) {
+            return result(Outcome.WIN, proofMove(x, o, toMove));
+        }
+
+        // Otherwise, can the opponent force a win?
+        runPass(x, o, toMove, opponent);
+        if (aborted) {
+            return result(Outcome.UNKNOWN, -1);
+        }
+        if (rootPhi == 0) {
+            return result(Outcome.DRAW, proofMove(x, o, toMove));
+        }
+        return result(Outcome.LOSS, firstMove(x, o, toMove));
+    }
+
+    private void runPass(long x, long o, int toMove, int attacker) {
+        this.attacker = attacker;
+        rootToMove = toMove;
+        mid(x, o, toMove, INF, INF, 0);
+        rootPhi = lastPhi;
+        rootDelta = lastDelta;
+    }
+
+    private Result result(Outcome outcome, int move) {
+        return new Result(outcome, move, geometry.getSize(), nodes, System.nanoTime() - startNanos);
+    }
+
+    // Multiple iterative deepening: phi/delta are proof/disproof numbers from the
+    // perspective of the side to move, so OR and AND nodes share one code path.
+    private void mid(long x, long o, int toMove, int thPhi, int thDelta, int ply) {
+        long startNodes = nodes++;
+        if ((nodes & (PROGRESS_INTERVAL - 1)) == 0) {
+            reportProgress();
+        }
+        if (nodes >= nodeLimit || cancelled) {
+            aborted = true;
+        }
+
+        int count = expand(x, o, toMove, ply);
+        if (count < 0) {
+            store(x, o, toMove, lastPhi, lastDelta, 1);
+            return;
+        }
+
+        int[] cells = childCells[ply];
+        int[] phis = childPhi[ply];
+        int[] deltas = childDelta[ply];
+        int next = other(toMove);
+        for (int i = 0; i < count; i++) {
+            long bit = 1L << cells[i];
+            long childX = toMove == GameLogic.PLAYER_X ? x | bit : x;
+            long childO = toMove == GameLogic.PLAYER_O ? o | bit : o;
+            lookup(childX, childO, next);
+            phis[i] = lastPhi;
+            deltas[i] = lastDelta;
+        }
+
+        while (true) {
+            int phi = INF;
+            int delta = 0;
+            int best = 0;
+            int secondDelta = INF;
+            for (int i = 0; i < count; i++) {
+                if (deltas[i] < phi) {
+                    secondDelta = phi;
+                    phi = deltas[i];
+                    best = i;
+                } else if (deltas[i] < secondDelta) {
+                    secondDelta = deltas[i];
+                }
+                delta = Math.min(INF, delta + phis[i]);
+            }
+            if (ply == 0) {
+                rootPhi = phi;
+                rootDelta = delta;
+            }
+            if (phi >= thPhi || delta >= thDelta || aborted) {
+                store(x, o, toMove, phi, delta, (int) Math.min(Integer.MAX_VALUE, nodes - startNodes));
+                lastPhi = phi;
+                lastDelta = delta;
+                return;
+            }
+
+            long childThPhi = (long) thDelta + phis[best] - delta;
+            int childThDelta = Math.min(thPhi, secondDelta == INF ? INF : secondDelta + 1);
+            long bit = 1L << cells[best];
+            long childX = toMove == GameLogic.PLAYER_X ? x | bit : x;
+            long childO = toMove == GameLogic.PLAYER_O ? o | bit : o;
+            mid(childX, childO, next, (int) Math.min(INF, childThPhi), childThDelta, ply + 1);
+            phis[best] = lastPhi;
+            deltas[best] = lastDelta;
+        }
+    }
+
+    // Fills childCells[ply] and returns the count, or -1 for a terminal node
+    // with lastPhi/lastDelta set. Immediate wins and forced blocks prune the move list.
+    private int expand(long x, long o, int toMove, int ply) {
+        long empty = geometry.getFullMask() & ~(x | o);
+        long me = stones(x, o, toMove);
+        long them = stones(x, o, other(toMove));
+
+        if (geometry.winningCells(me, empty) != 0) {
+            return terminal(0, INF);
+        }
+        long threats = geometry.winningCells(them, empty);
+        if (Long.bitCount(threats) > 1) {
+            return terminal(INF, 0);
+        }
+        long defender = stones(x, o, other(attacker));
+        if (empty == 0 || !geometry.hasOpenLine(defender)) {
+            // The attacker can no longer complete any line
+            return toMove == attacker ? terminal(INF, 0) : terminal(0, INF);
+        }
+
+        long moves = threats != 0 ? threats : empty;
+        int[] cells = childCells[ply];
+        int count = 0;
+        while (moves != 0) {
+            cells[count++] = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+        }
+        return count;
+    }
+
+    private int terminal(int phi, int delta) {
+        lastPhi = phi;
+        lastDelta = delta;
+        return -1;
+    }
+
+    private void lookup(long x, long o, int toMove) {
+        if (Long.bitCount(x | o) <= CANONICAL_STONES) {
+            int t = symmetry.canonicalTransform(x, o);
+            x = symmetry.transform(x, t);
+            o = symmetry.transform(o, t);
+        }
+        int index = index(x, o);
+        if (tableTag[index] == tag(toMove) && tableX[index] == x && tableO[index] == o) {
+            lastPhi = tablePhi[index];
+            lastDelta = tableDelta[index];
+            return;
+        }
+        lastPhi = 1;
+        lastDelta = 1;
+    }
+
+    private void store(long x, long o, int toMove, int phi, int delta, int work) {
+        if (Long.bitCount(x | o) <= CANONICAL_STONES) {
+            int t = symmetry.canonicalTransform(x, o);
+            x = symmetry.transform(x, t);
+            o = symmetry.transform(o, t);
+        }
+        int index = index(x, o);
+        byte tag = tag(toMove);
+        boolean sameKey = tableTag[index] == tag && tableX[index] == x && tableO[index] == o;
+        if (!sameKey && tableTag[index] != 0 && tableWork[index] > work) {
+            return;
+        }
+        tableX[index] = x;
+        tableO[index] = o;
+        tablePhi[index] = phi;
+        tableDelta[index] = delta;
+        tableWork[index] = sameKey ? Math.max(work, tableWork[index]) : work;
+        tableTag[index] = tag;
+    }
+
+    // Entries are only valid for the same attacker and side to move
+    private byte tag(int toMove) {
+        return (byte) (attacker << 2 | toMove);
+    }
+
+    private int index(long x, long o) {
+        long h = x * 0x9E3779B97F4A7C15L ^ (o + attacker) * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        return (int) h & tableMask;
+    }
+
+    // A move whose child is proven for the side to move, re-solving children
+    // whose entries were evicted from the table
+    private int proofMove(long x, long o, int toMove) {
+        long empty = geometry.getFullMask() & ~(x | o);
+        long wins = geometry.winningCells(stones(x, o, toMove), empty);
+        if (wins != 0) {
+            return Long.numberOfTrailingZeros(wins);
+        }
+        int count = expand(x, o, toMove, 0);
+        if (count < 0) {
+            return firstMove(x, o, toMove);
+        }
+        int[] cells = childCells[0].clone();
+        int next = other(toMove);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                long bit = 1L << cells[i];
+                long childX = toMove == GameLogic.PLAYER_X ? x | bit : x;
+                long childO = toMove == GameLogic.PLAYER_O ? o | bit : o;
+                if (pass == 0) {
+                    lookup(childX, childO, next);
+                } else {
+                    mid(childX, childO, next, INF, INF, 1);
+                }
+                if (lastDelta == 0) {
+                    return cells[i];
+                }
+            }
+        }
+        return cells[0];
+    }
+
+    private int firstMove(long x, long o, int toMove) {
+        long empty = geometry.getFullMask() & ~(x | o);
+        long threats = geometry.winningCells(stones(x, o, other(toMove)), empty);
+        long moves = threats != 0 ? threats : empty;
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    private void reportProgress() {
+        if (progressListener == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        long nodesPerSecond = elapsed == 0 ? 0 : nodes * 1_000_000_000L / elapsed;
+        if (rootToMove == attacker) {
+            progressListener.onProgress(rootPhi, rootDelta, nodes, nodesPerSecond);
+        } else {
+            progressListener.onProgress(rootDelta, rootPhi, nodes, nodesPerSecond);
+        }
+    }
+
+    private static long stones(long x, long o, int player) {
+        return player == GameLogic.PLAYER_X ? x : o;
+    }
+
+    private static int other(int player) {
+        return player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+    }
+}
@@ -0,0 +1,254 @@
+package com.tictactoe;
+
+// Rule variants over Position. Each variant is a final class with its own move
+// generator and terminal check, held by GameLogic and AIPlayer for the whole game.
+// The app switches variants in one process, so a call through Rules goes megamorphic.
+// The hot loops, Perft's counts and AIPlayer's variant search, pick a routine per
+// variant at the root instead, typed with its final class so each call site has one
+// receiver; RulesBenchmark times them in that mixed case. Position.play() remains
+// the built-in standard rules; STANDARD delegates to it.
+// Moves are cells, plus OTHER_SYMBOL for the opponent's symbol where allowed.
+public interface Rules {
+    int OTHER_SYMBOL = 64;
+    int CELL_MASK = OTHER_SYMBOL - 1;
+
+    Rules STANDARD = new Standard();
+    Rules MISERE = new Misere();
+    Rules WILD = new Wild();
+    Rules GRAVITY = new Gravity();
+
+    String getName();
+
+    // Cells the side to move may fill; none once the game is over
+    long getLegalCells(Position position);
+
+    boolean allowsOtherSymbol();
+
+    // Throws IllegalArgumentException for an illegal move, like Position.play()
+    Position play(Position position, int move);
+
+    // Cell that choosing cell actually fills, or -1 if it cannot be played
+    int resolveCell(Position position, int cell);
+
+    // Position for a board set up directly rather than played to
+    Position arrange(BoardGeometry geometry, long x, long o, int toMove);
+
+    // Whether rotating or reflecting the board preserves move values
+    boolean isSymmetric();
+
+    final class Standard implements Rules {
+        private Standard() {
+        }
+
+        @Override
+        public String getName() {
+            return "standard";
+        }
+
+        @Override
+        public long getLegalCells(Position position) {
+            return position.isTerminal() ? 0 : position.getEmptyCells();
+        }
+
+        @Override
+        public boolean allowsOtherSymbol() {
+            return false;
+        }
+
+        @Override
+        public Position play(Position position, int move) {
+            return position.play(move);
+        }
+
+        @Override
+        public int resolveCell(Position position, int cell) {
+            return (getLegalCells(position) & (1L << cell)) != 0 ? cell : -1;
+        }
+
+        @Override
+        public Position arrange(BoardGeometry geometry, long x, long o, int toMove) {
+            return Position.of(geometry, x, o, toMove);
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            return true;
+        }
+    }
+
+    // Completing a line of your own loses
+    final class Misere implements Rules {
+        private Misere() {
+        }
+
+        @Override
+        public String getName() {
+            return "misere";
+        }
+
+        @Override
+        public long getLegalCells(Position position) {
+            return position.isTerminal() ? 0 : position.getEmptyCells();
+        }
+
+        @Override
+        public boolean allowsOtherSymbol() {
+            return false;
+        }
+
+        @Override
+        public Position play(Position position, int move) {
+            long bit = 1L << move;
+            if (move > CELL_MASK || (getLegalCells(position) & bit) == 0) {
+                throw new IllegalArgumentException("Illegal move " + move);
+            }
+            BoardGeometry geometry = position.getGeometry();
+            if (position.getToMove() == GameLogic.PLAYER_X) {
+                long x = position.getX() | bit;
+                return position.next(x, position.getO(),
+                        geometry.completesLine(x, move) ? GameLogic.PLAYER_O : GameLogic.EMPTY);
+            }
+            long o = position.getO() | bit;
+            return position.next(position.getX(), o,
+                    geometry.completesLine(o, move) ? GameLogic.PLAYER_X : GameLogic.EMPTY);
+        }
+
+        @Override
+        public int resolveCell(Position position, int cell) {
+            return (getLegalCells(position) & (1L << cell)) != 0 ? cell : -1;
+        }
+
+        @Override
+        public Position arrange(BoardGeometry geometry, long x, long o, int toMove) {
+            int winner = geometry.hasLine(x) ? GameLogic.PLAYER_O
+                    : geometry.hasLine(o) ? GameLogic.PLAYER_X : GameLogic.EMPTY;
+            return Position.of(geometry, x, o, toMove, winner);
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            return true;
+        }
+    }
+
+    // Either side may place either symbol; whoever completes a line of either wins.
+    // Position's x and o are the symbols on the board, not who placed them.
+    final class Wild implements Rules {
+        private Wild() {
+        }
+
+        @Override
+        public String getName() {
+            return "wild";
+        }
+
+        @Override
+        public long getLegalCells(Position position) {
+            return position.isTerminal() ? 0 : position.getEmptyCells();
+        }
+
+        @Override
+        public boolean allowsOtherSymbol() {
+            return true;
+        }
+
+        @Override
+        public Position play(Position position, int move) {
+            int cell = move & CELL_MASK;
+            long bit = 1L << cell;
+            if (move > (OTHER_SYMBOL | CELL_MASK) || (getLegalCells(position) & bit) == 0) {
+                throw new IllegalArgumentException("Illegal move " + move);
+            }
+            boolean placesX = (position.getToMove() == GameLogic.PLAYER_X) == ((move & OTHER_SYMBOL) == 0);
+            long x = position.getX();
+            long o = position.getO();
+            boolean wins;
+            if (placesX) {
+                x |= bit;
+                wins = position.getGeometry().completesLine(x, cell);
+            } else {
+                o |= bit;
+                wins = position.getGeometry().completesLine(o, cell);
+            }
+            return position.next(x, o, wins ? position.getToMove() : GameLogic.EMPTY);
+        }
+
+        @Override
+        public int resolveCell(Position position, int cell) {
+            return (getLegalCells(position) & (1L << cell)) != 0 ? cell : -1;
+        }
+
+        // A line on a set-up board was completed by whoever moved last
+        @Override
+        public Position arrange(BoardGeometry geometry, long x, long o, int toMove) {
+            boolean line = geometry.hasLine(x) || geometry.hasLine(o);
+            int lastMover = toMove == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+            return Position.of(geometry, x, o, toMove, line ? lastMover : GameLogic.EMPTY);
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            return true;
+        }
+    }
+
+    // Stones drop to the lowest empty cell of their column, as in Connect Four
+    final class Gravity implements Rules {
+        private Gravity() {
+        }
+
+        @Override
+        public String getName() {
+            return "gravity";
+        }
+
+        // The bottom row, plus every empty cell directly above a stone
+        @Override
+        public long getLegalCells(Position position) {
+            if (position.isTerminal()) {
+                return 0;
+            }
+            int size = position.getSize();
+            long full = position.getGeometry().getFullMask();
+            long occupied = position.getX() | position.getO();
+            long bottom = full & ~(full >>> size);
+            return (bottom | occupied >>> size) & full & ~occupied;
+        }
+
+        @Override
+        public boolean allowsOtherSymbol() {
+            return false;
+        }
+
+        @Override
+        public Position play(Position position, int move) {
+            if (move > CELL_MASK || (getLegalCells(position) & (1L << move)) == 0) {
+                throw new IllegalArgumentException("Illegal move " + move);
+            }
+            return position.play(move);
+        }
+
+        // The legal cell in the chosen cell's column
+        @Override
+        public int resolveCell(Position position, int cell) {
+            int size = position.getSize();
+            long column = 0;
+            for (int row = 0, col = cell % size; row < size; row++) {
+                column |= 1L << (row * size + col);
+            }
+            long legal = getLegalCells(position) & column;
+            return legal == 0 ? -1 : Long.numberOfTrailingZeros(legal);
+        }
+
+        @Override
+        public Position arrange(BoardGeometry geometry, long x, long o, int toMove) {
+            return Position.of(geometry, x, o, toMove);
+        }
+
+        // Only left-right mirroring preserves gravity
+        @Override
+        public boolean isSymmetric() {
+            return false;
+        }
+    }
+}
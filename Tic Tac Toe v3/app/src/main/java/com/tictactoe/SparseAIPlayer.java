@@ -0,0 +1,287 @@
+package com.tictactoe;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// AI for the unbounded board. Only the board's candidate cells, the empty cells near
+// stones, are considered, each valued by the lines it would make in the four
+// directions for either side. Every candidate sits in two indexed max-heaps, one per
+// side to move, and a move only rescores the cells it can affect: those within
+// winLength along its lines and the new candidates around it. A turn therefore costs
+// the same however long the game has run; only an undo or a new game rebuilds.
+// EASY plays next to the last stone at random. MEDIUM builds its own lines and only
+// defends against an immediate win. HARD weighs both sides, attack first.
+public class SparseAIPlayer {
+    // A line value per direction: 1 << (22 - 5 * missing - (one end open ? 3 : 0))
+    private static final int WIN_VALUE = 1 << 22;
+    // Random low bits of a priority, to break ties between equal scores
+    private static final int TIE_BITS = 20;
+
+    // Indexed max-heap of cells by priority
+    private static final class CellHeap {
+        private long[] cells = new long[64];
+        private long[] priorities = new long[64];
+        // Heap index plus one, by cell
+        private final LongIntMap indexes = new LongIntMap();
+        private int size;
+
+        void set(long cell, long priority) {
+            int index = indexes.get(cell) - 1;
+            if (index < 0) {
+                if (size == cells.length) {
+                    cells = Arrays.copyOf(cells, size * 2);
+                    priorities = Arrays.copyOf(priorities, size * 2);
+                }
+                index = size++;
+                cells[index] = cell;
+                priorities[index] = priority;
+                siftUp(index);
+            } else if (priority > priorities[index]) {
+                priorities[index] = priority;
+                siftUp(index);
+            } else {
+                priorities[index] = priority;
+                siftDown(index);
+            }
+        }
+
+        void remove(long cell) {
+            int index = indexes.get(cell) - 1;
+            if (index < 0) {
+                return;
+            }
+            indexes.remove(cell);
+            size--;
+            if (index < size) {
+                long last = priorities[size];
+                cells[index] = cells[size];
+                priorities[index] = last;
+                indexes.put(cells[index], index + 1);
+                siftUp(index);
+                siftDown(indexes.get(cells[index]) - 1);
+            }
+        }
+
+        long peek() {
+            return cells[0];
+        }
+
+        void clear() {
+            indexes.clear();
+            size = 0;
+        }
+
+        private void siftUp(int index) {
+            long cell = cells[index];
+            long priority = priorities[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (priorities[parent] >= priority) {
+                    break;
+                }
+                move(parent, index);
+                index = parent;
+            }
+            cells[index] = cell;
+            priorities[index] = priority;
+            indexes.put(cell, index + 1);
+        }
+
+        private void siftDown(int index) {
+            long cell = cells[index];
+            long priority = priorities[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && priorities[child + 1] > priorities[child]) {
+                    child++;
+                }
+                if (priorities[child] <= priority) {
+                    break;
+                }
+                move(child, index);
+                index = child;
+            }
+            cells[index] = cell;
+            priorities[index] = priority;
+            indexes.put(cell, index + 1);
+        }
+
+        private void move(int from, int to) {
+            cells[to] = cells[from];
+            priorities[to] = priorities[from];
+            indexes.put(cells[to], to + 1);
+        }
+    }
+
+    private final AIPlayer.Difficulty difficulty;
+    private final Random random;
+    private final CellHeap forX = new CellHeap();
+    private final CellHeap forO = new CellHeap();
+    private SparseBoard syncedBoard;
+    private int syncedMoves;
+    private int syncedChanges;
+    private long[] candidates = new long[64];
+
+    public SparseAIPlayer(AIPlayer.Difficulty difficulty) {
+        this(difficulty, new Random());
+    }
+
+    public SparseAIPlayer(AIPlayer.Difficulty difficulty, long seed) {
+        this(difficulty, new Random(seed));
+    }
+
+    private SparseAIPlayer(AIPlayer.Difficulty difficulty, Random random) {
+        this.difficulty = difficulty;
+        this.random = random;
+    }
+
+    // {x, y} for the side to move, or null once the game is over
+    public int[] getMove(SparseBoard board) {
+        if (board.isGameOver()) {
+            return null;
+        }
+        if (board.getMoveCount() == 0) {
+            return new int[]{0, 0};
+        }
+        if (difficulty == AIPlayer.Difficulty.EASY) {
+            return getEasyMove(board);
+        }
+        sync(board);
+        long best = (board.getCurrentPlayer() == GameLogic.PLAYER_X ? forX : forO).peek();
+        return new int[]{SparseBoard.keyX(best), SparseBoard.keyY(best)};
+    }
+
+    private int[] getEasyMove(SparseBoard board) {
+        long last = board.getMove(board.getMoveCount() - 1);
+        int side = 2 * SparseBoard.CANDIDATE_RADIUS + 1;
+        for (int attempt = 0; attempt < side * side; attempt++) {
+            int x = SparseBoard.keyX(last) + random.nextInt(side) - SparseBoard.CANDIDATE_RADIUS;
+            int y = SparseBoard.keyY(last) + random.nextInt(side) - SparseBoard.CANDIDATE_RADIUS;
+            if (board.isValidMove(x, y)) {
+                return new int[]{x, y};
+            }
+        }
+        // Crowded around the last stone: any candidate
+        int count = loadCandidates(board);
+        long key = candidates[random.nextInt(count)];
+        return new int[]{SparseBoard.keyX(key), SparseBoard.keyY(key)};
+    }
+
+    // Rescores the cells near the moves made since the last call; after an undo or a new
+    // game, every candidate
+    private void sync(SparseBoard board) {
+        int moves = board.getMoveCount();
+        int changes = board.getChangeCount();
+        if (board != syncedBoard || changes - syncedChanges != moves - syncedMoves) {
+            forX.clear();
+            forO.clear();
+            int count = loadCandidates(board);
+            for (int i = 0; i < count; i++) {
+                rescore(board, candidates[i]);
+            }
+        } else {
+            int reach = board.getWinLength();
+            int radius = SparseBoard.CANDIDATE_RADIUS;
+            for (int i = syncedMoves; i < moves; i++) {
+                long key = board.getMove(i);
+                int x = SparseBoard.keyX(key);
+                int y = SparseBoard.keyY(key);
+                // The stone itself and the candidates it added
+                for (int dy = -radius; dy <= radius; dy++) {
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        rescore(board, SparseBoard.key(x + dx, y + dy));
+                    }
+                }
+                for (int d = 0; d < SparseBoard.DX.length; d++) {
+                    for (int step = radius + 1; step <= reach; step++) {
+                        rescore(board, SparseBoard.key(x + step * SparseBoard.DX[d], y + step * SparseBoard.DY[d]));
+                        rescore(board, SparseBoard.key(x - step * SparseBoard.DX[d], y - step * SparseBoard.DY[d]));
+                    }
+                }
+            }
+        }
+        syncedBoard = board;
+        syncedMoves = moves;
+        syncedChanges = changes;
+    }
+
+    private int loadCandidates(SparseBoard board) {
+        int count = board.getCandidateCount();
+        if (candidates.length < count) {
+            candidates = new long[Math.max(count, candidates.length * 2)];
+        }
+        return board.getCandidates(candidates);
+    }
+
+    private void rescore(SparseBoard board, long key) {
+        int x = SparseBoard.keyX(key);
+        int y = SparseBoard.keyY(key);
+        if (!board.isCandidate(x, y)) {
+            forX.remove(key);
+            forO.remove(key);
+            return;
+        }
+        int valueX = lineValue(board, x, y, GameLogic.PLAYER_X);
+        int valueO = lineValue(board, x, y, GameLogic.PLAYER_O);
+        long tie = random.nextInt(1 << TIE_BITS);
+        forX.set(key, score(valueX, valueO) << TIE_BITS | tie);
+        forO.set(key, score(valueO, valueX) << TIE_BITS | tie);
+    }
+
+    private long score(long attack, long defense) {
+        if (difficulty == AIPlayer.Difficulty.HARD) {
+            return 2 * attack + defense;
+        }
+        return attack >= WIN_VALUE ? 2L * WIN_VALUE : defense >= WIN_VALUE ? WIN_VALUE : attack;
+    }
+
+    // What a stone of player's at (x, y) would make of the four lines through it. Looks
+    // at most winLength cells away.
+    static int lineValue(SparseBoard board, int x, int y, int player) {
+        int winLength = board.getWinLength();
+        int value = 0;
+        for (int d = 0; d < SparseBoard.DX.length; d++) {
+            int dx = SparseBoard.DX[d];
+            int dy = SparseBoard.DY[d];
+            int forward = board.countRun(x, y, dx, dy, player, winLength - 1);
+            int back = board.countRun(x, y, -dx, -dy, player, winLength - 1);
+            int length = forward + back + 1;
+            if (length >= winLength) {
+                value += WIN_VALUE;
+                continue;
+            }
+            int open = 0;
+            int room = length;
+            for (int step = forward + 1; step <= forward + winLength - length; step++) {
+                int stone = board.getStone(x + step * dx, y + step * dy);
+                if (stone != GameLogic.EMPTY && stone != player) {
+                    break;
+                }
+                if (step == forward + 1) {
+                    open++;
+                }
+                room++;
+            }
+            for (int step = back + 1; step <= back + winLength - length; step++) {
+                int stone = board.getStone(x - step * dx, y - step * dy);
+                if (stone != GameLogic.EMPTY && stone != player) {
+                    break;
+                }
+                if (step == back + 1) {
+                    open++;
+                }
+                room++;
+            }
+            // A line that can never reach winLength is worth nothing
+            if (room < winLength) {
+                continue;
+            }
+            int shift = 22 - 5 * (winLength - length) - (open == 2 ? 0 : 3);
+            value += shift >= 0 ? 1 << shift : 1;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,221 @@
+package com.tictactoe;
+
+// Unbounded board for K-in-a-row: play may extend in any direction. Stones live in a
+// LongIntMap keyed by packed (x, y) coordinates, so memory follows the number of stones
+// rather than the area they span, and nothing is allocated per move once the maps have
+// grown. A move only checks the four lines through it, and the empty cells near stones
+// are kept up to date as candidates for the AI. There are no draws.
+public class SparseBoard {
+    // Keeps neighbours and whole lines of any cell inside the int range
+    public static final int MAX_COORDINATE = 1 << 30;
+    // Candidates are the empty cells within this many steps of a stone, in any direction
+    public static final int CANDIDATE_RADIUS = 2;
+
+    static final int[] DX = {1, 0, 1, 1};
+    static final int[] DY = {0, 1, 1, -1};
+
+    private final int winLength;
+    private final LongIntMap stones = new LongIntMap();
+    // Empty cells near stones, with the number of stones within CANDIDATE_RADIUS
+    private final LongIntMap candidates = new LongIntMap();
+    private long[] moves = new long[64];
+    private int moveCount;
+    private int currentPlayer = GameLogic.PLAYER_X;
+    private int winner = GameLogic.EMPTY;
+    private long winFrom;
+    private long winTo;
+    // Bumped by every change, undo and reset included
+    private int changeCount;
+
+    public SparseBoard(int winLength) {
+        if (winLength < 2) {
+            throw new IllegalArgumentException("Invalid win length " + winLength);
+        }
+        this.winLength = winLength;
+    }
+
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int keyY(long key) {
+        return (int) key;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getStone(int x, int y) {
+        return stones.get(key(x, y));
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isGameOver() {
+        return winner != GameLogic.EMPTY;
+    }
+
+    // Ends of the winning line, as keys
+    public long getWinFrom() {
+        return winFrom;
+    }
+
+    public long getWinTo() {
+        return winTo;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public long getMove(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("No move " + index);
+        }
+        return moves[index];
+    }
+
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    public boolean isValidMove(int x, int y) {
+        return winner == GameLogic.EMPTY && Math.abs(x) <= MAX_COORDINATE && Math.abs(y) <= MAX_COORDINATE
+                && stones.get(key(x, y)) == GameLogic.EMPTY;
+    }
+
+    public boolean makeMove(int x, int y) {
+        if (!isValidMove(x, y)) {
+            return false;
+        }
+        long key = key(x, y);
+        int player = currentPlayer;
+        stones.put(key, player);
+        candidates.remove(key);
+        for (int dy = -CANDIDATE_RADIUS; dy <= CANDIDATE_RADIUS; dy++) {
+            for (int dx = -CANDIDATE_RADIUS; dx <= CANDIDATE_RADIUS; dx++) {
+                long near = key(x + dx, y + dy);
+                if (stones.get(near) == GameLogic.EMPTY) {
+                    candidates.add(near, 1);
+                }
+            }
+        }
+        if (moveCount == moves.length) {
+            long[] grown = new long[moves.length * 2];
+            System.arraycopy(moves, 0, grown, 0, moveCount);
+            moves = grown;
+        }
+        moves[moveCount++] = key;
+        changeCount++;
+
+        // Only a line through the new stone can have been completed
+        for (int d = 0; d < DX.length; d++) {
+            int back = countRun(x, y, -DX[d], -DY[d], player, winLength - 1);
+            int forward = countRun(x, y, DX[d], DY[d], player, winLength - 1);
+            if (back + forward + 1 >= winLength) {
+                winner = player;
+                winFrom = key(x - back * DX[d], y - back * DY[d]);
+                winTo = key(x + forward * DX[d], y + forward * DY[d]);
+                return true;
+            }
+        }
+        currentPlayer = currentPlayer == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        return true;
+    }
+
+    // Whether the side to move would complete a line at (x, y)
+    public boolean isWinningMove(int x, int y) {
+        if (!isValidMove(x, y)) {
+            return false;
+        }
+        for (int d = 0; d < DX.length; d++) {
+            if (countRun(x, y, -DX[d], -DY[d], currentPlayer, winLength - 1)
+                    + countRun(x, y, DX[d], DY[d], currentPlayer, winLength - 1) + 1 >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean canUndo() {
+        return moveCount > 0;
+    }
+
+    public void undo() {
+        if (moveCount == 0) {
+            return;
+        }
+        long key = moves[--moveCount];
+        int x = keyX(key);
+        int y = keyY(key);
+        currentPlayer = stones.get(key);
+        stones.remove(key);
+        winner = GameLogic.EMPTY;
+        int near = 0;
+        for (int dy = -CANDIDATE_RADIUS; dy <= CANDIDATE_RADIUS; dy++) {
+            for (int dx = -CANDIDATE_RADIUS; dx <= CANDIDATE_RADIUS; dx++) {
+                long cell = key(x + dx, y + dy);
+                if (stones.get(cell) == GameLogic.EMPTY) {
+                    candidates.add(cell, -1);
+                } else {
+                    near++;
+                }
+            }
+        }
+        candidates.put(key, near);
+        changeCount++;
+    }
+
+    public void resetBoard() {
+        stones.clear();
+        candidates.clear();
+        moveCount = 0;
+        currentPlayer = GameLogic.PLAYER_X;
+        winner = GameLogic.EMPTY;
+        changeCount++;
+    }
+
+    public boolean isCandidate(int x, int y) {
+        return candidates.get(key(x, y)) != 0;
+    }
+
+    public int getCandidateCount() {
+        return candidates.size();
+    }
+
+    // Copies the candidate cells into out, which must hold getCandidateCount() keys
+    public int getCandidates(long[] out) {
+        int count = 0;
+        for (int slot = 0; slot < candidates.getCapacity(); slot++) {
+            if (candidates.valueAt(slot) != 0) {
+                out[count++] = candidates.keyAt(slot);
+            }
+        }
+        return count;
+    }
+
+    // Bytes held by the maps and the move list
+    long getFootprintBytes() {
+        return (stones.getCapacity() + candidates.getCapacity()) * 12L + moves.length * 8L;
+    }
+
+    // Stones of player in a row from (x, y), not counting (x, y) itself, up to max
+    public int countRun(int x, int y, int dx, int dy, int player, int max) {
+        int count = 0;
+        while (count < max && stones.get(key(x + (count + 1) * dx, y + (count + 1) * dy)) == player) {
+            count++;
+        }
+        return count;
+    }
+}
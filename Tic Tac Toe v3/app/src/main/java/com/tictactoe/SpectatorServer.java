@@ -0,0 +1,345 @@
+package com.tictactoe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Broadcasts a live game to many spectators over non-blocking sockets. The game thread
+// only appends to a MoveEventRing; one selector thread copies events to each spectator
+// at its own pace, several frames per write. A spectator that falls a ring's length
+// behind is resynchronised from a snapshot, and one that stops draining its socket
+// is dropped, so slow readers never hold up the game or each other.
+//
+// Frames are big-endian longs. MOVE, UNDO and RESET frames are a single MoveEventRing
+// event (UNDO carries the emptied cell, RESET size << 8 | winLength as data). SNAPSHOT frames are a header event
+// with data size << 8 | winLength and player = side to move, followed by the X and O
+// bitboards; move events continue from the header's sequence.
+public class SpectatorServer implements GameLogic.MoveListener, Closeable {
+    public static final int TYPE_SNAPSHOT = 3;
+
+    private static final int OUTPUT_BYTES = 512;
+    private static final long DROP_AFTER_NANOS = 2_000_000_000L;
+    private static final int MAX_RESYNCS = 8;
+
+    private static final int DROP = 0;
+    private static final int IDLE = 1;
+    private static final int BUSY = 2;
+
+    private static final class Spectator {
+        final SocketChannel channel;
+        SelectionKey key;
+        final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BYTES);
+        long cursor = -1;
+        long blockedSince;
+        int resyncs;
+
+        Spectator(SocketChannel channel) {
+            this.channel = channel;
+            output.flip();
+        }
+    }
+
+    private final MoveEventRing ring;
+    private final int winLength;
+    private final int size;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final ByteBuffer readScratch = ByteBuffer.allocateDirect(256);
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    private volatile boolean running = true;
+    // Seqlock over a copy of the mirror for resyncs, so moves allocate nothing: the
+    // version is odd while the game thread is rewriting the copy
+    private volatile long snapshotVersion;
+    private volatile long snapshotSequence;
+    private volatile long snapshotX;
+    private volatile long snapshotO;
+    private volatile int snapshotToMove = GameLogic.PLAYER_X;
+    private Thread thread;
+
+    // Producer-side mirror of the stones, advanced in O(1) per move. It takes the symbol
+    // from each event and never judges lines, so it follows every Rules variant.
+    private long x;
+    private long o;
+    private int toMove = GameLogic.PLAYER_X;
+
+    private volatile int spectatorCount;
+    private volatile long dropped;
+    private volatile long resynced;
+
+    public SpectatorServer(InetSocketAddress address, int size, int winLength, int ringCapacity) throws IOException {
+        if (size * size > BoardGeometry.MAX_CELLS) {
+            throw new IllegalArgumentException("Snapshots hold at most " + BoardGeometry.MAX_CELLS + " cells");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        ring = new MoveEventRing(ringCapacity);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().bind(address, 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "spectator-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // player is the symbol placed, which under wild rules need not be the mover's
+    @Override
+    public void onMoveMade(int row, int col, int player) {
+        long bit = 1L << (row * size + col);
+        if (player == GameLogic.PLAYER_X) {
+            x |= bit;
+        } else {
+            o |= bit;
+        }
+        toMove = toMove == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+        long sequence = ring.publish(MoveEventRing.TYPE_MOVE, player, row * size + col);
+        publishSnapshot(sequence + 1);
+        wake();
+    }
+
+    @Override
+    public void onMoveUndone(int row, int col, int player) {
+        long bit = 1L << (row * size + col);
+        x &= ~bit;
+        o &= ~bit;
+        toMove = player;
+        long sequence = ring.publish(MoveEventRing.TYPE_UNDO, player, row * size + col);
+        publishSnapshot(sequence + 1);
+        wake();
+    }
+
+    @Override
+    public void onBoardReset() {
+        x = 0;
+        o = 0;
+        toMove = GameLogic.PLAYER_X;
+        long sequence = ring.publish(MoveEventRing.TYPE_RESET, 0, size << 8 | winLength);
+        publishSnapshot(sequence + 1);
+        wake();
+    }
+
+    public long getPublished() {
+        return ring.getPublished();
+    }
+
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public long getResyncCount() {
+        return resynced;
+    }
+
+    private void publishSnapshot(long sequence) {
+        long version = snapshotVersion;
+        snapshotVersion = version + 1;
+        snapshotSequence = sequence;
+        snapshotX = x;
+        snapshotO = o;
+        snapshotToMove = toMove;
+        snapshotVersion = version + 2;
+    }
+
+    private void wake() {
+        // Only pay for a wakeup when the selector thread is actually parked. The ring's
+        // volatile publish before this load pairs with run() setting sleeping before it
+        // reads published, so at least one side sees the other.
+        if (sleeping.get()) {
+            selector.wakeup();
+        }
+    }
+
+    private void run() {
+        long served = -1;
+        boolean busy = false;
+        try {
+            while (running) {
+                sleeping.set(true);
+                if (!busy && ring.getPublished() == served) {
+                    selector.select(100);
+                } else {
+                    selector.selectNow();
+                }
+                sleeping.set(false);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        drainInput(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                }
+
+                served = ring.getPublished();
+                busy = false;
+                long now = System.nanoTime();
+                for (int i = spectators.size() - 1; i >= 0; i--) {
+                    int state = serve(spectators.get(i), served, now);
+                    if (state == DROP) {
+                        drop(i);
+                    } else if (state == BUSY) {
+                        busy = true;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            running = false;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Spectator spectator = new Spectator(channel);
+            spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+            spectators.add(spectator);
+        }
+        spectatorCount = spectators.size();
+    }
+
+    // Spectators send nothing; reading only detects disconnects
+    private void drainInput(SelectionKey key) {
+        Spectator spectator = (Spectator) key.attachment();
+        try {
+            readScratch.clear();
+            if (spectator.channel.read(readScratch) < 0) {
+                spectator.cursor = Long.MIN_VALUE;
+            }
+        } catch (IOException e) {
+            spectator.cursor = Long.MIN_VALUE;
+        }
+    }
+
+    // BUSY if the spectator has more events ready to send right away
+    private int serve(Spectator spectator, long published, long now) {
+        if (spectator.cursor == Long.MIN_VALUE) {
+            return DROP;
+        }
+        try {
+            ByteBuffer output = spectator.output;
+            if (output.hasRemaining()) {
+                spectator.channel.write(output);
+                if (output.hasRemaining()) {
+                    return now - spectator.blockedSince < DROP_AFTER_NANOS ? IDLE : DROP;
+                }
+            }
+            if (spectator.cursor >= published) {
+                return IDLE;
+            }
+
+            output.clear();
+            if (spectator.cursor < 0 || !ring.isAvailable(spectator.cursor)) {
+                if (spectator.cursor >= 0 && ++spectator.resyncs > MAX_RESYNCS) {
+                    return DROP;
+                }
+                writeSnapshot(spectator);
+            }
+            while (spectator.cursor < published && output.remaining() >= 8) {
+                long event = ring.get(spectator.cursor);
+                if (event == MoveEventRing.OVERWRITTEN) {
+                    break;
+                }
+                output.putLong(event);
+                spectator.cursor++;
+            }
+            output.flip();
+            spectator.channel.write(output);
+            if (output.hasRemaining()) {
+                // Socket buffer is full: wait for OP_WRITE, drop if it never drains
+                spectator.blockedSince = now;
+                spectator.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return IDLE;
+            }
+            return spectator.cursor < published ? BUSY : IDLE;
+        } catch (IOException e) {
+            return DROP;
+        }
+    }
+
+    private void writeSnapshot(Spectator spectator) {
+        long version;
+        long sequence;
+        long xStones;
+        long oStones;
+        int side;
+        do {
+            version = snapshotVersion;
+            sequence = snapshotSequence;
+            xStones = snapshotX;
+            oStones = snapshotO;
+            side = snapshotToMove;
+        } while ((version & 1) != 0 || version != snapshotVersion);
+        ByteBuffer output = spectator.output;
+        output.putLong(MoveEventRing.encode(TYPE_SNAPSHOT, side, size << 8 | winLength, sequence));
+        output.putLong(xStones);
+        output.putLong(oStones);
+        if (spectator.cursor >= 0) {
+            resynced++;
+        }
+        spectator.cursor = sequence;
+    }
+
+    private void drop(int index) {
+        Spectator spectator = spectators.remove(index);
+        try {
+            spectator.channel.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+        dropped++;
+        spectatorCount = spectators.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Spectator spectator : spectators) {
+            spectator.channel.close();
+        }
+        serverChannel.close();
+        selector.close();
+    }
+}
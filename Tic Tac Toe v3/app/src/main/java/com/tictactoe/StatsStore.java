@@ -0,0 +1,299 @@
+package com.tictactoe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Per-mode player statistics with write-behind persistence. Results are recorded in
+// memory on the UI thread; a background writer saves the latest counters a couple of
+// seconds later, batching games that end in between. The file is a few hundred bytes,
+// loaded with one read and replaced atomically, so the UI thread never touches disk.
+// Everything except the writer is confined to the UI thread.
+public class StatsStore {
+    public static final int TWO_PLAYER = 0;
+    public static final int BUCKET_COUNT = 1 + AIPlayer.Difficulty.values().length;
+
+    private static final int MAGIC = 0x54545353;
+    private static final int VERSION = 1;
+    private static final long FLUSH_DELAY_MILLIS = 2000;
+
+    private static final int GAMES = 0;
+    private static final int WINS = 1;
+    private static final int LOSSES = 2;
+    private static final int DRAWS = 3;
+    private static final int STREAK = 4;
+    private static final int BEST_STREAK = 5;
+    private static final int MOVES = 6;
+    private static final int AI_THINK_NANOS = 7;
+    private static final int AI_MOVES = 8;
+    private static final int FIELDS = 9;
+
+    // Wins and losses are from X's side: the human against the AI, player X otherwise
+    public static final class Stats {
+        private final long[] values;
+
+        Stats(long[] values) {
+            this.values = values.clone();
+        }
+
+        public long getGames() {
+            return values[GAMES];
+        }
+
+        public long getWins() {
+            return values[WINS];
+        }
+
+        public long getLosses() {
+            return values[LOSSES];
+        }
+
+        public long getDraws() {
+            return values[DRAWS];
+        }
+
+        // Positive for consecutive wins, negative for consecutive losses
+        public long getStreak() {
+            return values[STREAK];
+        }
+
+        public long getBestStreak() {
+            return values[BEST_STREAK];
+        }
+
+        public double getAverageMoves() {
+            return values[GAMES] == 0 ? 0 : values[MOVES] / (double) values[GAMES];
+        }
+
+        public double getAverageThinkMillis() {
+            return values[AI_MOVES] == 0 ? 0 : values[AI_THINK_NANOS] / 1e6 / values[AI_MOVES];
+        }
+    }
+
+    private final Supplier<File> fileSupplier;
+    private final ScheduledExecutorService writer;
+    private final AtomicReference<long[][]> pendingWrite = new AtomicReference<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // UI-thread state
+    private final long[][] counters = new long[BUCKET_COUNT][FIELDS];
+    private final List<long[]> recordedBeforeLoad = new ArrayList<>();
+    private boolean loaded;
+    private boolean flushBeforeLoad;
+
+    // Writer-thread state
+    private File file;
+
+    // fileSupplier runs on the writer thread, since even Context.getFilesDir() may hit the disk
+    public StatsStore(Supplier<File> fileSupplier) {
+        this.fileSupplier = fileSupplier;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "stats-writer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(true);
+        writer = executor;
+    }
+
+    public static int bucketFor(boolean isTwoPlayerMode, AIPlayer.Difficulty difficulty) {
+        return isTwoPlayerMode ? TWO_PLAYER : 1 + difficulty.ordinal();
+    }
+
+    // Reads saved counters off the UI thread; games recorded before then are kept
+    public void load(Executor callbackExecutor, Runnable onLoaded) {
+        writer.execute(() -> {
+            final long[][] saved = read();
+            callbackExecutor.execute(() -> {
+                for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                    System.arraycopy(saved[bucket], 0, counters[bucket], 0, FIELDS);
+                }
+                loaded = true;
+                for (long[] record : recordedBeforeLoad) {
+                    apply(record);
+                }
+                boolean recorded = !recordedBeforeLoad.isEmpty();
+                recordedBeforeLoad.clear();
+                if (flushBeforeLoad) {
+                    flush();
+                } else if (recorded) {
+                    scheduleWrite();
+                }
+                onLoaded.run();
+            });
+        });
+    }
+
+    public void recordGame(int bucket, int winner, int moves, long aiThinkNanos, int aiMoves) {
+        long[] record = {bucket, winner, moves, aiThinkNanos, aiMoves};
+        if (!loaded) {
+            // Writing now would overwrite the saved counters with zeros
+            recordedBeforeLoad.add(record);
+            return;
+        }
+        apply(record);
+        scheduleWrite();
+    }
+
+    public Stats getStats(int bucket) {
+        return new Stats(counters[bucket]);
+    }
+
+    // Saves the latest counters right away, e.g. from onStop; still returns immediately.
+    // Before load() completes it only asks for a save once the saved counters are in.
+    public void flush() {
+        if (!loaded) {
+            flushBeforeLoad = true;
+            return;
+        }
+        // A load that completes after shutdown() has no writer left to save with
+        if (writer.isShutdown()) {
+            return;
+        }
+        pendingWrite.set(copyCounters());
+        writer.execute(this::writePending);
+    }
+
+    // Pending writes still complete
+    public void shutdown() {
+        flush();
+        writer.shutdown();
+    }
+
+    // After shutdown(), waits for the writer to finish
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return writer.awaitTermination(timeout, unit);
+    }
+
+    private void apply(long[] record) {
+        long[] values = counters[(int) record[0]];
+        int winner = (int) record[1];
+        values[GAMES]++;
+        if (winner == GameLogic.PLAYER_X) {
+            values[WINS]++;
+            values[STREAK] = Math.max(values[STREAK], 0) + 1;
+            values[BEST_STREAK] = Math.max(values[BEST_STREAK], values[STREAK]);
+        } else if (winner == GameLogic.PLAYER_O) {
+            values[LOSSES]++;
+            values[STREAK] = Math.min(values[STREAK], 0) - 1;
+        } else {
+            values[DRAWS]++;
+            values[STREAK] = 0;
+        }
+        values[MOVES] += record[2];
+        values[AI_THINK_NANOS] += record[3];
+        values[AI_MOVES] += record[4];
+    }
+
+    // Games ending within the delay share one write of the newest counters
+    private void scheduleWrite() {
+        pendingWrite.set(copyCounters());
+        if (!writer.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            writer.schedule(() -> {
+                flushScheduled.set(false);
+                writePending();
+            }, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private long[][] copyCounters() {
+        long[][] copy = new long[BUCKET_COUNT][];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            copy[bucket] = counters[bucket].clone();
+        }
+        return copy;
+    }
+
+    private File file() {
+        if (file == null) {
+            file = fileSupplier.get();
+        }
+        return file;
+    }
+
+    // A missing or unreadable file starts from zero
+    private long[][] read() {
+        long[][] values = new long[BUCKET_COUNT][FIELDS];
+        File source = file();
+        if (!source.isFile()) {
+            return values;
+        }
+        byte[] data = new byte[(int) source.length()];
+        try (FileInputStream in = new FileInputStream(source)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(data, 0, read));
+            if (input.readInt() != MAGIC || input.readInt() > VERSION) {
+                return values;
+            }
+            int buckets = input.readInt();
+            int fields = input.readInt();
+            long[][] parsed = new long[BUCKET_COUNT][FIELDS];
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                for (int field = 0; field < fields; field++) {
+                    long value = input.readLong();
+                    if (bucket < BUCKET_COUNT && field < FIELDS) {
+                        parsed[bucket][field] = value;
+                    }
+                }
+            }
+            return parsed;
+        } catch (IOException e) {
+            return values;
+        }
+    }
+
+    private void writePending() {
+        long[][] values = pendingWrite.getAndSet(null);
+        if (values == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + BUCKET_COUNT * FIELDS * 8);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(BUCKET_COUNT);
+            out.writeInt(FIELDS);
+            for (long[] bucket : values) {
+                for (long value : bucket) {
+                    out.writeLong(value);
+                }
+            }
+            // Write, sync and rename, so a kill mid-write leaves the previous file intact
+            File target = file();
+            File temp = new File(target.getPath() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp)) {
+                bytes.writeTo(file);
+                file.getFD().sync();
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("Cannot replace " + target);
+            }
+        } catch (IOException e) {
+            // Keep the newest counters for the next attempt unless newer ones arrived
+            pendingWrite.compareAndSet(null, values);
+        }
+    }
+}
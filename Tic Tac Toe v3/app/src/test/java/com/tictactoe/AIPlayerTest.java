@@ -0,0 +1,87 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AIPlayerTest {
+    private final long calibrated = AIPlayer.getNodesPerSecond();
+
+    @After
+    public void restoreCalibration() {
+        AIPlayer.setNodesPerSecond(calibrated);
+    }
+
+    private static Position arrange(int winLength, int[] xs, int[] os) {
+        long x = 0;
+        long o = 0;
+        for (int cell : xs) {
+            x |= 1L << cell;
+        }
+        for (int cell : os) {
+            o |= 1L << cell;
+        }
+        int toMove = xs.length == os.length ? GameLogic.PLAYER_X : GameLogic.PLAYER_O;
+        return Rules.STANDARD.arrange(BoardGeometry.of(3, winLength), x, o, toMove);
+    }
+
+    @Test
+    public void searchCacheFollowsTheWinLength() {
+        AIPlayer ai = new AIPlayer(AIPlayer.Difficulty.HARD, GameLogic.PLAYER_O, 28);
+        int[] xs = {0, 2};
+        int[] os = {8};
+        // Two in a row: O wins next to its stone
+        int[] quick = ai.getMove(arrange(2, xs, os));
+        int cell = quick[0] * 3 + quick[1];
+        assertTrue(cell == 4 || cell == 5 || cell == 7);
+        // Same stones, three in a row: O must block X's top row
+        assertArrayEquals(new int[]{0, 1}, ai.getMove(arrange(3, xs, os)));
+        // And back again
+        assertArrayEquals(quick, ai.getMove(arrange(2, xs, os)));
+    }
+
+    @Test
+    public void slowDevicesCapTheBudgetAtTheResponseTime() {
+        AIPlayer.setNodesPerSecond(1_000);
+        // 1.5 s worth of nodes
+        assertEquals(1_500, AIPlayer.getNodeBudget(AIPlayer.Difficulty.HARD));
+        assertEquals(1_500, AIPlayer.getNodeBudget(AIPlayer.Difficulty.MEDIUM));
+        assertEquals(0, AIPlayer.getNodeBudget(AIPlayer.Difficulty.EASY));
+
+        AIPlayer.setNodesPerSecond(1_000_000_000);
+        assertEquals(500_000, AIPlayer.getNodeBudget(AIPlayer.Difficulty.HARD));
+        assertEquals(20_000, AIPlayer.getNodeBudget(AIPlayer.Difficulty.MEDIUM));
+    }
+
+    @Test
+    public void nonPositiveMeasurementsAreIgnored() {
+        AIPlayer.setNodesPerSecond(40_000);
+        AIPlayer.setNodesPerSecond(0);
+        AIPlayer.setNodesPerSecond(-5);
+        assertEquals(40_000, AIPlayer.getNodesPerSecond());
+        assertEquals(20_000, AIPlayer.getNodeBudget(AIPlayer.Difficulty.MEDIUM));
+    }
+
+    @Test
+    public void searchStopsAtTheNodeBudget() {
+        // Past the exact solver, on a quiet 7x7 opening with no forced move
+        Position position = Position.empty(7, 4).play(24).play(25);
+        AIPlayer.setNodesPerSecond(1_000);
+        AIPlayer ai = new AIPlayer(AIPlayer.Difficulty.HARD, GameLogic.PLAYER_X, 40);
+        assertNotNull(ai.getMove(position));
+        long capped = ai.getNodeCount();
+        // The limit is checked every 64 nodes
+        assertTrue(capped + " nodes", capped > 0 && capped <= 1_500 + 64);
+
+        // Ten times the speed, ten times the nodes; the time limit is three times the budget's
+        AIPlayer.setNodesPerSecond(10_000);
+        ai = new AIPlayer(AIPlayer.Difficulty.HARD, GameLogic.PLAYER_X, 40);
+        assertNotNull(ai.getMove(position));
+        long nodes = ai.getNodeCount();
+        assertTrue(nodes + " nodes", nodes > 1_500 + 64 && nodes <= 15_000 + 64);
+    }
+}
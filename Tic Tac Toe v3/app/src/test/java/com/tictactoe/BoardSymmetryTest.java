@@ -0,0 +1,78 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class BoardSymmetryTest {
+    @Test
+    public void transformsMoveEachCellWhereMapCellSays() {
+        for (int size = 1; size <= 8; size++) {
+            BoardSymmetry symmetry = BoardSymmetry.of(size);
+            for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+                for (int cell = 0; cell < size * size; cell++) {
+                    int mapped = symmetry.mapCell(cell, t);
+                    assertEquals(1L << mapped, symmetry.transform(1L << cell, t));
+                    assertEquals(cell, symmetry.unmapCell(mapped, t));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyOrientationHasTheSameCanonicalForm() {
+        Random random = new Random(28);
+        for (int size = 3; size <= 8; size++) {
+            BoardSymmetry symmetry = BoardSymmetry.of(size);
+            for (int i = 0; i < 500; i++) {
+                long x = 0;
+                long o = 0;
+                for (int cell = 0; cell < size * size; cell++) {
+                    int stone = random.nextInt(3);
+                    if (stone == 1) {
+                        x |= 1L << cell;
+                    } else if (stone == 2) {
+                        o |= 1L << cell;
+                    }
+                }
+                int canonical = symmetry.canonicalTransform(x, o);
+                long canonicalX = symmetry.transform(x, canonical);
+                long canonicalO = symmetry.transform(o, canonical);
+                for (int t = 0; t < BoardSymmetry.COUNT; t++) {
+                    long tx = symmetry.transform(x, t);
+                    long to = symmetry.transform(o, t);
+                    int again = symmetry.canonicalTransform(tx, to);
+                    assertEquals(canonicalX, symmetry.transform(tx, again));
+                    assertEquals(canonicalO, symmetry.transform(to, again));
+                }
+            }
+        }
+    }
+
+    // 5,478 reachable 3x3 positions fall into 765 classes under rotation and reflection
+    @Test
+    public void countsDistinct3x3PositionsUpToSymmetry() {
+        Set<Long> positions = new HashSet<>();
+        Set<Long> canonical = new HashSet<>();
+        visit(Position.empty(3, 3), BoardSymmetry.of(3), positions, canonical);
+        assertEquals(5478, positions.size());
+        assertEquals(765, canonical.size());
+    }
+
+    private static void visit(Position position, BoardSymmetry symmetry, Set<Long> positions, Set<Long> canonical) {
+        if (!positions.add(position.getKey())) {
+            return;
+        }
+        canonical.add(symmetry.canonicalKey(position.getX(), position.getO()));
+        if (position.isTerminal()) {
+            return;
+        }
+        for (long cells = position.getEmptyCells(); cells != 0; cells &= cells - 1) {
+            visit(position.play(Long.numberOfTrailingZeros(cells)), symmetry, positions, canonical);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.tictactoe;
+
+import java.util.Random;
+
+// Headless timed-game simulation: the HARD AI plays on a clock against MEDIUM or
+// against itself, over mixed boards and time controls, and must never run out of time.
+// Time is virtual and driven by work done: every search node costs NANOS_PER_NODE, and
+// each move adds a random delay for input, rendering and the odd GC pause. Results do
+// not depend on the speed of the machine running the simulation.
+// Usage: ClockSimulation [games] [nanosPerNode]
+public class ClockSimulation {
+    private static final int[][] BOARDS = {{3, 3}, {4, 3}, {5, 4}, {7, 4}};
+    // Initial time and increment in milliseconds
+    private static final long[][] TIME_CONTROLS = {{100, 0}, {50, 2}, {30, 5}};
+    private static final long MAX_MOVE_DELAY_NANOS = 500_000L;
+    private static final long PAUSE_NANOS = 3_000_000L;
+    private static final double PAUSE_CHANCE = 0.01;
+    // What a MEDIUM move is charged; its search has a fixed node budget, not a clock
+    private static final long MEDIUM_MOVE_NANOS = 1_000_000L;
+
+    // Elapsed time is the delays so far plus the searches of the HARD AIs
+    private static final class VirtualClock implements Clock {
+        private final AIPlayer[] players;
+        private final long nanosPerNode;
+        private long delays;
+
+        VirtualClock(long nanosPerNode, AIPlayer... players) {
+            this.nanosPerNode = nanosPerNode;
+            this.players = players;
+        }
+
+        @Override
+        public long nanoTime() {
+            long nodes = 0;
+            for (AIPlayer player : players) {
+                nodes += player.getNodeCount();
+            }
+            return delays + nodes * nanosPerNode;
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long nanosPerNode = args.length > 1 ? Long.parseLong(args[1]) : 20_000L;
+        Random random = new Random(37);
+
+        long moves = 0;
+        long instantMoves = 0;
+        long nodes = 0;
+        long aiFlags = 0;
+        long opponentFlags = 0;
+        long minRemaining = Long.MAX_VALUE;
+        int[] results = new int[3];
+        long realStart = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            int[] board = BOARDS[game % BOARDS.length];
+            long[] control = TIME_CONTROLS[game / BOARDS.length % TIME_CONTROLS.length];
+            int aiSide = (game & 1) == 0 ? GameLogic.PLAYER_X : GameLogic.PLAYER_O;
+            int otherSide = aiSide == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X;
+            boolean selfPlay = game % 3 == 0;
+            AIPlayer ai = new AIPlayer(AIPlayer.Difficulty.HARD, aiSide, random.nextLong());
+            AIPlayer opponent = new AIPlayer(selfPlay ? AIPlayer.Difficulty.HARD : AIPlayer.Difficulty.MEDIUM,
+                    otherSide, random.nextLong());
+            VirtualClock clock = selfPlay ? new VirtualClock(nanosPerNode, ai, opponent)
+                    : new VirtualClock(nanosPerNode, ai);
+            GameClock gameClock = new GameClock(clock, control[0] * 1_000_000L, control[1] * 1_000_000L);
+
+            Position position = Position.empty(board[0], board[1]);
+            gameClock.start(GameLogic.PLAYER_X);
+            int flagged = GameLogic.EMPTY;
+            while (!position.isTerminal()) {
+                int toMove = position.getToMove();
+                AIPlayer player = toMove == aiSide ? ai : opponent;
+                clock.delays += (long) (random.nextDouble() * MAX_MOVE_DELAY_NANOS);
+                if (random.nextDouble() < PAUSE_CHANCE) {
+                    clock.delays += PAUSE_NANOS;
+                }
+                long nodesBefore = player.getNodeCount();
+                int[] move = player.getMove(position, gameClock);
+                if (player == opponent && !selfPlay) {
+                    clock.delays += MEDIUM_MOVE_NANOS;
+                }
+                if (toMove == aiSide || selfPlay) {
+                    moves++;
+                    if (player.getNodeCount() == nodesBefore) {
+                        instantMoves++;
+                    }
+                    minRemaining = Math.min(minRemaining, gameClock.getRemainingNanos(toMove));
+                }
+                if (gameClock.hasFlagged(toMove)) {
+                    flagged = toMove;
+                    break;
+                }
+                position = position.play(move[0] * board[0] + move[1]);
+                gameClock.press();
+            }
+            gameClock.stop();
+            nodes += ai.getNodeCount() + (selfPlay ? opponent.getNodeCount() : 0);
+            if (flagged == aiSide || (flagged != GameLogic.EMPTY && selfPlay)) {
+                aiFlags++;
+            } else if (flagged != GameLogic.EMPTY) {
+                opponentFlags++;
+            } else {
+                results[position.getWinner()]++;
+            }
+        }
+
+        double realSeconds = (System.nanoTime() - realStart) / 1e9;
+        System.out.println(String.format("%d games in %.1f s (%.0f ns of virtual time per node)",
+                games, realSeconds, (double) nanosPerNode));
+        System.out.println(String.format("HARD moves: %d, %.1f%% instant, %.0f nodes per move,"
+                        + " least time left after a move %.1f ms",
+                moves, 100.0 * instantMoves / Math.max(1, moves), nodes / (double) Math.max(1, moves),
+                minRemaining / 1e6));
+        System.out.println(String.format("results: X %d, O %d, draw %d, MEDIUM flagged %d",
+                results[GameLogic.PLAYER_X], results[GameLogic.PLAYER_O], results[GameLogic.EMPTY], opponentFlags));
+        System.out.println("HARD flagged: " + aiFlags);
+        if (aiFlags != 0) {
+            throw new AssertionError("The AI ran out of time in " + aiFlags + " games");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.tictactoe;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Headless exhibition benchmark: the AI plays X on 1, 10, 100 and 1,000 boards against
+// MEDIUM bots that take a human-like pause before each move, and games restart as they
+// end. Reports reply latency from the bot's move to the AI's answer, and CPU use as the
+// share of worker time spent searching.
+// Usage: ExhibitionBenchmark [secondsPerRun] [threads] [size] [winLength] [targetLatencyMillis]
+public class ExhibitionBenchmark {
+    private static final int[] BOARD_COUNTS = {1, 10, 100, 1000};
+    private static final long MIN_PAUSE_MILLIS = 250;
+    private static final long MAX_PAUSE_MILLIS = 1000;
+    private static final long WARM_UP_MILLIS = 1000;
+
+    private static final class Run implements ExhibitionScheduler.Listener {
+        final ScheduledExecutorService bots = Executors.newSingleThreadScheduledExecutor();
+        final Random random = new Random(11);
+        final AIPlayer bot = new AIPlayer(AIPlayer.Difficulty.MEDIUM, GameLogic.PLAYER_O, 12);
+        final long measureFrom;
+        ExhibitionScheduler scheduler;
+        long[] latencies = new long[1 << 16];
+        int count;
+
+        Run(long measureFrom) {
+            this.measureFrom = measureFrom;
+        }
+
+        @Override
+        public void onReply(int boardId, int cell, Position position, long latencyNanos) {
+            synchronized (this) {
+                if (System.nanoTime() >= measureFrom) {
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = latencyNanos;
+                }
+            }
+            long pause = MIN_PAUSE_MILLIS + (long) (random.nextDouble() * (MAX_PAUSE_MILLIS - MIN_PAUSE_MILLIS));
+            try {
+                bots.schedule(() -> play(boardId, position), pause, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The run is over
+            }
+        }
+
+        private void play(int boardId, Position position) {
+            if (position.isTerminal()) {
+                scheduler.newGame(boardId);
+                return;
+            }
+            int[] move = bot.getMove(position);
+            int botCell = move[0] * position.getSize() + move[1];
+            scheduler.onOpponentMove(boardId, botCell);
+            if (position.play(botCell).isTerminal()) {
+                scheduler.newGame(boardId);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int winLength = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        long targetLatencyNanos = (args.length > 4 ? Long.parseLong(args[4]) : 100) * 1_000_000L;
+
+        System.out.println(String.format("%dx%d, %d in a row, %d worker threads, target latency %d ms, %d s per run",
+                size, size, winLength, threads, targetLatencyNanos / 1_000_000L, seconds));
+        System.out.println("boards  replies/s  p50 ms  p99 ms  max ms  CPU reply  CPU ponder");
+        for (int boards : BOARD_COUNTS) {
+            long start = System.nanoTime();
+            Run run = new Run(start + WARM_UP_MILLIS * 1_000_000L);
+            ExhibitionScheduler scheduler = new ExhibitionScheduler(Clock.SYSTEM, threads, targetLatencyNanos, run);
+            run.scheduler = scheduler;
+            for (int i = 0; i < boards; i++) {
+                scheduler.addBoard(size, winLength, GameLogic.PLAYER_X);
+            }
+            Thread.sleep(WARM_UP_MILLIS);
+            long replyNanosBefore = scheduler.getReplyNanos();
+            long ponderNanosBefore = scheduler.getPonderNanos();
+            long measureStart = System.nanoTime();
+            Thread.sleep(seconds * 1000L);
+            long[] latencies;
+            long replyNanos;
+            long ponderNanos;
+            synchronized (run) {
+                latencies = Arrays.copyOf(run.latencies, run.count);
+                replyNanos = scheduler.getReplyNanos() - replyNanosBefore;
+                ponderNanos = scheduler.getPonderNanos() - ponderNanosBefore;
+            }
+            double elapsed = (System.nanoTime() - measureStart) / 1e9;
+            scheduler.close();
+            run.bots.shutdownNow();
+            run.bots.awaitTermination(1, TimeUnit.SECONDS);
+
+            Arrays.sort(latencies);
+            int n = latencies.length;
+            double capacity = elapsed * 1e9 * threads;
+            System.out.println(String.format("%6d  %9.0f  %6.1f  %6.1f  %6.1f  %8.0f%%  %9.0f%%",
+                    boards, n / elapsed, percentile(latencies, 50), percentile(latencies, 99),
+                    n == 0 ? 0 : latencies[n - 1] / 1e6, 100 * replyNanos / capacity, 100 * ponderNanos / capacity));
+        }
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)] / 1e6;
+    }
+}
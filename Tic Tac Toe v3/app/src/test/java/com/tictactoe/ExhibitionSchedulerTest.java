@@ -0,0 +1,97 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ExhibitionSchedulerTest {
+    private static final long TARGET_NANOS = 20_000_000L;
+
+    private static final class Reply {
+        final int boardId;
+        final int cell;
+        final Position position;
+
+        Reply(int boardId, int cell, Position position) {
+            this.boardId = boardId;
+            this.cell = cell;
+            this.position = position;
+        }
+    }
+
+    @Test
+    public void answersEveryBoardWithALegalMove() throws InterruptedException {
+        BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+        int boards = 5;
+        int gamesPerBoard = 3;
+        Random random = new Random(38);
+        try (ExhibitionScheduler scheduler = new ExhibitionScheduler(Clock.SYSTEM, 2, TARGET_NANOS,
+                (boardId, cell, position, latencyNanos) -> replies.add(new Reply(boardId, cell, position)))) {
+            Position[] expected = new Position[boards];
+            int[] games = new int[boards];
+            for (int i = 0; i < boards; i++) {
+                assertEquals(i, scheduler.addBoard(3, 3, GameLogic.PLAYER_X));
+                expected[i] = Position.empty(3, 3);
+            }
+            int finished = 0;
+            while (finished < boards) {
+                Reply reply = replies.poll(10, TimeUnit.SECONDS);
+                assertNotNull(reply);
+                Position before = expected[reply.boardId];
+                assertTrue((before.getEmptyCells() & 1L << reply.cell) != 0);
+                assertEquals(before.play(reply.cell), reply.position);
+                Position position = reply.position;
+                if (!position.isTerminal()) {
+                    long empty = position.getEmptyCells();
+                    int skip = random.nextInt(Long.bitCount(empty));
+                    for (int i = 0; i < skip; i++) {
+                        empty &= empty - 1;
+                    }
+                    int cell = Long.numberOfTrailingZeros(empty);
+                    position = position.play(cell);
+                    scheduler.onOpponentMove(reply.boardId, cell);
+                }
+                expected[reply.boardId] = position;
+                if (position.isTerminal()) {
+                    // Perfect play as X never loses 3x3
+                    assertNotEquals(GameLogic.PLAYER_O, position.getWinner());
+                    if (++games[reply.boardId] < gamesPerBoard) {
+                        expected[reply.boardId] = Position.empty(3, 3);
+                        scheduler.newGame(reply.boardId);
+                    } else {
+                        finished++;
+                    }
+                }
+            }
+            assertEquals(0, scheduler.getWaitingCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMovesOutOfTurn() {
+        try (ExhibitionScheduler scheduler = new ExhibitionScheduler(Clock.SYSTEM, 1, TARGET_NANOS,
+                (boardId, cell, position, latencyNanos) -> { })) {
+            int boardId = scheduler.addBoard(3, 3, GameLogic.PLAYER_O);
+            scheduler.onOpponentMove(boardId, 4);
+            scheduler.onOpponentMove(boardId, 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRemovedBoards() {
+        try (ExhibitionScheduler scheduler = new ExhibitionScheduler(Clock.SYSTEM, 1, TARGET_NANOS,
+                (boardId, cell, position, latencyNanos) -> { })) {
+            int boardId = scheduler.addBoard(3, 3, GameLogic.PLAYER_O);
+            scheduler.removeBoard(boardId);
+            scheduler.newGame(boardId);
+        }
+    }
+}
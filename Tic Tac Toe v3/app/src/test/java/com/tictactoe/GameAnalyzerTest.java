@@ -0,0 +1,86 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class GameAnalyzerTest {
+    private final GameAnalyzer analyzer = new GameAnalyzer();
+
+    @After
+    public void shutDown() {
+        analyzer.shutdown();
+    }
+
+    private List<GameAnalyzer.MoveAnnotation> analyse(int... cells) throws InterruptedException {
+        BlockingQueue<List<GameAnalyzer.MoveAnnotation>> delivered = new ArrayBlockingQueue<>(1);
+        analyzer.startGame();
+        Position position = Position.empty(3, 3);
+        for (int cell : cells) {
+            analyzer.onMove(position, cell / 3, cell % 3);
+            position = position.play(cell);
+        }
+        analyzer.finishGame(Runnable::run, delivered::offer);
+        List<GameAnalyzer.MoveAnnotation> annotations = delivered.poll(10, TimeUnit.SECONDS);
+        assertNotNull(annotations);
+        assertEquals(cells.length, annotations.size());
+        return annotations;
+    }
+
+    @Test
+    public void sameStonesDifferInValueByWinLength() {
+        long x = 1L << 4;
+        long o = 1L;
+        Position k3 = Rules.STANDARD.arrange(BoardGeometry.of(3, 3), x, o, GameLogic.PLAYER_X);
+        Position k2 = Rules.STANDARD.arrange(BoardGeometry.of(3, 2), x, o, GameLogic.PLAYER_X);
+        assertEquals(GameAnalyzer.DRAW, GameAnalyzer.exactValue(k3));
+        // Every cell next to X's center makes two in a row
+        assertEquals(GameAnalyzer.WIN, GameAnalyzer.exactValue(k2));
+        assertEquals(GameAnalyzer.DRAW, GameAnalyzer.exactValue(k3));
+    }
+
+    @Test
+    public void labelsBestMovesAndBlunders() throws InterruptedException {
+        // X holds 0 and 1, O holds 3 and 4: X's 2 wins, anything else lets O take 5
+        List<GameAnalyzer.MoveAnnotation> won = analyse(0, 3, 1, 4, 2);
+        GameAnalyzer.MoveAnnotation best = won.get(4);
+        assertEquals(GameLogic.PLAYER_X, best.getPlayer());
+        assertEquals(GameAnalyzer.WIN, best.getValueAfter());
+        assertEquals(GameAnalyzer.Quality.BEST, best.getQuality());
+        assertEquals(GameAnalyzer.Quality.BEST, won.get(0).getQuality());
+
+        List<GameAnalyzer.MoveAnnotation> thrown = analyse(0, 3, 1, 4, 8);
+        GameAnalyzer.MoveAnnotation blunder = thrown.get(4);
+        assertEquals(5, blunder.getMoveNumber());
+        assertEquals(GameAnalyzer.WIN, blunder.getValueBefore());
+        assertEquals(GameAnalyzer.LOSS, blunder.getValueAfter());
+        assertEquals(GameAnalyzer.Quality.BLUNDER, blunder.getQuality());
+
+        // With O in the center, blocking 2 holds the draw and 5 loses
+        assertEquals(GameAnalyzer.Quality.BEST, analyse(0, 4, 1, 2).get(3).getQuality());
+        assertEquals(GameAnalyzer.Quality.BLUNDER, analyse(0, 4, 1, 5).get(3).getQuality());
+    }
+
+    @Test
+    public void valueCacheIsBounded() {
+        boolean dropped = false;
+        int previous = GameAnalyzer.getCachedValueCount();
+        // Keys no real position has, so each one is new
+        for (long key = 0; key < GameAnalyzer.MAX_CACHED_VALUES + 1000; key++) {
+            GameAnalyzer.cache(-1 - key, GameAnalyzer.DRAW);
+            int count = GameAnalyzer.getCachedValueCount();
+            assertTrue(count <= GameAnalyzer.MAX_CACHED_VALUES);
+            dropped |= count < previous;
+            previous = count;
+        }
+        assertTrue(dropped);
+    }
+}
@@ -0,0 +1,103 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class GameClockTest {
+    private static final long MILLIS = 1_000_000L;
+
+    private static final class ManualClock implements Clock {
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    // Charged per search node, so the AI's thinking spends virtual time
+    private static final class NodeClock implements Clock {
+        private final AIPlayer player;
+
+        NodeClock(AIPlayer player) {
+            this.player = player;
+        }
+
+        @Override
+        public long nanoTime() {
+            return player.getNodeCount() * 20_000L;
+        }
+    }
+
+    @Test
+    public void onlyTheRunningSideSpendsTime() {
+        ManualClock clock = new ManualClock();
+        GameClock gameClock = new GameClock(clock, 100 * MILLIS, 5 * MILLIS);
+        gameClock.start(GameLogic.PLAYER_X);
+        clock.now += 30 * MILLIS;
+        assertEquals(70 * MILLIS, gameClock.getRemainingNanos(GameLogic.PLAYER_X));
+        assertEquals(100 * MILLIS, gameClock.getRemainingNanos(GameLogic.PLAYER_O));
+        gameClock.press();
+        assertEquals(GameLogic.PLAYER_O, gameClock.getRunning());
+        assertEquals(75 * MILLIS, gameClock.getRemainingNanos(GameLogic.PLAYER_X));
+        clock.now += 10 * MILLIS;
+        gameClock.stop();
+        clock.now += 50 * MILLIS;
+        assertEquals(GameLogic.EMPTY, gameClock.getRunning());
+        assertEquals(90 * MILLIS, gameClock.getRemainingNanos(GameLogic.PLAYER_O));
+    }
+
+    @Test
+    public void aFlaggedSideGetsNoIncrement() {
+        ManualClock clock = new ManualClock();
+        GameClock gameClock = new GameClock(clock, 10 * MILLIS, 5 * MILLIS);
+        gameClock.start(GameLogic.PLAYER_X);
+        clock.now += 12 * MILLIS;
+        assertTrue(gameClock.hasFlagged(GameLogic.PLAYER_X));
+        gameClock.press();
+        assertTrue(gameClock.hasFlagged(GameLogic.PLAYER_X));
+        assertEquals(-2 * MILLIS, gameClock.getRemainingNanos(GameLogic.PLAYER_X));
+        assertFalse(gameClock.hasFlagged(GameLogic.PLAYER_O));
+    }
+
+    @Test
+    public void formatsMinutesSecondsAndTenths() {
+        char[] out = new char[12];
+        assertEquals("0:00.0", new String(out, 0, GameClock.format(-5 * MILLIS, out, 0)));
+        assertEquals("0:09.9", new String(out, 0, GameClock.format(9_999 * MILLIS, out, 0)));
+        assertEquals("1:05.3", new String(out, 0, GameClock.format(65_300 * MILLIS, out, 0)));
+        assertEquals("12:00.0", new String(out, 0, GameClock.format(720_000 * MILLIS, out, 0)));
+        int length = GameClock.format(999L * 60_000 * MILLIS, out, 2);
+        assertEquals("999:00.0", new String(out, 2, length));
+    }
+
+    @Test
+    public void hardAiNeverFlagsOnAVirtualClock() {
+        Random random = new Random(37);
+        int[][] boards = {{3, 3}, {4, 3}, {5, 4}, {7, 4}};
+        long[][] controls = {{100, 0}, {50, 2}, {30, 5}};
+        for (int game = 0; game < 48; game++) {
+            int[] board = boards[game % boards.length];
+            long[] control = controls[game / boards.length % controls.length];
+            int aiSide = (game & 1) == 0 ? GameLogic.PLAYER_X : GameLogic.PLAYER_O;
+            AIPlayer ai = new AIPlayer(AIPlayer.Difficulty.HARD, aiSide, random.nextLong());
+            AIPlayer opponent = new AIPlayer(AIPlayer.Difficulty.MEDIUM,
+                    aiSide == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X, random.nextLong());
+            GameClock gameClock = new GameClock(new NodeClock(ai), control[0] * MILLIS, control[1] * MILLIS);
+            Position position = Position.empty(board[0], board[1]);
+            gameClock.start(GameLogic.PLAYER_X);
+            while (!position.isTerminal()) {
+                int toMove = position.getToMove();
+                int[] move = (toMove == aiSide ? ai : opponent).getMove(position, gameClock);
+                assertFalse("Game " + game + " flagged", gameClock.hasFlagged(toMove));
+                position = position.play(move[0] * board[0] + move[1]);
+                gameClock.press();
+            }
+        }
+    }
+}
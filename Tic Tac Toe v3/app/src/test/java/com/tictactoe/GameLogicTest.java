@@ -0,0 +1,159 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GameLogicTest {
+    private static final Rules[] VARIANTS = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+
+    // Plays at random until the game ends and returns the moves as {row, col, symbol}
+    private static List<int[]> playOut(GameLogic gameLogic, Random random) {
+        List<int[]> moves = new ArrayList<>();
+        int size = gameLogic.getSize();
+        while (!gameLogic.isGameOver()) {
+            int row = random.nextInt(size);
+            int col = random.nextInt(size);
+            int player = gameLogic.getCurrentPlayer();
+            int symbol = gameLogic.getRules().allowsOtherSymbol() && random.nextInt(3) == 0
+                    ? (player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X) : player;
+            if (gameLogic.makeMove(row, col, symbol)) {
+                int cell = gameLogic.getLastCell();
+                moves.add(new int[]{cell / size, cell % size, symbol});
+            }
+        }
+        return moves;
+    }
+
+    private static GameLogic replay(GameLogic original, List<int[]> moves, int plies) {
+        GameLogic gameLogic = new GameLogic(original.getSize(), original.getWinLength(), original.getRules());
+        for (int i = 0; i < plies; i++) {
+            int[] move = moves.get(i);
+            assertTrue(gameLogic.makeMove(move[0], move[1], move[2]));
+        }
+        return gameLogic;
+    }
+
+    private static void assertSameState(String what, GameLogic expected, GameLogic actual) {
+        assertArrayEquals(what, expected.getBoard(), actual.getBoard());
+        assertEquals(what, expected.getMoveCount(), actual.getMoveCount());
+        assertEquals(what, expected.getCurrentPlayer(), actual.getCurrentPlayer());
+        assertEquals(what, expected.isGameOver(), actual.isGameOver());
+        assertEquals(what, expected.getWinner(), actual.getWinner());
+        if (expected.getSize() * expected.getSize() <= BoardGeometry.MAX_CELLS) {
+            assertEquals(what, expected.snapshot(), actual.snapshot());
+        }
+    }
+
+    @Test
+    public void undoAndRedoRoundTripEveryVariant() {
+        Random random = new Random(36);
+        for (Rules rules : VARIANTS) {
+            for (int game = 0; game < 50; game++) {
+                GameLogic gameLogic = new GameLogic(5, 4, rules);
+                List<int[]> moves = playOut(gameLogic, random);
+                for (int ply = moves.size() - 1; ply >= 0; ply--) {
+                    assertTrue(gameLogic.undo());
+                    assertSameState(rules.getName() + " undo to " + ply, replay(gameLogic, moves, ply), gameLogic);
+                }
+                assertFalse(gameLogic.undo());
+                assertEquals(moves.size(), gameLogic.getHistoryLength());
+                for (int ply = 1; ply <= moves.size(); ply++) {
+                    assertTrue(gameLogic.redo());
+                    assertSameState(rules.getName() + " redo to " + ply, replay(gameLogic, moves, ply), gameLogic);
+                }
+                assertFalse(gameLogic.redo());
+            }
+        }
+    }
+
+    @Test
+    public void aNewMoveDiscardsTheRedoTail() {
+        GameLogic gameLogic = new GameLogic(4, 4);
+        int[] cells = {0, 5, 10, 15, 1, 2};
+        for (int cell : cells) {
+            gameLogic.makeMove(cell / 4, cell % 4);
+        }
+        gameLogic.undo();
+        gameLogic.undo();
+        gameLogic.undo();
+        assertEquals(6, gameLogic.getHistoryLength());
+        // Replaying the next move of the history keeps the rest of it
+        gameLogic.makeMove(3, 3);
+        assertEquals(6, gameLogic.getHistoryLength());
+        assertTrue(gameLogic.canRedo());
+        gameLogic.undo();
+        gameLogic.makeMove(3, 0);
+        assertEquals(4, gameLogic.getHistoryLength());
+        assertFalse(gameLogic.canRedo());
+        assertFalse(gameLogic.redo());
+        assertEquals(GameLogic.PLAYER_O, gameLogic.getCell(3, 0));
+    }
+
+    @Test
+    public void jumpsAcrossCheckpointsMatchAReplay() {
+        Random random = new Random(3636);
+        for (Rules rules : VARIANTS) {
+            for (int game = 0; game < 20; game++) {
+                GameLogic gameLogic = new GameLogic(6, 5, rules);
+                List<int[]> moves = playOut(gameLogic, random);
+                int length = gameLogic.getHistoryLength();
+                int[] targets = {0, 7, 8, 9, length, 9, 0, length, 8, 7, random.nextInt(length + 1)};
+                for (int ply : targets) {
+                    if (ply > length) {
+                        continue;
+                    }
+                    gameLogic.jumpTo(ply);
+                    assertSameState(rules.getName() + " jump to " + ply, replay(gameLogic, moves, ply), gameLogic);
+                }
+                // The history survives the jumps
+                assertEquals(length, gameLogic.getHistoryLength());
+            }
+        }
+    }
+
+    @Test
+    public void jumpToRejectsPliesOutsideTheHistory() {
+        GameLogic gameLogic = new GameLogic();
+        gameLogic.makeMove(1, 1);
+        gameLogic.makeMove(0, 0);
+        gameLogic.undo();
+        for (int ply : new int[]{-1, 3}) {
+            try {
+                gameLogic.jumpTo(ply);
+                fail("Jumped to " + ply);
+            } catch (IllegalArgumentException expected) {
+                assertEquals(1, gameLogic.getMoveCount());
+            }
+        }
+        gameLogic.jumpTo(2);
+        assertEquals(GameLogic.PLAYER_O, gameLogic.getCell(0, 0));
+    }
+
+    @Test
+    public void boardsBeyond64CellsStepWithoutCheckpoints() {
+        Random random = new Random(363636);
+        GameLogic gameLogic = new GameLogic(10, 5);
+        List<int[]> moves = playOut(gameLogic, random);
+        int length = moves.size();
+        assertTrue(length > 16);
+        // The far corner is cell 99, past what Rules.CELL_MASK covers
+        for (int ply : new int[]{0, 7, 8, 9, length, length / 2, 0}) {
+            gameLogic.jumpTo(ply);
+            assertSameState("jump to " + ply, replay(gameLogic, moves, ply), gameLogic);
+        }
+        gameLogic.jumpTo(length);
+        while (gameLogic.undo()) {
+            assertSameState("undo to " + gameLogic.getMoveCount(),
+                    replay(gameLogic, moves, gameLogic.getMoveCount()), gameLogic);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.tictactoe;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Headless benchmark for GameNotation: writes the 3x3 games from GameRankCodec in rank
+// order, starting over once all 255,168 are out, first through one Writer and then
+// with exportParallel, checks that both files are the same, and parses one back,
+// comparing each game and result with the one written.
+// Usage: GameNotationBenchmark [games] [threads] [directory]
+public class GameNotationBenchmark {
+    public static void main(String[] args) throws IOException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        File directory = new File(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"));
+        GameNotation.GameSource source = (index, moves) ->
+                GameRankCodec.unrank((int) (index % GameRankCodec.GAME_COUNT), moves);
+        File sequential = File.createTempFile("games", ".txt", directory);
+        File parallel = File.createTempFile("games-parallel", ".txt", directory);
+        try {
+            int[] moves = new int[GameRankCodec.CELLS];
+            long start = System.nanoTime();
+            try (GameNotation.Writer writer = new GameNotation.Writer(new FileOutputStream(sequential), 3, 3,
+                    Rules.STANDARD)) {
+                for (long index = 0; index < games; index++) {
+                    writer.write(moves, source.getGame(index, moves));
+                }
+            }
+            report("wrote", games, sequential.length(), System.nanoTime() - start, "1 thread");
+
+            start = System.nanoTime();
+            long bytes = GameNotation.exportParallel(parallel, 3, 3, Rules.STANDARD, games, source, threads);
+            report("exported", games, bytes, System.nanoTime() - start, threads + (threads == 1 ? " thread" : " threads"));
+            if (!sameContents(sequential, parallel)) {
+                throw new AssertionError("Sequential and parallel exports differ");
+            }
+
+            int[] expected = new int[GameRankCodec.CELLS];
+            long read = 0;
+            start = System.nanoTime();
+            try (GameNotation.Reader reader = new GameNotation.Reader(new FileInputStream(sequential))) {
+                int length;
+                while ((length = reader.next(moves)) >= 0) {
+                    int rank = (int) (read % GameRankCodec.GAME_COUNT);
+                    int expectedLength = GameRankCodec.unrank(rank, expected);
+                    boolean same = length == expectedLength && reader.getResult() == GameRankCodec.getOutcome(rank);
+                    for (int i = 0; same && i < length; i++) {
+                        same = moves[i] == expected[i];
+                    }
+                    if (!same) {
+                        throw new AssertionError("Game " + read + " read back wrong");
+                    }
+                    read++;
+                }
+            }
+            if (read != games) {
+                throw new AssertionError("Read " + read + " of " + games + " games");
+            }
+            report("parsed and replayed", games, sequential.length(), System.nanoTime() - start, "1 thread");
+        } finally {
+            sequential.delete();
+            parallel.delete();
+        }
+    }
+
+    private static void report(String what, long games, long bytes, long nanos, String threads) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%s %d games (%.1f MB) in %.2f s on %s: %.0f games/s, %.1f MB/s",
+                what, games, bytes / 1e6, seconds, threads, games / seconds, bytes / 1e6 / seconds));
+    }
+
+    private static boolean sameContents(File a, File b) throws IOException {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        byte[] bufferA = new byte[1 << 16];
+        byte[] bufferB = new byte[1 << 16];
+        try (InputStream inA = new FileInputStream(a); InputStream inB = new FileInputStream(b)) {
+            while (true) {
+                int read = readFully(inA, bufferA);
+                if (read != readFully(inB, bufferB)) {
+                    return false;
+                }
+                if (read == 0) {
+                    return true;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (bufferA[i] != bufferB[i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,168 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class GameNotationTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // Moves as GameLogic records them, stopping early now and then
+    private static int[] randomGame(int size, int winLength, Rules rules, Random random) {
+        GameLogic gameLogic = new GameLogic(size, winLength, rules);
+        int[] moves = new int[size * size];
+        int length = 0;
+        int stopAt = random.nextInt(5) == 0 ? random.nextInt(size * size) : size * size;
+        while (!gameLogic.isGameOver() && length < stopAt) {
+            int row = random.nextInt(size);
+            int col = random.nextInt(size);
+            boolean other = rules.allowsOtherSymbol() && random.nextBoolean();
+            int player = gameLogic.getCurrentPlayer();
+            int symbol = other ? (player == GameLogic.PLAYER_X ? GameLogic.PLAYER_O : GameLogic.PLAYER_X) : player;
+            if ((rules == Rules.STANDARD && !gameLogic.isValidMove(row, col))
+                    || !gameLogic.makeMove(row, col, symbol)) {
+                continue;
+            }
+            moves[length++] = other ? gameLogic.getLastCell() | Rules.OTHER_SYMBOL : gameLogic.getLastCell();
+        }
+        return Arrays.copyOf(moves, length);
+    }
+
+    private static GameNotation.Reader reader(String text) throws IOException {
+        return new GameNotation.Reader(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void everyVariantRoundTrips() throws IOException {
+        Random random = new Random(43);
+        Object[][] boards = {{3, 3, Rules.STANDARD}, {4, 3, Rules.MISERE}, {5, 4, Rules.WILD},
+                {6, 4, Rules.GRAVITY}, {10, 5, Rules.STANDARD}};
+        for (Object[] board : boards) {
+            int size = (Integer) board[0];
+            int winLength = (Integer) board[1];
+            Rules rules = (Rules) board[2];
+            List<int[]> games = new ArrayList<>();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GameNotation.Writer writer = new GameNotation.Writer(out, size, winLength, rules)) {
+                for (int i = 0; i < 300; i++) {
+                    int[] game = randomGame(size, winLength, rules, random);
+                    games.add(game);
+                    writer.write(game, game.length);
+                }
+                assertEquals(games.size(), writer.getGameCount());
+            }
+            try (GameNotation.Reader reader = new GameNotation.Reader(new ByteArrayInputStream(out.toByteArray()))) {
+                assertEquals(size, reader.getSize());
+                assertEquals(winLength, reader.getWinLength());
+                assertEquals(rules, reader.getRules());
+                int[] moves = new int[size * size];
+                for (int[] game : games) {
+                    int length = reader.next(moves);
+                    assertArrayEquals(rules.getName(), game, Arrays.copyOf(moves, length));
+                }
+                assertEquals(-1, reader.next(moves));
+            }
+        }
+    }
+
+    @Test
+    public void skipsCommentsAndBlankLinesAndReadsAnUnterminatedLastLine() throws IOException {
+        try (GameNotation.Reader reader = reader("#tictactoe size 3 win 3 rules wild\n"
+                + "# a comment\n\n  4 ~0 1 ; *\r\n0 3 1 4 2 ; X")) {
+            int[] moves = new int[9];
+            assertEquals(3, reader.next(moves));
+            assertArrayEquals(new int[]{4, Rules.OTHER_SYMBOL, 1}, Arrays.copyOf(moves, 3));
+            assertEquals(GameNotation.UNFINISHED, reader.getResult());
+            assertEquals(5, reader.next(moves));
+            assertEquals(GameLogic.PLAYER_X, reader.getResult());
+            assertEquals(-1, reader.next(moves));
+        }
+    }
+
+    @Test
+    public void errorsNameTheLine() throws IOException {
+        String header = "#tictactoe size 3 win 3 rules standard\n0 1 2 ; *\n";
+        String[][] cases = {
+                {"0 3 1 4 2 ; O", "Line 3: result O but the moves give X"},
+                {"~4 ; *", "Line 3: ~ needs rules that allow either symbol"},
+                {"4 9 ; *", "Line 3: move 9 off the board"},
+                {"4 4 ; *", "Line 3: illegal move 4 at ply 2"},
+                {"0 3 1 4 2 5 ; X", "Line 3: illegal move 5 at ply 6"},
+                {"4 0", "Line 3: missing result"},
+                {"4 0x ; *", "Line 3: bad move"},
+                {"4 0 ; Z", "Line 3: bad result"},
+        };
+        for (String[] testCase : cases) {
+            try (GameNotation.Reader reader = reader(header + testCase[0] + "\n")) {
+                int[] moves = new int[9];
+                reader.next(moves);
+                reader.next(moves);
+                fail("Accepted " + testCase[0]);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith(testCase[1]));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsBadHeaders() {
+        String[] headers = {"", "#tictactoe size 3 win 3\n", "#tictactoe size 3 win 3 rules chess\n",
+                "#tictactoe size 3 win 4 rules standard\n", "#tictactoe size 9 win 3 rules gravity\n"};
+        for (String header : headers) {
+            try {
+                reader(header).close();
+                fail("Accepted " + header);
+            } catch (IOException expected) {
+                // Reported as a bad file
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writerRejectsIllegalMoves() throws IOException {
+        try (GameNotation.Writer writer = new GameNotation.Writer(new ByteArrayOutputStream(), 3, 3,
+                Rules.STANDARD)) {
+            writer.write(new int[]{4, 4}, 2);
+        }
+    }
+
+    @Test
+    public void parallelExportMatchesTheWriter() throws IOException {
+        GameNotation.GameSource source = (index, moves) ->
+                GameRankCodec.unrank((int) (index * 7919 % GameRankCodec.GAME_COUNT), moves);
+        int games = 20_000;
+        File sequential = folder.newFile();
+        int[] moves = new int[GameRankCodec.CELLS];
+        try (GameNotation.Writer writer = new GameNotation.Writer(new FileOutputStream(sequential), 3, 3,
+                Rules.STANDARD)) {
+            for (long index = 0; index < games; index++) {
+                writer.write(moves, source.getGame(index, moves));
+            }
+        }
+        byte[] expected = Files.readAllBytes(sequential.toPath());
+        for (int threads : new int[]{1, 3, 8}) {
+            File parallel = folder.newFile();
+            long bytes = GameNotation.exportParallel(parallel, 3, 3, Rules.STANDARD, games, source, threads);
+            assertEquals(expected.length, bytes);
+            assertArrayEquals(expected, Files.readAllBytes(parallel.toPath()));
+        }
+    }
+}
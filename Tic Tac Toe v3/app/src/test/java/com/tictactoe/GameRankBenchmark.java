@@ -0,0 +1,128 @@
+package com.tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Headless benchmark for GameRankCodec and GameFrequencyTable. Checks that every rank
+// survives a decode and encode, times both, then simulates games on several threads,
+// each recording into its own table, and merges the tables at the end. A random EASY
+// player stands in for the human as X: against itself for the two-player bucket, and
+// against each AI difficulty as O.
+// Usage: GameRankBenchmark [games] [threads]
+public class GameRankBenchmark {
+    private static final int QUERIES = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        int[] cells = new int[GameRankCodec.CELLS];
+        int[] outcomes = new int[3];
+        GameRankCodec.getOutcome(0);
+        System.out.println(String.format("tables built in %.1f ms", (System.nanoTime() - start) / 1e6));
+        long checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            long decodeNanos = 0;
+            long encodeNanos = 0;
+            for (int rank = 0; rank < GameRankCodec.GAME_COUNT; rank++) {
+                long t0 = System.nanoTime();
+                int length = GameRankCodec.unrank(rank, cells);
+                long t1 = System.nanoTime();
+                int encoded = GameRankCodec.rank(cells, length);
+                long t2 = System.nanoTime();
+                if (encoded != rank) {
+                    throw new AssertionError("Rank " + rank + " came back as " + encoded);
+                }
+                if (round == 0) {
+                    outcomes[GameRankCodec.getOutcome(rank)]++;
+                }
+                checksum += length;
+                decodeNanos += t1 - t0;
+                encodeNanos += t2 - t1;
+            }
+            if (round == 2) {
+                System.out.println(String.format("all %d games round-trip: %.0f ns to decode, %.0f ns to encode"
+                                + " (X %d, O %d, draw %d, %d moves)",
+                        GameRankCodec.GAME_COUNT, decodeNanos / (double) GameRankCodec.GAME_COUNT,
+                        encodeNanos / (double) GameRankCodec.GAME_COUNT, outcomes[GameLogic.PLAYER_X],
+                        outcomes[GameLogic.PLAYER_O], outcomes[GameLogic.EMPTY], checksum / 3));
+            }
+        }
+
+        start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        GameFrequencyTable[] tables = new GameFrequencyTable[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            final int share = games / threads + (t < games % threads ? 1 : 0);
+            tables[t] = new GameFrequencyTable();
+            Thread worker = new Thread(() -> simulate(tables[index], share, index), "simulation-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long simulated = System.nanoTime();
+        GameFrequencyTable merged = tables[0];
+        for (int t = 1; t < threads; t++) {
+            merged.mergeFrom(tables[t]);
+        }
+        long end = System.nanoTime();
+        System.out.println(String.format("%d games on %d threads in %.2f s (%.0f games/s), merged in %.1f ms",
+                games, threads, (simulated - start) / 1e9, games / ((simulated - start) / 1e9),
+                (end - simulated) / 1e6));
+
+        int hard = StatsStore.bucketFor(false, AIPlayer.Difficulty.HARD);
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            found += merged.getMostCommon(1 + i % 3, GameLogic.PLAYER_O);
+        }
+        double queryNanos = (System.nanoTime() - start) / (double) QUERIES;
+        int loss = merged.getMostCommon(hard, GameLogic.PLAYER_O);
+        System.out.println(String.format("most common loss against HARD in %.1f ns: %s, %d of %d losses"
+                        + " in %d games",
+                queryNanos, loss < 0 ? "none" : describe(loss, cells), loss < 0 ? 0 : merged.getCount(hard, loss),
+                merged.getTotal(hard, GameLogic.PLAYER_O), merged.getTotal(hard, GameLogic.PLAYER_O)
+                        + merged.getTotal(hard, GameLogic.PLAYER_X) + merged.getTotal(hard, GameLogic.EMPTY)));
+        if (found == Integer.MIN_VALUE) {
+            System.out.println(found);
+        }
+    }
+
+    private static void simulate(GameFrequencyTable table, int games, int seed) {
+        AIPlayer human = new AIPlayer(AIPlayer.Difficulty.EASY, GameLogic.PLAYER_X, seed);
+        AIPlayer[] opponents = new AIPlayer[StatsStore.BUCKET_COUNT];
+        opponents[StatsStore.TWO_PLAYER] = new AIPlayer(AIPlayer.Difficulty.EASY, GameLogic.PLAYER_O, ~seed);
+        for (AIPlayer.Difficulty difficulty : AIPlayer.Difficulty.values()) {
+            opponents[StatsStore.bucketFor(false, difficulty)] = new AIPlayer(difficulty, GameLogic.PLAYER_O,
+                    seed * 31L + difficulty.ordinal());
+        }
+        int[] cells = new int[GameRankCodec.CELLS];
+        for (int game = 0; game < games; game++) {
+            int bucket = game % StatsStore.BUCKET_COUNT;
+            Position position = Position.empty(3, 3);
+            int length = 0;
+            while (!position.isTerminal()) {
+                AIPlayer player = position.getToMove() == GameLogic.PLAYER_X ? human : opponents[bucket];
+                int[] move = player.getMove(position);
+                int cell = move[0] * 3 + move[1];
+                cells[length++] = cell;
+                position = position.play(cell);
+            }
+            table.record(bucket, cells, length);
+        }
+    }
+
+    private static String describe(int rank, int[] cells) {
+        int length = GameRankCodec.unrank(rank, cells);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(i == 0 ? "" : " ").append((i & 1) == 0 ? 'X' : 'O')
+                    .append(cells[i] / 3 + 1).append(',').append(cells[i] % 3 + 1);
+        }
+        return text.toString();
+    }
+}
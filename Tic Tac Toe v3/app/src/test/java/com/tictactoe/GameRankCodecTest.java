@@ -0,0 +1,93 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class GameRankCodecTest {
+    @Test
+    public void everyRankRoundTripsInMoveOrder() {
+        int[] cells = new int[GameRankCodec.CELLS];
+        int[] previous = new int[0];
+        int[] outcomes = new int[3];
+        for (int rank = 0; rank < GameRankCodec.GAME_COUNT; rank++) {
+            int length = GameRankCodec.unrank(rank, cells);
+            assertEquals(rank, GameRankCodec.rank(cells, length));
+            int[] game = Arrays.copyOf(cells, length);
+            assertTrue(compare(previous, game) < 0);
+            previous = game;
+
+            Position position = Position.empty(3, 3);
+            for (int cell : game) {
+                position = position.play(cell);
+            }
+            assertTrue(position.isTerminal());
+            assertEquals(position.getWinner(), GameRankCodec.getOutcome(rank));
+            outcomes[GameRankCodec.getOutcome(rank)]++;
+        }
+        assertEquals(131_184, outcomes[GameLogic.PLAYER_X]);
+        assertEquals(77_904, outcomes[GameLogic.PLAYER_O]);
+        assertEquals(46_080, outcomes[GameLogic.EMPTY]);
+    }
+
+    @Test
+    public void firstGameIsTheLowestCells() {
+        int[] cells = new int[GameRankCodec.CELLS];
+        int length = GameRankCodec.unrank(0, cells);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6}, Arrays.copyOf(cells, length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnfinishedGames() {
+        GameRankCodec.rank(new int[]{4, 0, 8}, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMovesAfterTheEnd() {
+        GameRankCodec.rank(new int[]{0, 3, 1, 4, 2, 5}, 6);
+    }
+
+    @Test
+    public void mergedTablesMatchOneTable() {
+        GameFrequencyTable all = new GameFrequencyTable(2);
+        GameFrequencyTable[] parts = {new GameFrequencyTable(2), new GameFrequencyTable(2)};
+        for (int i = 0; i < 10_000; i++) {
+            // 97 ranks spread over the table, played unevenly
+            int rank = i * i % 97 * 31;
+            int bucket = i % 2;
+            all.record(bucket, rank);
+            parts[i / 7 % 2].record(bucket, rank);
+        }
+        parts[0].mergeFrom(parts[1]);
+        for (int bucket = 0; bucket < 2; bucket++) {
+            for (int winner = 0; winner < 3; winner++) {
+                assertEquals(all.getTotal(bucket, winner), parts[0].getTotal(bucket, winner));
+                int mostCommon = all.getMostCommon(bucket, winner);
+                if (mostCommon < 0) {
+                    assertEquals(-1, parts[0].getMostCommon(bucket, winner));
+                } else {
+                    // Ties may resolve to another rank, but never a less played one
+                    assertEquals(all.getCount(bucket, mostCommon),
+                            parts[0].getCount(bucket, parts[0].getMostCommon(bucket, winner)));
+                }
+            }
+        }
+        for (int rank = 0; rank < 97 * 31; rank += 31) {
+            assertEquals(all.getCount(0, rank), parts[0].getCount(0, rank));
+            assertEquals(all.getCount(1, rank), parts[0].getCount(1, rank));
+        }
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
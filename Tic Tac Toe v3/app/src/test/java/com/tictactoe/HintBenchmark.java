@@ -0,0 +1,55 @@
+package com.tictactoe;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Headless latency benchmark for HintEvaluator: time from onMove() on the calling
+// thread until the updated heatmap is delivered, over random games
+public class HintBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        run(3, 3, 5000, 9);
+        run(15, 5, 300, 120);
+    }
+
+    private static void run(int size, int winLength, int games, int movesPerGame) throws InterruptedException {
+        BlockingQueue<Long> delivered = new ArrayBlockingQueue<>(1);
+        HintEvaluator evaluator = new HintEvaluator(Runnable::run, heat -> delivered.offer(System.nanoTime()));
+        Random random = new Random(7);
+        long[] latencies = new long[games * movesPerGame];
+        int samples = 0;
+
+        for (int game = 0; game < games; game++) {
+            GameLogic gameLogic = new GameLogic(size, winLength);
+            evaluator.setBoard(gameLogic.getBoard(), winLength, gameLogic.getCurrentPlayer());
+            delivered.poll(1, TimeUnit.SECONDS);
+            for (int move = 0; move < movesPerGame && !gameLogic.isGameOver(); move++) {
+                int row;
+                int col;
+                do {
+                    row = random.nextInt(size);
+                    col = random.nextInt(size);
+                } while (!gameLogic.isValidMove(row, col));
+                int player = gameLogic.getCurrentPlayer();
+                gameLogic.makeMove(row, col);
+
+                long start = System.nanoTime();
+                evaluator.onMove(row, col, player);
+                Long end = delivered.poll(1, TimeUnit.SECONDS);
+                if (end != null) {
+                    latencies[samples++] = end - start;
+                }
+            }
+        }
+        evaluator.shutdown();
+
+        long[] measured = Arrays.copyOf(latencies, samples);
+        Arrays.sort(measured);
+        System.out.println(String.format("%dx%d K=%d: %d updates, p50 %.1f us, p99 %.1f us, max %.1f us",
+                size, size, winLength, samples,
+                measured[samples / 2] / 1000.0, measured[samples * 99 / 100] / 1000.0,
+                measured[samples - 1] / 1000.0));
+    }
+}
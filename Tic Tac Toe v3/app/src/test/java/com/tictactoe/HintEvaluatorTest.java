@@ -0,0 +1,93 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class HintEvaluatorTest {
+    private final BlockingQueue<float[]> delivered = new ArrayBlockingQueue<>(16);
+    private final HintEvaluator evaluator = new HintEvaluator(Runnable::run, delivered::offer);
+
+    @After
+    public void shutDown() {
+        evaluator.shutdown();
+    }
+
+    private float[] next() throws InterruptedException {
+        float[] heat = delivered.poll(5, TimeUnit.SECONDS);
+        assertNotNull(heat);
+        return heat;
+    }
+
+    @Test
+    public void emptyBoardIsADrawEverywhere() throws InterruptedException {
+        GameLogic gameLogic = new GameLogic();
+        evaluator.setBoard(gameLogic.getBoard(), 3, gameLogic.getCurrentPlayer());
+        float[] heat = next();
+        for (float value : heat) {
+            assertEquals(0.5f, value, 0f);
+        }
+    }
+
+    @Test
+    public void exactHeatFollowsGameValues() throws InterruptedException {
+        GameLogic gameLogic = new GameLogic();
+        evaluator.setBoard(gameLogic.getBoard(), 3, gameLogic.getCurrentPlayer());
+        next();
+        int[] cells = {0, 4, 1, 3};
+        float[] heat = null;
+        for (int cell : cells) {
+            int player = gameLogic.getCurrentPlayer();
+            gameLogic.makeMove(cell / 3, cell % 3);
+            evaluator.onMove(cell / 3, cell % 3, player);
+            heat = next();
+            Position position = gameLogic.snapshot();
+            for (int target = 0; target < 9; target++) {
+                if (position.getCell(target) != GameLogic.EMPTY) {
+                    assertEquals(-1f, heat[target], 0f);
+                    continue;
+                }
+                Position after = position.play(target);
+                int value = after.getWinner() != GameLogic.EMPTY ? GameAnalyzer.WIN : -GameAnalyzer.exactValue(after);
+                assertEquals((value + 1) / 2f, heat[target], 0f);
+            }
+        }
+        // X holds 0 and 1, so 2 wins on the spot
+        assertEquals(1f, heat[2], 0f);
+    }
+
+    @Test
+    public void incrementalUpdatesMatchAFreshBoard() throws InterruptedException {
+        Random random = new Random(31);
+        GameLogic gameLogic = new GameLogic(7, 4);
+        evaluator.setBoard(gameLogic.getBoard(), 4, gameLogic.getCurrentPlayer());
+        next();
+        HintEvaluator fresh = new HintEvaluator(Runnable::run, delivered::offer);
+        try {
+            for (int move = 0; move < 20 && !gameLogic.isGameOver(); move++) {
+                int row;
+                int col;
+                do {
+                    row = random.nextInt(7);
+                    col = random.nextInt(7);
+                } while (!gameLogic.isValidMove(row, col));
+                int player = gameLogic.getCurrentPlayer();
+                gameLogic.makeMove(row, col);
+                evaluator.onMove(row, col, player);
+                float[] incremental = next();
+                fresh.setBoard(gameLogic.getBoard(), 4, gameLogic.getCurrentPlayer());
+                assertArrayEquals(next(), incremental, 1e-6f);
+            }
+        } finally {
+            fresh.shutdown();
+        }
+    }
+}
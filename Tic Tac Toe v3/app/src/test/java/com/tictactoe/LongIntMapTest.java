@@ -0,0 +1,62 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongIntMapTest {
+    @Test
+    public void matchesAHashMapUnderRandomChurn() {
+        Random random = new Random(41);
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int op = 0; op < 200_000; op++) {
+            // A small key range, so keys collide, come back and get removed often
+            long key = SparseBoard.key(random.nextInt(64) - 32, random.nextInt(64) - 32);
+            int choice = random.nextInt(3);
+            if (choice == 0) {
+                int value = random.nextInt(5);
+                map.put(key, value);
+                if (value == 0) {
+                    expected.remove(key);
+                } else {
+                    expected.put(key, value);
+                }
+            } else if (choice == 1) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                int value = expected.getOrDefault(key, 0) + 1;
+                assertEquals(value, map.add(key, 1));
+                expected.put(key, value);
+            }
+            assertEquals(expected.getOrDefault(key, 0).intValue(), map.get(key));
+            assertEquals(expected.size(), map.size());
+        }
+        int walked = 0;
+        for (int slot = 0; slot < map.getCapacity(); slot++) {
+            if (map.valueAt(slot) != 0) {
+                assertEquals(expected.get(map.keyAt(slot)).intValue(), map.valueAt(slot));
+                walked++;
+            }
+        }
+        assertEquals(expected.size(), walked);
+    }
+
+    @Test
+    public void clearKeepsTheCapacity() {
+        LongIntMap map = new LongIntMap();
+        for (int i = 1; i <= 1000; i++) {
+            map.put(i, i);
+        }
+        int capacity = map.getCapacity();
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(0, map.get(500));
+        assertEquals(capacity, map.getCapacity());
+    }
+}
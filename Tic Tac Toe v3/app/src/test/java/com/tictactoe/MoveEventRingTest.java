@@ -0,0 +1,41 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MoveEventRingTest {
+    @Test
+    public void eventsRoundTripTheirFields() {
+        long event = MoveEventRing.encode(MoveEventRing.TYPE_UNDO, GameLogic.PLAYER_O, 63, 0x1_2345_6789L);
+        assertEquals(MoveEventRing.TYPE_UNDO, MoveEventRing.type(event));
+        assertEquals(GameLogic.PLAYER_O, MoveEventRing.player(event));
+        assertEquals(63, MoveEventRing.data(event));
+        assertEquals(0x2345_6789, MoveEventRing.sequence(event));
+    }
+
+    @Test
+    public void slowConsumersSeeOverwrittenSlots() {
+        MoveEventRing ring = new MoveEventRing(4);
+        for (int cell = 0; cell < 6; cell++) {
+            assertEquals(cell, ring.publish(MoveEventRing.TYPE_MOVE, GameLogic.PLAYER_X, cell));
+        }
+        assertEquals(6, ring.getPublished());
+        // One slot of margin: the slot the producer writes next is already lost
+        assertFalse(ring.isAvailable(2));
+        assertEquals(MoveEventRing.OVERWRITTEN, ring.get(2));
+        for (long sequence = 3; sequence < 6; sequence++) {
+            assertTrue(ring.isAvailable(sequence));
+            long event = ring.get(sequence);
+            assertEquals(sequence, MoveEventRing.sequence(event));
+            assertEquals(sequence, MoveEventRing.data(event));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCapacitiesThatAreNotPowersOfTwo() {
+        new MoveEventRing(12);
+    }
+}
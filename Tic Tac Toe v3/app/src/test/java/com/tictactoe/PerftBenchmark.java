@@ -0,0 +1,101 @@
+package com.tictactoe;
+
+// Headless check and benchmark for Perft. The full 3x3 tree must match the known
+// counts ply by ply, the 3x3 positions too, and enumerate()'s path counts must add up
+// to perft()'s nodes for every variant. Then a deeper perft on a larger board, whose
+// plies before anyone can have won must hold every ordering of the moves.
+// Usage: PerftBenchmark [threads] [size] [winLength] [depth]
+public class PerftBenchmark {
+    private static final long[] NODES_3X3 = {1, 9, 72, 504, 3024, 15120, 54720, 148176, 200448, 127872};
+    private static final long[] POSITIONS_3X3 = {1, 9, 72, 252, 756, 1260, 1520, 1140, 390, 78};
+    private static final Rules[] VARIANTS = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int winLength = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 7;
+
+        GameLogic game = new GameLogic();
+        Perft.Counts counts = null;
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            counts = Perft.perft(game, 9, threads);
+            nanos = System.nanoTime() - start;
+        }
+        for (int ply = 0; ply <= 9; ply++) {
+            check("3x3 nodes at ply " + ply, counts.getNodes(ply), NODES_3X3[ply]);
+        }
+        check("3x3 nodes", counts.getTotalNodes(), 549_946);
+        check("3x3 finished games", counts.getLeaves(), GameRankCodec.GAME_COUNT);
+        report("3x3 standard perft(9)", counts.getTotalNodes(), nanos, threads);
+
+        long[] unique = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            unique = enumerate(Position.empty(3, 3), Rules.STANDARD, 9, counts);
+            nanos = System.nanoTime() - start;
+        }
+        long positions = 0;
+        for (int ply = 0; ply <= 9; ply++) {
+            check("3x3 positions at ply " + ply, unique[ply], POSITIONS_3X3[ply]);
+            positions += unique[ply];
+        }
+        check("3x3 positions", positions, 5_478);
+        report("3x3 standard positions", positions, nanos, 1);
+
+        for (Rules rules : VARIANTS) {
+            Position empty = Position.empty(3, 3);
+            long start = System.nanoTime();
+            Perft.Counts variant = Perft.perft(empty, rules, 9, threads);
+            long perftNanos = System.nanoTime() - start;
+            unique = enumerate(empty, rules, 9, variant);
+            positions = 0;
+            for (long count : unique) {
+                positions += count;
+            }
+            System.out.println(String.format("  %-8s %,d nodes, %,d finished games, %,d positions, %.0f nodes/s",
+                    rules.getName(), variant.getTotalNodes(), variant.getLeaves(), positions,
+                    variant.getTotalNodes() / (perftNanos / 1e9)));
+        }
+
+        Position empty = Position.empty(size, winLength);
+        int cells = size * size;
+        for (int runThreads : threads == 1 ? new int[]{1} : new int[]{1, threads}) {
+            long start = System.nanoTime();
+            counts = Perft.perft(empty, Rules.STANDARD, depth, runThreads);
+            nanos = System.nanoTime() - start;
+            long expected = 1;
+            // Nobody can win before 2 * winLength - 1 moves
+            for (int ply = 0; ply <= depth && ply < 2 * winLength - 1 && ply <= cells; ply++) {
+                check(size + "x" + size + " nodes at ply " + ply, counts.getNodes(ply), expected);
+                expected *= cells - ply;
+            }
+            report(String.format("%dx%d K=%d standard perft(%d)", size, size, winLength, depth),
+                    counts.getTotalNodes(), nanos, runThreads);
+        }
+    }
+
+    // Enumerates and checks that the path counts add up to perft's nodes at each ply
+    private static long[] enumerate(Position start, Rules rules, int depth, Perft.Counts counts) {
+        long[] paths = new long[depth + 1];
+        long[] unique = Perft.enumerate(start, rules, depth, (position, ply, count) -> paths[ply] += count);
+        for (int ply = 0; ply <= depth; ply++) {
+            check(rules.getName() + " paths at ply " + ply, paths[ply], counts.getNodes(ply));
+        }
+        return unique;
+    }
+
+    private static void check(String what, long actual, long expected) {
+        if (actual != expected) {
+            throw new AssertionError(what + ": " + actual + ", expected " + expected);
+        }
+    }
+
+    private static void report(String what, long nodes, long nanos, int threads) {
+        System.out.println(String.format("%s: %,d in %.1f ms on %d thread%s, %.0f per second", what, nodes,
+                nanos / 1e6, threads, threads == 1 ? "" : "s", nodes / (nanos / 1e9)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PerftTest {
+    private static final long[] NODES_3X3 = {1, 9, 72, 504, 3024, 15120, 54720, 148176, 200448, 127872};
+    private static final long[] POSITIONS_3X3 = {1, 9, 72, 252, 756, 1260, 1520, 1140, 390, 78};
+    private static final Rules[] VARIANTS = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+
+    @Test
+    public void full3x3TreeMatchesTheKnownCounts() {
+        for (int threads : new int[]{1, 4}) {
+            Perft.Counts counts = Perft.perft(new GameLogic(), 9, threads);
+            for (int ply = 0; ply <= 9; ply++) {
+                assertEquals("ply " + ply, NODES_3X3[ply], counts.getNodes(ply));
+            }
+            assertEquals(549_946, counts.getTotalNodes());
+            assertEquals(GameRankCodec.GAME_COUNT, counts.getLeaves());
+        }
+    }
+
+    @Test
+    public void enumerate3x3FindsEveryPosition() {
+        long[] unique = Perft.enumerate(Position.empty(3, 3), Rules.STANDARD, 9, (position, ply, paths) -> { });
+        long positions = 0;
+        for (int ply = 0; ply <= 9; ply++) {
+            assertEquals("ply " + ply, POSITIONS_3X3[ply], unique[ply]);
+            positions += unique[ply];
+        }
+        assertEquals(5_478, positions);
+    }
+
+    @Test
+    public void pathCountsAddUpToPerftNodes() {
+        for (Rules rules : VARIANTS) {
+            Position empty = Position.empty(3, 3);
+            Perft.Counts counts = Perft.perft(empty, rules, 9, 2);
+            long[] paths = new long[10];
+            Perft.enumerate(empty, rules, 9, (position, ply, count) -> paths[ply] += count);
+            for (int ply = 0; ply <= 9; ply++) {
+                assertEquals(rules.getName() + " ply " + ply, counts.getNodes(ply), paths[ply]);
+            }
+        }
+    }
+
+    @Test
+    public void pliesBeforeAnyWinHoldEveryOrdering() {
+        int cells = 16;
+        Perft.Counts counts = Perft.perft(Position.empty(4, 4), Rules.STANDARD, 6, 2);
+        long expected = 1;
+        // Nobody can win before 2 * 4 - 1 moves
+        for (int ply = 0; ply <= 6; ply++) {
+            assertEquals("ply " + ply, expected, counts.getNodes(ply));
+            assertEquals(0, counts.getEnded(ply));
+            expected *= cells - ply;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBoardsPositionCannotHold() {
+        GameLogic game = new GameLogic(9, 5);
+        game.makeMove(8, 8);
+        Perft.perft(game, 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeDepths() {
+        Perft.perft(Position.empty(3, 3), Rules.STANDARD, -1, 1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class PondererTest {
+    // Blocks its first search until released and ignores interrupts, like a search
+    // that is deep in a subtree when stop() cancels its task
+    private static final class StalledAI extends AIPlayer {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        StalledAI() {
+            super(Difficulty.HARD, GameLogic.PLAYER_O, 26);
+        }
+
+        @Override
+        public int[] getMove(Position position) {
+            entered.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getMove(position);
+        }
+    }
+
+    @Test
+    public void aReplyFinishedAfterStopIsNotTaken() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Ponderer ponderer = new Ponderer(executor);
+        StalledAI ai = new StalledAI();
+        // X to move; the first pondered human reply is the center
+        Position position = Position.empty(3, 3);
+        ponderer.start(ai, position);
+        assertTrue(ai.entered.await(5, TimeUnit.SECONDS));
+        ponderer.stop();
+        ai.release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertNull(ponderer.takeReply(ai, position.play(4)));
+        assertEquals(0, ponderer.getHits());
+        assertEquals(1, ponderer.getMisses());
+    }
+
+    @Test
+    public void countsPredictedAndUnpredictedMoves() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Ponderer ponderer = new Ponderer(executor);
+        AIPlayer ai = new AIPlayer(AIPlayer.Difficulty.HARD, GameLogic.PLAYER_O, 26);
+        Position position = Position.empty(3, 3).play(4).play(0);
+        ponderer.start(ai, position);
+        // Without interrupts the task ponders every human reply before the executor ends
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Position predicted = position.play(8);
+        int[] reply = ponderer.takeReply(ai, predicted);
+        assertNotNull(reply);
+        assertEquals(1, ponderer.getHits());
+
+        // Nothing was pondered from the next position, so the human's move there is a miss
+        Position next = predicted.play(reply[0] * 3 + reply[1]);
+        assertNull(ponderer.takeReply(ai, next.play(Long.numberOfTrailingZeros(next.getEmptyCells()))));
+        assertEquals(1, ponderer.getHits());
+        assertEquals(1, ponderer.getMisses());
+        assertEquals(0.5f, ponderer.getHitRate(), 0f);
+    }
+}
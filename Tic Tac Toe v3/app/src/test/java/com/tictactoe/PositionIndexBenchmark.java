@@ -0,0 +1,116 @@
+package com.tictactoe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Headless build/query benchmark for PositionIndex on random games: bulk build, an
+// incremental append, then lookups of positions taken from stored games.
+// Usage: PositionIndexBenchmark [games] [size] [winLength]
+public class PositionIndexBenchmark {
+    private static final int QUERIES = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int winLength = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        File directory = File.createTempFile("position-index", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        Random random = new Random(5);
+        int appended = games / 10;
+        int[][] stored = new int[games + appended][];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = randomGame(size, winLength, random);
+        }
+
+        try {
+            long postings = 0;
+            long start = System.nanoTime();
+            try (PositionIndex index = new PositionIndex(directory, size, winLength)) {
+                for (int i = 0; i < games; i++) {
+                    index.append(stored[i]);
+                    postings += stored[i].length + 1;
+                }
+                index.flush();
+                report("build", games, postings, start, index);
+            }
+
+            // Reopen and add more games without rebuilding what is there
+            long appendedPostings = 0;
+            start = System.nanoTime();
+            try (PositionIndex index = new PositionIndex(directory, size, winLength)) {
+                for (int i = games; i < stored.length; i++) {
+                    index.append(stored[i]);
+                    appendedPostings += stored[i].length + 1;
+                }
+                index.flush();
+                report("append", appended, appendedPostings, start, index);
+            }
+
+            try (PositionIndex index = new PositionIndex(directory, size, winLength)) {
+                long[] latencies = new long[QUERIES];
+                long hits = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    int[] game = stored[random.nextInt(stored.length)];
+                    Position position = Position.empty(size, winLength);
+                    int plies = random.nextInt(game.length + 1);
+                    for (int i = 0; i < plies; i++) {
+                        position = position.play(game[i]);
+                    }
+                    long queryStart = System.nanoTime();
+                    int[] outcomes = index.countOutcomes(position);
+                    latencies[q] = System.nanoTime() - queryStart;
+                    hits += outcomes[0] + outcomes[1] + outcomes[2] + outcomes[3];
+                }
+                Arrays.sort(latencies);
+                System.out.println(String.format("query (outcome counts): p50 %.1f us, p99 %.1f us, max %.2f ms,"
+                                + " %.1f games per position on average",
+                        latencies[QUERIES / 2] / 1e3, latencies[QUERIES * 99 / 100] / 1e3,
+                        latencies[QUERIES - 1] / 1e6, hits / (double) QUERIES));
+                long emptyStart = System.nanoTime();
+                int[] all = index.countOutcomes(Position.empty(size, winLength));
+                System.out.println(String.format("empty board: %d games (X %d, O %d, draw %d, unfinished %d) in %.1f ms",
+                        all[0] + all[1] + all[2] + all[3], all[PositionIndex.OUTCOME_X], all[PositionIndex.OUTCOME_O],
+                        all[PositionIndex.OUTCOME_DRAW], all[PositionIndex.OUTCOME_UNFINISHED],
+                        (System.nanoTime() - emptyStart) / 1e6));
+            }
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    private static int[] randomGame(int size, int winLength, Random random) {
+        Position position = Position.empty(size, winLength);
+        int[] moves = new int[size * size];
+        int count = 0;
+        while (!position.isTerminal()) {
+            long empty = position.getEmptyCells();
+            int skip = random.nextInt(Long.bitCount(empty));
+            for (int i = 0; i < skip; i++) {
+                empty &= empty - 1;
+            }
+            int cell = Long.numberOfTrailingZeros(empty);
+            moves[count++] = cell;
+            position = position.play(cell);
+        }
+        return Arrays.copyOf(moves, count);
+    }
+
+    private static void report(String label, int games, long postings, long start, PositionIndex index) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%s: %d games, %d positions in %.2f s (%.0f games/s), %d segments,"
+                        + " index %.1f MB for %d games",
+                label, games, postings, seconds, games / seconds, index.getSegmentCount(),
+                index.getSizeBytes() / 1e6, index.getGameCount()));
+    }
+}
@@ -0,0 +1,122 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class PositionIndexTest {
+    private static final int SIZE = 4;
+    private static final int WIN_LENGTH = 3;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static int[] randomGame(Random random) {
+        Position position = Position.empty(SIZE, WIN_LENGTH);
+        int[] moves = new int[SIZE * SIZE];
+        int count = 0;
+        while (!position.isTerminal()) {
+            long empty = position.getEmptyCells();
+            int skip = random.nextInt(Long.bitCount(empty));
+            for (int i = 0; i < skip; i++) {
+                empty &= empty - 1;
+            }
+            int cell = Long.numberOfTrailingZeros(empty);
+            moves[count++] = cell;
+            position = position.play(cell);
+        }
+        // Some games are stored unfinished
+        return Arrays.copyOf(moves, random.nextInt(4) == 0 ? count / 2 : count);
+    }
+
+    private static List<Position> replay(int[] moves) {
+        List<Position> positions = new ArrayList<>();
+        Position position = Position.empty(SIZE, WIN_LENGTH);
+        positions.add(position);
+        for (int cell : moves) {
+            position = position.play(cell);
+            positions.add(position);
+        }
+        return positions;
+    }
+
+    @Test
+    public void findsEveryGameThroughAPositionAcrossSegments() throws IOException {
+        File directory = folder.newFolder();
+        Random random = new Random(34);
+        int[][] games = new int[600][];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = randomGame(random);
+        }
+        try (PositionIndex index = new PositionIndex(directory, SIZE, WIN_LENGTH)) {
+            for (int i = 0; i < 400; i++) {
+                assertEquals(i, index.append(games[i]));
+                if (i % 50 == 49) {
+                    index.flush();
+                }
+            }
+        }
+        // Reopened, appending continues the ids
+        try (PositionIndex index = new PositionIndex(directory, SIZE, WIN_LENGTH)) {
+            assertEquals(400, index.getGameCount());
+            for (int i = 400; i < games.length; i++) {
+                assertEquals(i, index.append(games[i]));
+            }
+            index.flush();
+        }
+
+        try (PositionIndex index = new PositionIndex(directory, SIZE, WIN_LENGTH)) {
+            assertEquals(games.length, index.getGameCount());
+            for (int query = 0; query < 200; query++) {
+                List<Position> path = replay(games[random.nextInt(games.length)]);
+                Position position = path.get(random.nextInt(path.size()));
+                List<Integer> expected = new ArrayList<>();
+                int[] outcomes = new int[4];
+                for (int id = 0; id < games.length; id++) {
+                    if (replay(games[id]).contains(position)) {
+                        expected.add(id);
+                        outcomes[index.getOutcome(id)]++;
+                    }
+                }
+                int[] found = index.findGames(position);
+                assertEquals(expected.size(), found.length);
+                for (int i = 0; i < found.length; i++) {
+                    assertEquals((int) expected.get(i), found[i]);
+                }
+                assertArrayEquals(outcomes, index.countOutcomes(position));
+            }
+            int[] all = index.countOutcomes(Position.empty(SIZE, WIN_LENGTH));
+            assertEquals(games.length, all[0] + all[1] + all[2] + all[3]);
+        }
+    }
+
+    @Test
+    public void recordsEachGamesOutcome() throws IOException {
+        try (PositionIndex index = new PositionIndex(folder.newFolder(), 3, 3)) {
+            int won = index.append(new int[]{0, 3, 1, 4, 2});
+            int drawn = index.append(new int[]{0, 4, 8, 1, 7, 6, 2, 5, 3});
+            int unfinished = index.append(new int[]{4});
+            index.flush();
+            assertEquals(PositionIndex.OUTCOME_X, index.getOutcome(won));
+            assertEquals(PositionIndex.OUTCOME_DRAW, index.getOutcome(drawn));
+            assertEquals(PositionIndex.OUTCOME_UNFINISHED, index.getOutcome(unfinished));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIllegalMoves() throws IOException {
+        try (PositionIndex index = new PositionIndex(folder.newFolder(), 3, 3)) {
+            index.append(new int[]{4, 4});
+        }
+    }
+}
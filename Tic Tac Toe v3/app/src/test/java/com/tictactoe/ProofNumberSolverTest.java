@@ -0,0 +1,81 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ProofNumberSolverTest {
+    private static ProofNumberSolver.Outcome solve(int size, int winLength, int... cells) {
+        GameLogic gameLogic = new GameLogic(size, winLength);
+        for (int cell : cells) {
+            gameLogic.makeMove(cell / size, cell % size);
+        }
+        return new ProofNumberSolver(16).solve(gameLogic).getOutcome();
+    }
+
+    @Test
+    public void solvesKnownOpenings() {
+        assertEquals(ProofNumberSolver.Outcome.DRAW, solve(3, 3));
+        assertEquals(ProofNumberSolver.Outcome.WIN, solve(4, 3));
+        assertEquals(ProofNumberSolver.Outcome.WIN, solve(5, 4, 12, 0));
+        assertEquals(ProofNumberSolver.Outcome.WIN, solve(5, 4, 12, 13, 7, 17));
+    }
+
+    @Test
+    public void agreesWithMinimaxOnRandom3x3Positions() {
+        Random random = new Random(27);
+        ProofNumberSolver solver = new ProofNumberSolver(16);
+        int[] values = {GameAnalyzer.WIN, GameAnalyzer.LOSS, GameAnalyzer.DRAW};
+        for (int game = 0; game < 200; game++) {
+            Position position = Position.empty(3, 3);
+            int plies = random.nextInt(8);
+            for (int ply = 0; ply < plies && !position.isTerminal(); ply++) {
+                long empty = position.getEmptyCells();
+                int skip = random.nextInt(Long.bitCount(empty));
+                for (int i = 0; i < skip; i++) {
+                    empty &= empty - 1;
+                }
+                position = position.play(Long.numberOfTrailingZeros(empty));
+            }
+            if (position.isTerminal()) {
+                continue;
+            }
+            solver.clear();
+            ProofNumberSolver.Outcome outcome = solver.solve(position, Long.MAX_VALUE).getOutcome();
+            assertEquals(GameAnalyzer.exactValue(position), values[outcome.ordinal()]);
+        }
+    }
+
+    @Test
+    public void proofMoveKeepsTheWin() {
+        GameLogic gameLogic = new GameLogic(5, 4);
+        gameLogic.makeMove(2, 2);
+        gameLogic.makeMove(0, 0);
+        ProofNumberSolver.Result result = new ProofNumberSolver(16).solve(gameLogic);
+        assertEquals(ProofNumberSolver.Outcome.WIN, result.getOutcome());
+        int[] move = result.getMove();
+        assertNotNull(move);
+        gameLogic.makeMove(move[0], move[1]);
+        assertEquals(ProofNumberSolver.Outcome.LOSS, new ProofNumberSolver(16).solve(gameLogic).getOutcome());
+    }
+
+    @Test
+    public void resumesAcrossNodeSlices() {
+        GameLogic gameLogic = new GameLogic(5, 4);
+        gameLogic.makeMove(2, 2);
+        gameLogic.makeMove(0, 0);
+        ProofNumberSolver solver = new ProofNumberSolver(16);
+        ProofNumberSolver.Result result;
+        int slices = 0;
+        do {
+            result = solver.solve(gameLogic, 500);
+            slices++;
+        } while (result.getOutcome() == ProofNumberSolver.Outcome.UNKNOWN);
+        assertEquals(ProofNumberSolver.Outcome.WIN, result.getOutcome());
+        assertTrue(slices > 1);
+    }
+}
@@ -0,0 +1,175 @@
+package com.tictactoe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+// Headless throughput benchmark for the rule variants: random playouts through
+// Rules.getLegalCells()/play(), against the built-in standard rules in Position.play().
+// The headline pass runs every variant in one JVM after each has warmed up, as in the
+// app, where the rules dialog switches variants and the call sites go megamorphic.
+// A second pass runs each variant in its own JVM, the monomorphic best case. Perft's
+// counts, which pick a routine per variant at the root, are timed in the mixed JVM too.
+// Usage: RulesBenchmark [millisPerBoard] [variant]  (a variant runs only that one here)
+public class RulesBenchmark {
+    private static final int[][] BOARDS = {{3, 3}, {5, 4}, {7, 4}};
+    private static final String BUILT_IN = "built-in";
+    // Gravity has at most four moves a ply on 4x4, so it goes deeper for a tree of similar size
+    private static final int PERFT_DEPTH = 4;
+    private static final int GRAVITY_PERFT_DEPTH = 8;
+    private static final Rules[] VARIANTS = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        if (args.length > 1) {
+            measure(args[1], millis);
+            return;
+        }
+        String[] names = new String[VARIANTS.length + 1];
+        names[0] = BUILT_IN;
+        for (int i = 0; i < VARIANTS.length; i++) {
+            names[i + 1] = VARIANTS[i].getName();
+        }
+        System.out.println("rules         board  moves/s (one JVM)  vs built-in");
+        for (String name : names) {
+            run(name, millis / 4, false);
+        }
+        double[] baseline = new double[BOARDS.length];
+        for (String name : names) {
+            for (int board = 0; board < BOARDS.length; board++) {
+                double movesPerSecond = playouts(name, BOARDS[board], millis);
+                if (name.equals(BUILT_IN)) {
+                    baseline[board] = movesPerSecond;
+                }
+                print(name, BOARDS[board], movesPerSecond, baseline[board]);
+            }
+        }
+
+        System.out.println("perft to depth " + PERFT_DEPTH + " (gravity " + GRAVITY_PERFT_DEPTH
+                + ") on 4x4 K4, nodes/s (one JVM):");
+        for (Rules rules : VARIANTS) {
+            perft(rules, millis / 4);
+        }
+        for (Rules rules : VARIANTS) {
+            System.out.println(String.format("%-12s %17.0f", rules.getName(), perft(rules, millis)));
+        }
+
+        System.out.println("each in its own JVM, the best case:");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (String name : names) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    RulesBenchmark.class.getName(), String.valueOf(millis), name);
+            builder.redirectErrorStream(true);
+            Process process = builder.start();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"))) {
+                String line;
+                int board = 0;
+                while ((line = in.readLine()) != null) {
+                    double movesPerSecond = Double.parseDouble(line.trim());
+                    if (name.equals(BUILT_IN)) {
+                        baseline[board] = movesPerSecond;
+                    }
+                    print(name, BOARDS[board], movesPerSecond, baseline[board]);
+                    board++;
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IOException("Benchmark for " + name + " failed");
+            }
+        }
+    }
+
+    // Child process: one variant only, one line per board
+    private static void measure(String name, long millis) {
+        run(name, millis / 4, false);
+        run(name, millis, true);
+    }
+
+    private static void run(String name, long millis, boolean print) {
+        for (int[] board : BOARDS) {
+            double movesPerSecond = playouts(name, board, millis);
+            if (print) {
+                System.out.println(movesPerSecond);
+            }
+        }
+    }
+
+    private static double playouts(String name, int[] board, long millis) {
+        Position empty = Position.empty(board[0], board[1]);
+        Rules rules = null;
+        for (Rules variant : VARIANTS) {
+            if (variant.getName().equals(name)) {
+                rules = variant;
+            }
+        }
+        long seed = 0x2545F4914F6CDD1DL;
+        long moves = 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000L;
+        long now;
+        do {
+            for (int game = 0; game < 256; game++) {
+                Position position = empty;
+                if (rules == null) {
+                    // The built-in rules, called directly
+                    while (!position.isTerminal()) {
+                        long legal = position.getEmptyCells();
+                        seed ^= seed << 13;
+                        seed ^= seed >>> 7;
+                        seed ^= seed << 17;
+                        position = position.play(nthCell(legal, (int) ((seed >>> 33) % Long.bitCount(legal))));
+                        moves++;
+                    }
+                } else {
+                    boolean wild = rules.allowsOtherSymbol();
+                    while (!position.isTerminal()) {
+                        long legal = rules.getLegalCells(position);
+                        seed ^= seed << 13;
+                        seed ^= seed >>> 7;
+                        seed ^= seed << 17;
+                        int move = nthCell(legal, (int) ((seed >>> 33) % Long.bitCount(legal)));
+                        if (wild && (seed & 1) != 0) {
+                            move |= Rules.OTHER_SYMBOL;
+                        }
+                        position = rules.play(position, move);
+                        moves++;
+                    }
+                }
+                checksum += position.getWinner();
+            }
+            now = System.nanoTime();
+        } while (now < end);
+        if (checksum < 0) {
+            System.out.println(checksum);
+        }
+        return moves / ((now - start) / 1e9);
+    }
+
+    private static double perft(Rules rules, long millis) {
+        Position empty = Position.empty(4, 4);
+        int depth = rules == Rules.GRAVITY ? GRAVITY_PERFT_DEPTH : PERFT_DEPTH;
+        long nodes = 0;
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000L;
+        long now;
+        do {
+            nodes += Perft.perft(empty, rules, depth, 1).getTotalNodes();
+            now = System.nanoTime();
+        } while (now < end);
+        return nodes / ((now - start) / 1e9);
+    }
+
+    private static int nthCell(long cells, int n) {
+        for (int i = 0; i < n; i++) {
+            cells &= cells - 1;
+        }
+        return Long.numberOfTrailingZeros(cells);
+    }
+
+    private static void print(String name, int[] board, double movesPerSecond, double baseline) {
+        System.out.println(String.format("%-12s %dx%d K%d  %17.0f  %10.2f", name, board[0], board[0], board[1],
+                movesPerSecond, baseline == 0 ? 0 : movesPerSecond / baseline));
+    }
+}
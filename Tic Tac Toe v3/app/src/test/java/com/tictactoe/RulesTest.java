@@ -0,0 +1,121 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RulesTest {
+    private static final Rules[] VARIANTS = {Rules.STANDARD, Rules.MISERE, Rules.WILD, Rules.GRAVITY};
+
+    private static Position play(Rules rules, int... moves) {
+        Position position = Position.empty(3, 3);
+        for (int move : moves) {
+            position = rules.play(position, move);
+        }
+        return position;
+    }
+
+    @Test
+    public void standardMatchesTheBuiltInRules() {
+        Position position = play(Rules.STANDARD, 0, 3, 1, 4, 2);
+        assertEquals(Position.empty(3, 3).play(0).play(3).play(1).play(4).play(2), position);
+        assertEquals(GameLogic.PLAYER_X, position.getWinner());
+    }
+
+    @Test
+    public void misereLosesOnYourOwnLine() {
+        Position position = play(Rules.MISERE, 0, 3, 1, 4, 2);
+        assertTrue(position.isTerminal());
+        assertEquals(GameLogic.PLAYER_O, position.getWinner());
+        assertEquals(0, Rules.MISERE.getLegalCells(position));
+    }
+
+    @Test
+    public void wildWinsWithEitherSymbol() {
+        // X places O stones on 3 and 5 around O's 4
+        Position position = play(Rules.WILD, 3 | Rules.OTHER_SYMBOL, 4, 5 | Rules.OTHER_SYMBOL);
+        assertEquals(GameLogic.PLAYER_X, position.getWinner());
+        assertEquals(0, position.getX());
+        assertEquals(7L << 3, position.getO());
+    }
+
+    @Test
+    public void gravityDropsToTheLowestEmptyCell() {
+        Position position = Position.empty(3, 3);
+        assertEquals(7L << 6, Rules.GRAVITY.getLegalCells(position));
+        assertEquals(6, Rules.GRAVITY.resolveCell(position, 0));
+        position = Rules.GRAVITY.play(position, 6);
+        assertEquals(3, Rules.GRAVITY.resolveCell(position, 0));
+        position = Rules.GRAVITY.play(position, 3);
+        position = Rules.GRAVITY.play(position, 0);
+        assertEquals(-1, Rules.GRAVITY.resolveCell(position, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gravityRejectsFloatingStones() {
+        Rules.GRAVITY.play(Position.empty(3, 3), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyWildAllowsTheOtherSymbol() {
+        Rules.MISERE.play(Position.empty(3, 3), 4 | Rules.OTHER_SYMBOL);
+    }
+
+    @Test
+    public void arrangedBoardsMatchPlayedOnes() {
+        Random random = new Random(39);
+        for (Rules rules : VARIANTS) {
+            for (int game = 0; game < 200; game++) {
+                Position position = Position.empty(4, 3);
+                while (!position.isTerminal()) {
+                    long legal = rules.getLegalCells(position);
+                    int skip = random.nextInt(Long.bitCount(legal));
+                    for (int i = 0; i < skip; i++) {
+                        legal &= legal - 1;
+                    }
+                    int move = Long.numberOfTrailingZeros(legal);
+                    if (rules.allowsOtherSymbol() && random.nextBoolean()) {
+                        move |= Rules.OTHER_SYMBOL;
+                    }
+                    position = rules.play(position, move);
+                    Position arranged = rules.arrange(position.getGeometry(), position.getX(), position.getO(),
+                            position.getToMove());
+                    assertEquals(rules.getName(), position.getWinner(), arranged.getWinner());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void gameLogicUndoesEveryVariant() {
+        Random random = new Random(3939);
+        for (Rules rules : VARIANTS) {
+            int size = rules == Rules.STANDARD ? 10 : 5;
+            GameLogic gameLogic = new GameLogic(size, 4, rules);
+            int[][][] boards = new int[size * size + 1][][];
+            int plies = 0;
+            boards[0] = gameLogic.getBoard();
+            while (!gameLogic.isGameOver()) {
+                int row = random.nextInt(size);
+                int col = random.nextInt(size);
+                int symbol = rules.allowsOtherSymbol() && random.nextBoolean()
+                        ? GameLogic.PLAYER_O : gameLogic.getCurrentPlayer();
+                if (gameLogic.makeMove(row, col, symbol)) {
+                    boards[++plies] = gameLogic.getBoard();
+                }
+            }
+            for (int ply = plies; ply > 0; ply--) {
+                assertTrue(gameLogic.undo());
+                assertFalse(gameLogic.isGameOver());
+                assertArrayEquals(rules.getName() + " ply " + ply, boards[ply - 1], gameLogic.getBoard());
+            }
+            assertFalse(gameLogic.undo());
+            assertEquals(GameLogic.PLAYER_X, gameLogic.getCurrentPlayer());
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.tictactoe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hands self-play batches to SelfPlayWorker processes over loopback sockets and merges
+// their results. Workers pull one batch at a time, so fast workers simply take more.
+// Once the queue is empty, idle workers re-run batches still held by slower ones and
+// the first result wins. A worker that dies has its batch put back at the front of the
+// queue. Every batch is seeded and replayable, and results are recorded once per batch
+// id, so games are never lost or counted twice.
+// Usage: SelfPlayCoordinator [workers] [gamesPerMatchup] [batchSize] [crashAfterBatches]
+public class SelfPlayCoordinator implements Closeable {
+    private static final int MAX_COPIES = 2;
+    private static final int MAX_RESPAWNS = 8;
+
+    public static final class Matchup {
+        final int size;
+        final int winLength;
+        final AIPlayer.Difficulty x;
+        final AIPlayer.Difficulty o;
+        final int games;
+
+        public Matchup(int size, int winLength, AIPlayer.Difficulty x, AIPlayer.Difficulty o, int games) {
+            this.size = size;
+            this.winLength = winLength;
+            this.x = x;
+            this.o = o;
+            this.games = games;
+        }
+
+        @Override
+        public String toString() {
+            return size + "x" + size + " K" + winLength + " " + x + " vs " + o;
+        }
+    }
+
+    // Work order sent to a worker; an id of -1 tells the worker to exit
+    static final class Batch {
+        final int id;
+        final int matchup;
+        final int size;
+        final int winLength;
+        final AIPlayer.Difficulty x;
+        final AIPlayer.Difficulty o;
+        final long seed;
+        final int games;
+
+        Batch(int id, int matchup, int size, int winLength, AIPlayer.Difficulty x, AIPlayer.Difficulty o,
+              long seed, int games) {
+            this.id = id;
+            this.matchup = matchup;
+            this.size = size;
+            this.winLength = winLength;
+            this.x = x;
+            this.o = o;
+            this.seed = seed;
+            this.games = games;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(id);
+            out.writeInt(matchup);
+            out.writeByte(size);
+            out.writeByte(winLength);
+            out.writeByte(x.ordinal());
+            out.writeByte(o.ordinal());
+            out.writeLong(seed);
+            out.writeInt(games);
+        }
+
+        static Batch read(DataInputStream in) throws IOException {
+            int id = in.readInt();
+            if (id < 0) {
+                return null;
+            }
+            AIPlayer.Difficulty[] difficulties = AIPlayer.Difficulty.values();
+            return new Batch(id, in.readInt(), in.readByte(), in.readByte(),
+                    difficulties[in.readByte()], difficulties[in.readByte()], in.readLong(), in.readInt());
+        }
+
+        static void writeStop(DataOutputStream out) throws IOException {
+            out.writeInt(-1);
+        }
+    }
+
+    // Outcome counts for a batch or, merged, for a whole matchup
+    public static final class Stats {
+        private long games;
+        private long xWins;
+        private long oWins;
+        private long draws;
+        private long moves;
+
+        void record(int winner, int moveCount) {
+            games++;
+            moves += moveCount;
+            if (winner == GameLogic.PLAYER_X) {
+                xWins++;
+            } else if (winner == GameLogic.PLAYER_O) {
+                oWins++;
+            } else {
+                draws++;
+            }
+        }
+
+        void merge(Stats other) {
+            games += other.games;
+            xWins += other.xWins;
+            oWins += other.oWins;
+            draws += other.draws;
+            moves += other.moves;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(games);
+            out.writeLong(xWins);
+            out.writeLong(oWins);
+            out.writeLong(draws);
+            out.writeLong(moves);
+        }
+
+        static Stats read(DataInputStream in) throws IOException {
+            Stats stats = new Stats();
+            stats.games = in.readLong();
+            stats.xWins = in.readLong();
+            stats.oWins = in.readLong();
+            stats.draws = in.readLong();
+            stats.moves = in.readLong();
+            return stats;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getXWins() {
+            return xWins;
+        }
+
+        public long getOWins() {
+            return oWins;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+    }
+
+    private static final class Outstanding {
+        final Batch batch;
+        int copies;
+
+        Outstanding(Batch batch) {
+            this.batch = batch;
+        }
+    }
+
+    private final List<Matchup> matchups;
+    private final Stats[] totals;
+    private final int batchCount;
+    private final ServerSocket serverSocket;
+    private final List<Process> processes = new ArrayList<>();
+
+    // Guarded by this
+    private final Deque<Batch> pending = new ArrayDeque<>();
+    private final Map<Integer, Outstanding> outstanding = new LinkedHashMap<>();
+    private final BitSet completed = new BitSet();
+    private int completedCount;
+    private long duplicateResults;
+    private long failedBatches;
+    private int respawnsLeft = MAX_RESPAWNS;
+    private volatile boolean closed;
+
+    public SelfPlayCoordinator(List<Matchup> matchups, int batchSize, long seed) throws IOException {
+        this.matchups = new ArrayList<>(matchups);
+        totals = new Stats[matchups.size()];
+        int id = 0;
+        for (int m = 0; m < matchups.size(); m++) {
+            Matchup matchup = matchups.get(m);
+            totals[m] = new Stats();
+            for (int start = 0; start < matchup.games; start += batchSize) {
+                int games = Math.min(batchSize, matchup.games - start);
+                pending.add(new Batch(id, m, matchup.size, matchup.winLength, matchup.x, matchup.o,
+                        seed * 1_000_003L + id, games));
+                id++;
+            }
+        }
+        batchCount = id;
+        serverSocket = new ServerSocket(0, 64, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "self-play-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Launches worker JVMs on this machine with the coordinator's own classpath. The
+    // first worker exits abruptly after crashAfterBatches batches if that is >= 0.
+    public synchronized void startWorkers(int count, int crashAfterBatches) throws IOException {
+        for (int i = 0; i < count; i++) {
+            spawnWorker(i == 0 ? crashAfterBatches : -1);
+        }
+    }
+
+    private void spawnWorker(int crashAfter) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                SelfPlayWorker.class.getName(), "127.0.0.1", String.valueOf(getPort()), String.valueOf(crashAfter));
+        builder.redirectErrorStream(true);
+        final Process process = builder.start();
+        processes.add(process);
+        // Drain output so a chatty worker can never block on a full pipe
+        Thread drain = new Thread(() -> {
+            byte[] buffer = new byte[4096];
+            try (InputStream in = process.getInputStream()) {
+                while (in.read(buffer) >= 0) {
+                    // Discard
+                }
+            } catch (IOException ignored) {
+                // Worker gone
+            }
+        }, "self-play-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    // Blocks until every batch has exactly one recorded result
+    public synchronized Stats[] awaitResults() throws InterruptedException {
+        while (completedCount < batchCount) {
+            wait();
+        }
+        return totals.clone();
+    }
+
+    public List<Matchup> getMatchups() {
+        return matchups;
+    }
+
+    public synchronized long getDuplicateResults() {
+        return duplicateResults;
+    }
+
+    public synchronized long getFailedBatches() {
+        return failedBatches;
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                final Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serve(socket), "self-play-worker-link");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Batch current = null;
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while ((current = nextBatch()) != null) {
+                current.write(out);
+                out.flush();
+                int id = in.readInt();
+                Stats result = Stats.read(in);
+                if (id != current.id) {
+                    throw new IOException("Worker answered batch " + id + " for " + current.id);
+                }
+                complete(current, result);
+                current = null;
+            }
+            Batch.writeStop(out);
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            if (current != null) {
+                fail(current);
+            }
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    // Next batch for an idle worker, a backup copy of a straggler's batch, or null when done
+    private synchronized Batch nextBatch() throws InterruptedException {
+        while (!closed && completedCount < batchCount) {
+            Batch batch = pending.poll();
+            if (batch == null) {
+                // Oldest batch first: it is the one most likely held by a slow worker
+                for (Outstanding candidate : outstanding.values()) {
+                    if (candidate.copies < MAX_COPIES) {
+                        batch = candidate.batch;
+                        break;
+                    }
+                }
+            }
+            if (batch != null) {
+                Outstanding entry = outstanding.get(batch.id);
+                if (entry == null) {
+                    entry = new Outstanding(batch);
+                    outstanding.put(batch.id, entry);
+                }
+                entry.copies++;
+                return batch;
+            }
+            wait();
+        }
+        return null;
+    }
+
+    private synchronized void complete(Batch batch, Stats result) {
+        Outstanding entry = outstanding.get(batch.id);
+        if (entry != null) {
+            entry.copies--;
+        }
+        if (completed.get(batch.id)) {
+            duplicateResults++;
+            return;
+        }
+        completed.set(batch.id);
+        completedCount++;
+        outstanding.remove(batch.id);
+        totals[batch.matchup].merge(result);
+        notifyAll();
+    }
+
+    private synchronized void fail(Batch batch) {
+        failedBatches++;
+        Outstanding entry = outstanding.get(batch.id);
+        if (entry != null && --entry.copies == 0 && !completed.get(batch.id)) {
+            outstanding.remove(batch.id);
+            pending.addFirst(batch);
+        }
+        // Only workers this coordinator launched are replaced; others connect on their own
+        if (!closed && completedCount < batchCount && !processes.isEmpty() && respawnsLeft > 0) {
+            respawnsLeft--;
+            try {
+                spawnWorker(-1);
+            } catch (IOException e) {
+                // Remaining workers pick up the slack
+            }
+        }
+        notifyAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        serverSocket.close();
+        // Idle workers have been told to stop; this only ends backup copies still running
+        synchronized (this) {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int gamesPerMatchup = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int crashAfter = args.length > 3 ? Integer.parseInt(args[3]) : -1;
+
+        List<Matchup> matchups = new ArrayList<>();
+        for (AIPlayer.Difficulty x : AIPlayer.Difficulty.values()) {
+            for (AIPlayer.Difficulty o : AIPlayer.Difficulty.values()) {
+                matchups.add(new Matchup(3, 3, x, o, gamesPerMatchup));
+            }
+        }
+
+        long start = System.nanoTime();
+        Stats[] totals;
+        long duplicates;
+        long failed;
+        try (SelfPlayCoordinator coordinator = new SelfPlayCoordinator(matchups, batchSize, 42)) {
+            coordinator.startWorkers(workers, crashAfter);
+            totals = coordinator.awaitResults();
+            duplicates = coordinator.getDuplicateResults();
+            failed = coordinator.getFailedBatches();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long games = 0;
+        long checksum = 0;
+        System.out.println(String.format("%-26s %8s %8s %8s %8s", "matchup", "games", "X wins", "O wins", "draws"));
+        for (int m = 0; m < matchups.size(); m++) {
+            Stats stats = totals[m];
+            games += stats.getGames();
+            checksum = checksum * 31 + stats.getXWins() * 7 + stats.getOWins() * 3 + stats.getMoves();
+            System.out.println(String.format("%-26s %8d %8d %8d %8d", matchups.get(m), stats.getGames(),
+                    stats.getXWins(), stats.getOWins(), stats.getDraws()));
+        }
+        System.out.println(String.format("%d workers: %d games in %.2f s, %.0f games/s", workers, games, seconds,
+                games / seconds));
+        System.out.println("failed batches re-queued: " + failed + ", duplicate results ignored: " + duplicates
+                + ", checksum: " + Long.toHexString(checksum));
+    }
+}
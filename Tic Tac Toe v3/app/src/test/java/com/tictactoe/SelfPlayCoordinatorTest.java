@@ -0,0 +1,98 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+
+public class SelfPlayCoordinatorTest {
+    // Stands in for a SelfPlayWorker process, one step at a time
+    private static final class FakeWorker implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        FakeWorker(SelfPlayCoordinator coordinator) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort());
+            socket.setSoTimeout(10_000);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        SelfPlayCoordinator.Batch take() throws IOException {
+            return SelfPlayCoordinator.Batch.read(in);
+        }
+
+        void answer(SelfPlayCoordinator.Batch batch) throws IOException {
+            out.writeInt(batch.id);
+            SelfPlayWorker.play(batch).write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static List<SelfPlayCoordinator.Matchup> matchup(int games) {
+        return Collections.singletonList(
+                new SelfPlayCoordinator.Matchup(3, 3, AIPlayer.Difficulty.EASY, AIPlayer.Difficulty.MEDIUM, games));
+    }
+
+    @Test
+    public void aCrashedWorkersBatchIsRequeuedFirst() throws Exception {
+        try (SelfPlayCoordinator coordinator = new SelfPlayCoordinator(matchup(30), 10, 33)) {
+            SelfPlayCoordinator.Batch lost;
+            try (FakeWorker crashing = new FakeWorker(coordinator)) {
+                lost = crashing.take();
+            }
+            while (coordinator.getFailedBatches() == 0) {
+                Thread.sleep(5);
+            }
+            try (FakeWorker worker = new FakeWorker(coordinator)) {
+                SelfPlayCoordinator.Batch batch = worker.take();
+                assertEquals(lost.id, batch.id);
+                assertEquals(lost.seed, batch.seed);
+                while (batch != null) {
+                    worker.answer(batch);
+                    batch = worker.take();
+                }
+            }
+            SelfPlayCoordinator.Stats stats = coordinator.awaitResults()[0];
+            assertEquals(30, stats.getGames());
+            assertEquals(30, stats.getXWins() + stats.getOWins() + stats.getDraws());
+            assertEquals(1, coordinator.getFailedBatches());
+        }
+    }
+
+    @Test
+    public void aDuplicateResultIsIgnored() throws Exception {
+        try (SelfPlayCoordinator coordinator = new SelfPlayCoordinator(matchup(10), 10, 33);
+             FakeWorker slow = new FakeWorker(coordinator)) {
+            SelfPlayCoordinator.Batch batch = slow.take();
+            try (FakeWorker backup = new FakeWorker(coordinator)) {
+                // The queue is empty, so the idle worker gets a copy of the straggler's batch
+                SelfPlayCoordinator.Batch copy = backup.take();
+                assertEquals(batch.id, copy.id);
+                backup.answer(copy);
+                assertNull(backup.take());
+            }
+            slow.answer(batch);
+            // The stop order comes after the coordinator has handled the answer
+            assertNull(slow.take());
+            assertEquals(10, coordinator.awaitResults()[0].getGames());
+            assertEquals(1, coordinator.getDuplicateResults());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.tictactoe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+// Headless self-play process started by SelfPlayCoordinator. Plays each batch it is
+// handed with seeded AIPlayers, so a replayed batch produces the same games.
+// Usage: SelfPlayWorker host port [crashAfterBatches]
+public class SelfPlayWorker {
+    public static void main(String[] args) throws IOException {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int crashAfter = args.length > 2 ? Integer.parseInt(args[2]) : -1;
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            int played = 0;
+            SelfPlayCoordinator.Batch batch;
+            while ((batch = SelfPlayCoordinator.Batch.read(in)) != null) {
+                if (played++ == crashAfter) {
+                    // Simulated crash in the middle of a batch
+                    Runtime.getRuntime().halt(1);
+                }
+                SelfPlayCoordinator.Stats stats = play(batch);
+                out.writeInt(batch.id);
+                stats.write(out);
+                out.flush();
+            }
+        }
+    }
+
+    static SelfPlayCoordinator.Stats play(SelfPlayCoordinator.Batch batch) {
+        GameLogic gameLogic = new GameLogic(batch.size, batch.winLength);
+        AIPlayer x = new AIPlayer(batch.x, GameLogic.PLAYER_X, batch.seed);
+        AIPlayer o = new AIPlayer(batch.o, GameLogic.PLAYER_O, ~batch.seed);
+        SelfPlayCoordinator.Stats stats = new SelfPlayCoordinator.Stats();
+        for (int game = 0; game < batch.games; game++) {
+            gameLogic.resetBoard();
+            int moves = 0;
+            while (!gameLogic.isGameOver()) {
+                AIPlayer player = gameLogic.getCurrentPlayer() == GameLogic.PLAYER_X ? x : o;
+                int[] move = player.getMove(gameLogic);
+                gameLogic.makeMove(move[0], move[1]);
+                moves++;
+            }
+            stats.record(gameLogic.getWinner(), moves);
+        }
+        return stats;
+    }
+}
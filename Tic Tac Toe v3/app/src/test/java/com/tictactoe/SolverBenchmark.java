@@ -0,0 +1,49 @@
+package com.tictactoe;
+
+// Headless time-to-solve benchmark for ProofNumberSolver on a fixed suite of positions.
+// Moves are cell indices (row * size + col) played alternately from X.
+public class SolverBenchmark {
+    private static final int[][][] SUITE = {
+            {{3, 3}, {}},
+            {{4, 3}, {}},
+            {{4, 4}, {}},
+            {{5, 4}, {12, 0}},
+            {{5, 4}, {12, 6, 7}},
+            {{5, 4}, {12, 13, 7, 17}},
+            {{7, 4}, {24, 25}},
+            {{7, 4}, {24, 0}},
+            {{7, 4}, {24}},
+    };
+
+    public static void main(String[] args) {
+        int tableBits = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long sliceNodes = args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE;
+
+        System.out.println("size k   moves                 outcome  move    nodes        ms      nodes/s");
+        for (int[][] entry : SUITE) {
+            int size = entry[0][0];
+            int winLength = entry[0][1];
+            GameLogic gameLogic = new GameLogic(size, winLength);
+            for (int cell : entry[1]) {
+                gameLogic.makeMove(cell / size, cell % size);
+            }
+
+            // With a node slice the solver is stopped and resumed until it finishes
+            ProofNumberSolver solver = new ProofNumberSolver(tableBits);
+            long start = System.nanoTime();
+            long totalNodes = 0;
+            ProofNumberSolver.Result result;
+            do {
+                result = solver.solve(gameLogic, sliceNodes);
+                totalNodes += result.getNodes();
+            } while (result.getOutcome() == ProofNumberSolver.Outcome.UNKNOWN);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+            int[] move = result.getMove();
+            System.out.println(String.format("%-4d %-3d %-21s %-8s %-7s %-12d %-7d %d",
+                    size, winLength, java.util.Arrays.toString(entry[1]), result.getOutcome(),
+                    move == null ? "-" : move[0] + "," + move[1], totalNodes, elapsedMillis,
+                    elapsedMillis == 0 ? 0 : totalNodes * 1000L / elapsedMillis));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tictactoe;
+
+import java.util.Random;
+
+// Headless benchmark for the unbounded board: grows one game by a random walk of
+// stones, five in a row, skipping moves that would end it, and reports at each
+// checkpoint the cost of a move and its undo, the HARD AI's time to answer one new
+// move, and the board's footprint. Both times should stay flat as the game grows.
+// Usage: SparseBoardBenchmark [moves]
+public class SparseBoardBenchmark {
+    private static final int WIN_LENGTH = 5;
+    private static final int SAMPLES = 2000;
+    private static final int AI_SAMPLES = 200;
+
+    public static void main(String[] args) {
+        int maxMoves = args.length > 0 ? Integer.parseInt(args[0]) : 32_000;
+        Random random = new Random(5);
+        SparseBoard board = new SparseBoard(WIN_LENGTH);
+        SparseAIPlayer ai = new SparseAIPlayer(AIPlayer.Difficulty.HARD, 5);
+        long[] walk = {0};
+
+        System.out.println("moves  candidates  ns/move  ns/undo  us/AI move  bytes/stone");
+        for (int checkpoint = 1000; checkpoint <= maxMoves; checkpoint *= 2) {
+            while (board.getMoveCount() < checkpoint) {
+                walk(board, random, walk);
+            }
+
+            // A move and its undo at random free cells next to the walk
+            long moveNanos = 0;
+            long undoNanos = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                int x = SparseBoard.keyX(walk[0]) + random.nextInt(5) - 2;
+                int y = SparseBoard.keyY(walk[0]) + random.nextInt(5) - 2;
+                long start = System.nanoTime();
+                boolean moved = board.makeMove(x, y);
+                long middle = System.nanoTime();
+                if (moved) {
+                    board.undo();
+                }
+                long end = System.nanoTime();
+                moveNanos += middle - start;
+                undoNanos += end - middle;
+            }
+
+            // The AI answers after each new move, as in a game
+            long aiNanos = 0;
+            ai.getMove(board);
+            for (int i = 0; i < AI_SAMPLES; i++) {
+                walk(board, random, walk);
+                long start = System.nanoTime();
+                ai.getMove(board);
+                aiNanos += System.nanoTime() - start;
+            }
+
+            System.out.println(String.format("%5d  %10d  %7.0f  %7.0f  %10.1f  %11.1f",
+                    board.getMoveCount(), board.getCandidateCount(), moveNanos / (double) SAMPLES,
+                    undoNanos / (double) SAMPLES, aiNanos / 1e3 / AI_SAMPLES,
+                    board.getFootprintBytes() / (double) board.getMoveCount()));
+        }
+    }
+
+    // Steps up to two cells at a time, over stones too, and plays at the first free
+    // cell that doesn't complete a line
+    private static void walk(SparseBoard board, Random random, long[] walk) {
+        while (true) {
+            int x = SparseBoard.keyX(walk[0]) + random.nextInt(5) - 2;
+            int y = SparseBoard.keyY(walk[0]) + random.nextInt(5) - 2;
+            walk[0] = SparseBoard.key(x, y);
+            if (board.isValidMove(x, y) && !board.isWinningMove(x, y)) {
+                board.makeMove(x, y);
+                return;
+            }
+        }
+    }
+}
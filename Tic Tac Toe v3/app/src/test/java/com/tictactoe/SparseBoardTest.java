@@ -0,0 +1,77 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SparseBoardTest {
+    @Test
+    public void keysKeepNegativeCoordinates() {
+        long key = SparseBoard.key(-SparseBoard.MAX_COORDINATE, -1);
+        assertEquals(-SparseBoard.MAX_COORDINATE, SparseBoard.keyX(key));
+        assertEquals(-1, SparseBoard.keyY(key));
+    }
+
+    @Test
+    public void detectsLinesInEveryDirection() {
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int[] direction : directions) {
+            SparseBoard board = new SparseBoard(5);
+            for (int i = 0; i < 4; i++) {
+                board.makeMove(-1000 + i * direction[0], 7 + i * direction[1]);
+                board.makeMove(50 + i, 50);
+            }
+            assertTrue(board.isWinningMove(-1000 + 4 * direction[0], 7 + 4 * direction[1]));
+            board.makeMove(-1000 + 4 * direction[0], 7 + 4 * direction[1]);
+            assertEquals(GameLogic.PLAYER_X, board.getWinner());
+            assertEquals(SparseBoard.key(-1000, 7), board.getWinFrom());
+            assertEquals(SparseBoard.key(-1000 + 4 * direction[0], 7 + 4 * direction[1]), board.getWinTo());
+            assertFalse(board.makeMove(0, 0));
+            board.undo();
+            assertFalse(board.isGameOver());
+            assertEquals(GameLogic.PLAYER_X, board.getCurrentPlayer());
+        }
+    }
+
+    @Test
+    public void candidatesFollowMovesAndUndos() {
+        Random random = new Random(4141);
+        SparseBoard board = new SparseBoard(5);
+        for (int step = 0; step < 3000; step++) {
+            if (board.canUndo() && random.nextInt(3) == 0) {
+                board.undo();
+            } else {
+                int x = random.nextInt(15) - 7;
+                int y = random.nextInt(15) - 7;
+                if (!board.isValidMove(x, y) || board.isWinningMove(x, y)) {
+                    continue;
+                }
+                board.makeMove(x, y);
+            }
+            int expected = 0;
+            for (int y = -7 - SparseBoard.CANDIDATE_RADIUS; y <= 7 + SparseBoard.CANDIDATE_RADIUS; y++) {
+                for (int x = -7 - SparseBoard.CANDIDATE_RADIUS; x <= 7 + SparseBoard.CANDIDATE_RADIUS; x++) {
+                    boolean near = false;
+                    for (int dy = -SparseBoard.CANDIDATE_RADIUS; dy <= SparseBoard.CANDIDATE_RADIUS && !near; dy++) {
+                        for (int dx = -SparseBoard.CANDIDATE_RADIUS; dx <= SparseBoard.CANDIDATE_RADIUS; dx++) {
+                            if (board.getStone(x + dx, y + dy) != GameLogic.EMPTY) {
+                                near = true;
+                                break;
+                            }
+                        }
+                    }
+                    boolean candidate = near && board.getStone(x, y) == GameLogic.EMPTY;
+                    assertEquals(candidate, board.isCandidate(x, y));
+                    if (candidate) {
+                        expected++;
+                    }
+                }
+            }
+            assertEquals(expected, board.getCandidateCount());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.tictactoe;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+// Headless fan-out benchmark: one game broadcast by SpectatorServer to many loopback
+// subscribers. Reports per-delivery latency, time until the last subscriber has each
+// move, the game thread's publish cost, and heap per subscriber.
+// Usage: SpectatorBenchmark [subscribers] [moves] [moveIntervalMillis] [slowSubscribers]
+public class SpectatorBenchmark {
+    private static final int CLIENT_THREADS = 2;
+    private static final int HISTOGRAM_MICROS = 100_000;
+
+    private static final class Client {
+        final ByteBuffer partial = ByteBuffer.allocate(24);
+    }
+
+    private static final class ClientLoop implements Runnable {
+        final Selector selector;
+        final long[] publishNanos;
+        final long[] lastArrival;
+        final long[] histogram = new long[HISTOGRAM_MICROS + 1];
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        volatile boolean running = true;
+        long received;
+
+        ClientLoop(long[] publishNanos) throws IOException {
+            this.selector = Selector.open();
+            this.publishNanos = publishNanos;
+            this.lastArrival = new long[publishNanos.length];
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(50);
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        read(key);
+                    }
+                }
+            } catch (IOException e) {
+                running = false;
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            Client client = (Client) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            buffer.flip();
+            long now = System.nanoTime();
+            while (buffer.hasRemaining()) {
+                ByteBuffer partial = client.partial;
+                while (partial.position() < 8 && buffer.hasRemaining()) {
+                    partial.put(buffer.get());
+                }
+                if (partial.position() < 8) {
+                    return;
+                }
+                long header = partial.getLong(0);
+                int frameBytes = MoveEventRing.type(header) == SpectatorServer.TYPE_SNAPSHOT ? 24 : 8;
+                while (partial.position() < frameBytes && buffer.hasRemaining()) {
+                    partial.put(buffer.get());
+                }
+                if (partial.position() < frameBytes) {
+                    return;
+                }
+                partial.clear();
+                if (MoveEventRing.type(header) == MoveEventRing.TYPE_MOVE) {
+                    int sequence = MoveEventRing.sequence(header);
+                    if (sequence < publishNanos.length && publishNanos[sequence] != 0) {
+                        long latency = now - publishNanos[sequence];
+                        histogram[(int) Math.min(HISTOGRAM_MICROS, latency / 1000)]++;
+                        lastArrival[sequence] = Math.max(lastArrival[sequence], now);
+                        received++;
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        long moveIntervalNanos = (args.length > 2 ? Long.parseLong(args[2]) : 50) * 1_000_000L;
+        int slowSubscribers = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        SpectatorServer server = new SpectatorServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 7, 4, 1 << 12);
+        server.start();
+        // Sequences start at 0; reserve room for the reset events between games
+        long[] publishNanos = new long[moves * 2 + 16];
+
+        ClientLoop[] loops = new ClientLoop[CLIENT_THREADS];
+        for (int i = 0; i < CLIENT_THREADS; i++) {
+            loops[i] = new ClientLoop(publishNanos);
+        }
+
+        long heapBefore = usedHeap();
+        List<SocketChannel> slow = new ArrayList<>();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        try {
+            for (int i = 0; i < subscribers; i++) {
+                // Registered before the client threads start, so no selector is blocked yet
+                SocketChannel channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                channel.register(loops[i % CLIENT_THREADS].selector, SelectionKey.OP_READ, new Client());
+            }
+            for (int i = 0; i < slowSubscribers; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.socket().setReceiveBufferSize(1024);
+                channel.connect(address);
+                slow.add(channel);
+            }
+        } catch (IOException e) {
+            System.out.println("Connect failed after " + server.getSpectatorCount()
+                    + " subscribers (raise ulimit -n): " + e.getMessage());
+        }
+        while (server.getSpectatorCount() < subscribers + slowSubscribers) {
+            Thread.sleep(10);
+            if (server.getSpectatorCount() + server.getDroppedCount() >= subscribers + slowSubscribers) {
+                break;
+            }
+        }
+        int connected = server.getSpectatorCount();
+        long heapPerSubscriber = (usedHeap() - heapBefore) / Math.max(1, connected);
+
+        Thread[] threads = new Thread[CLIENT_THREADS];
+        for (int i = 0; i < CLIENT_THREADS; i++) {
+            threads[i] = new Thread(loops[i], "spectator-client-" + i);
+            threads[i].start();
+        }
+
+        // Play random 7x7 games on this thread as the "game"
+        GameLogic gameLogic = new GameLogic(7, 4);
+        gameLogic.setMoveListener(server);
+        Random random = new Random(11);
+        long[] publishCost = new long[moves];
+        long next = System.nanoTime();
+        for (int move = 0; move < moves; move++) {
+            if (gameLogic.isGameOver()) {
+                gameLogic.resetBoard();
+            }
+            int row;
+            int col;
+            do {
+                row = random.nextInt(7);
+                col = random.nextInt(7);
+            } while (!gameLogic.isValidMove(row, col));
+            while (System.nanoTime() < next) {
+                Thread.yield();
+            }
+            next += moveIntervalNanos;
+            int sequence = (int) server.getPublished();
+            long start = System.nanoTime();
+            publishNanos[sequence] = start;
+            gameLogic.makeMove(row, col);
+            publishCost[move] = System.nanoTime() - start;
+        }
+        Thread.sleep(3000);
+
+        for (ClientLoop loop : loops) {
+            loop.running = false;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] histogram = new long[HISTOGRAM_MICROS + 1];
+        long[] lastArrival = new long[publishNanos.length];
+        long received = 0;
+        for (ClientLoop loop : loops) {
+            received += loop.received;
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += loop.histogram[i];
+            }
+            for (int i = 0; i < lastArrival.length; i++) {
+                lastArrival[i] = Math.max(lastArrival[i], loop.lastArrival[i]);
+            }
+        }
+        long[] fanOut = new long[publishNanos.length];
+        int fanOutCount = 0;
+        for (int i = 0; i < publishNanos.length; i++) {
+            if (publishNanos[i] != 0 && lastArrival[i] != 0) {
+                fanOut[fanOutCount++] = lastArrival[i] - publishNanos[i];
+            }
+        }
+        fanOut = Arrays.copyOf(fanOut, fanOutCount);
+        Arrays.sort(fanOut);
+        Arrays.sort(publishCost);
+
+        System.out.println("subscribers connected: " + connected + " (+" + slow.size() + " slow)");
+        System.out.println("moves: " + moves + ", deliveries: " + received);
+        System.out.println(String.format("delivery latency: p50 %d us, p99 %d us, max %d us",
+                percentile(histogram, 0.50), percentile(histogram, 0.99), percentile(histogram, 1.0)));
+        if (fanOutCount > 0) {
+            System.out.println(String.format("fan-out to last subscriber: p50 %.2f ms, p99 %.2f ms",
+                    fanOut[fanOutCount / 2] / 1e6, fanOut[fanOutCount * 99 / 100] / 1e6));
+        }
+        System.out.println(String.format("game thread publish cost: p50 %d ns, p99 %d ns",
+                publishCost[moves / 2], publishCost[moves * 99 / 100]));
+        System.out.println("heap per subscriber (server and client side): " + heapPerSubscriber
+                + " bytes, plus a 512-byte direct output buffer");
+        System.out.println("dropped: " + server.getDroppedCount() + ", resynced: " + server.getResyncCount());
+
+        for (SocketChannel channel : slow) {
+            channel.close();
+        }
+        server.close();
+    }
+
+    private static long percentile(long[] histogram, double fraction) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target && histogram[i] > 0) {
+                return i;
+            }
+        }
+        return HISTOGRAM_MICROS;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+public class SpectatorServerTest {
+    private static SpectatorServer start(int size, int winLength) throws IOException {
+        SpectatorServer server = new SpectatorServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), size, winLength, 16);
+        server.start();
+        return server;
+    }
+
+    private static Socket connect(SpectatorServer server) throws IOException, InterruptedException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        // The snapshot is taken on accept; wait for it so no move races the test's reads
+        while (server.getSpectatorCount() == 0) {
+            Thread.sleep(5);
+        }
+        return socket;
+    }
+
+    @Test
+    public void snapshotThenMovesFollowTheGame() throws Exception {
+        GameLogic gameLogic = new GameLogic(4, 3);
+        try (SpectatorServer server = start(4, 3)) {
+            gameLogic.setMoveListener(server);
+            gameLogic.makeMove(1, 1);
+            gameLogic.makeMove(0, 3);
+            try (Socket socket = connect(server)) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                long header = in.readLong();
+                assertEquals(SpectatorServer.TYPE_SNAPSHOT, MoveEventRing.type(header));
+                assertEquals(GameLogic.PLAYER_X, MoveEventRing.player(header));
+                assertEquals(4 << 8 | 3, MoveEventRing.data(header));
+                assertEquals(2, MoveEventRing.sequence(header));
+                assertEquals(1L << 5, in.readLong());
+                assertEquals(1L << 3, in.readLong());
+
+                gameLogic.makeMove(2, 2);
+                long move = in.readLong();
+                assertEquals(MoveEventRing.TYPE_MOVE, MoveEventRing.type(move));
+                assertEquals(GameLogic.PLAYER_X, MoveEventRing.player(move));
+                assertEquals(10, MoveEventRing.data(move));
+                assertEquals(2, MoveEventRing.sequence(move));
+
+                gameLogic.undo();
+                long undo = in.readLong();
+                assertEquals(MoveEventRing.TYPE_UNDO, MoveEventRing.type(undo));
+                assertEquals(GameLogic.PLAYER_X, MoveEventRing.player(undo));
+                assertEquals(10, MoveEventRing.data(undo));
+            }
+        }
+    }
+
+    @Test
+    public void wildSnapshotsCarryThePlacedSymbol() throws Exception {
+        GameLogic gameLogic = new GameLogic(3, 3, Rules.WILD);
+        try (SpectatorServer server = start(3, 3)) {
+            gameLogic.setMoveListener(server);
+            gameLogic.makeMove(0, 0, GameLogic.PLAYER_O);
+            gameLogic.makeMove(1, 1, GameLogic.PLAYER_O);
+            try (Socket socket = connect(server)) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                long header = in.readLong();
+                assertEquals(SpectatorServer.TYPE_SNAPSHOT, MoveEventRing.type(header));
+                assertEquals(GameLogic.PLAYER_X, MoveEventRing.player(header));
+                assertEquals(0L, in.readLong());
+                assertEquals(1L | 1L << 4, in.readLong());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBoardsSnapshotsCannotHold() throws IOException {
+        start(9, 5).close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.tictactoe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StatsStoreTest {
+    private static final int BUCKET = StatsStore.bucketFor(false, AIPlayer.Difficulty.HARD);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // Loads with callbacks run directly on the writer thread and waits for them
+    private static StatsStore load(File file) throws InterruptedException {
+        StatsStore store = new StatsStore(() -> file);
+        loadInto(store);
+        return store;
+    }
+
+    private static void loadInto(StatsStore store) throws InterruptedException {
+        CountDownLatch loaded = new CountDownLatch(1);
+        store.load(Runnable::run, loaded::countDown);
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void close(StatsStore store) throws InterruptedException {
+        store.shutdown();
+        assertTrue(store.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    // Games in BUCKET as saved in the file, read without a StatsStore
+    private static long savedGames(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.skipBytes(16);
+            int fields = 9;
+            in.skipBytes(BUCKET * fields * 8);
+            return in.readLong();
+        }
+    }
+
+    private File saveGames(int games) throws Exception {
+        return saveGames(folder.getRoot(), games);
+    }
+
+    private static File saveGames(File directory, int games) throws Exception {
+        File file = new File(directory, "stats.bin");
+        StatsStore store = load(file);
+        for (int i = 0; i < games; i++) {
+            store.recordGame(BUCKET, GameLogic.PLAYER_X, 5, 1_000_000L, 2);
+        }
+        close(store);
+        return file;
+    }
+
+    @Test
+    public void countersSurviveARestart() throws Exception {
+        File file = new File(folder.getRoot(), "stats.bin");
+        StatsStore store = load(file);
+        store.recordGame(BUCKET, GameLogic.PLAYER_X, 5, 3_000_000L, 2);
+        store.recordGame(BUCKET, GameLogic.PLAYER_X, 7, 1_000_000L, 3);
+        store.recordGame(BUCKET, GameLogic.PLAYER_O, 6, 2_000_000L, 3);
+        store.recordGame(StatsStore.TWO_PLAYER, GameLogic.EMPTY, 9, 0, 0);
+        store.flush();
+        close(store);
+
+        StatsStore.Stats stats = load(file).getStats(BUCKET);
+        assertEquals(3, stats.getGames());
+        assertEquals(2, stats.getWins());
+        assertEquals(1, stats.getLosses());
+        assertEquals(-1, stats.getStreak());
+        assertEquals(2, stats.getBestStreak());
+        assertEquals(6.0, stats.getAverageMoves(), 1e-9);
+        assertEquals(0.75, stats.getAverageThinkMillis(), 1e-9);
+        assertEquals(1, load(file).getStats(StatsStore.TWO_PLAYER).getDraws());
+    }
+
+    @Test
+    public void gamesRecordedBeforeLoadAreMerged() throws Exception {
+        File file = saveGames(2);
+        StatsStore store = new StatsStore(() -> file);
+        store.recordGame(BUCKET, GameLogic.PLAYER_O, 5, 0, 0);
+        assertEquals(0, store.getStats(BUCKET).getGames());
+        loadInto(store);
+        assertEquals(3, store.getStats(BUCKET).getGames());
+        assertEquals(1, store.getStats(BUCKET).getLosses());
+        close(store);
+        assertEquals(3, savedGames(file));
+    }
+
+    @Test
+    public void flushBeforeLoadWaitsForTheSavedCounters() throws Exception {
+        File file = saveGames(2);
+        StatsStore store = new StatsStore(() -> file);
+        store.recordGame(BUCKET, GameLogic.PLAYER_X, 5, 0, 0);
+        store.flush();
+        // Nothing was written over the saved counters
+        assertEquals(2, savedGames(file));
+        loadInto(store);
+        // The flush goes ahead once loaded, without waiting out the write-behind delay
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (savedGames(file) != 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, savedGames(file));
+        close(store);
+    }
+
+    @Test
+    public void aLeftoverTempFileIsIgnored() throws Exception {
+        File file = saveGames(2);
+        // A write of other counters killed after filling the temp file, before the rename
+        File temp = new File(file.getPath() + ".tmp");
+        Files.move(saveGames(folder.newFolder(), 9).toPath(), temp.toPath());
+        StatsStore store = load(file);
+        assertEquals(2, store.getStats(BUCKET).getGames());
+        assertTrue(temp.exists());
+        store.recordGame(BUCKET, GameLogic.PLAYER_X, 5, 0, 0);
+        close(store);
+        assertEquals(3, savedGames(file));
+        assertFalse(temp.exists());
+        assertEquals(3, load(file).getStats(BUCKET).getGames());
+    }
+}
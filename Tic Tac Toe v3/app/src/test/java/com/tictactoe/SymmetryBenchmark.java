@@ -0,0 +1,60 @@
+package com.tictactoe;
+
+import java.util.Random;
+
+// Headless throughput benchmark for BoardSymmetry canonicalization on random positions
+public class SymmetryBenchmark {
+    private static final int POSITIONS = 1 << 16;
+    private static final int ROUNDS = 40;
+
+    public static void main(String[] args) {
+        int[] sizes = {3, 4, 5, 7, 8};
+        Random random = new Random(42);
+        System.out.println("size  stones  canonicalizations/s  ns/op");
+        for (int size : sizes) {
+            BoardSymmetry symmetry = BoardSymmetry.of(size);
+            int cells = size * size;
+            long[] xs = new long[POSITIONS];
+            long[] os = new long[POSITIONS];
+            int stones = cells / 2;
+            for (int i = 0; i < POSITIONS; i++) {
+                long x = 0;
+                long o = 0;
+                for (int s = 0; s < stones; s++) {
+                    int cell = random.nextInt(cells);
+                    if (((x | o) & (1L << cell)) != 0) {
+                        continue;
+                    }
+                    if ((s & 1) == 0) {
+                        x |= 1L << cell;
+                    } else {
+                        o |= 1L << cell;
+                    }
+                }
+                xs[i] = x;
+                os[i] = o;
+            }
+
+            long checksum = 0;
+            // Warm up, then time
+            for (int i = 0; i < POSITIONS; i++) {
+                checksum += canonicalize(symmetry, xs[i], os[i]);
+            }
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < POSITIONS; i++) {
+                    checksum += canonicalize(symmetry, xs[i], os[i]);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            long operations = (long) POSITIONS * ROUNDS;
+            System.out.println(String.format("%-5d %-7d %-20d %.1f  (checksum %d)", size, stones,
+                    operations * 1_000_000_000L / elapsed, (double) elapsed / operations, checksum));
+        }
+    }
+
+    private static long canonicalize(BoardSymmetry symmetry, long x, long o) {
+        int t = symmetry.canonicalTransform(x, o);
+        return symmetry.transform(x, t) ^ symmetry.transform(o, t) * 31;
+    }
+}